@@ -2,8 +2,30 @@
 package com.parking;
 
 import com.parking.exception.*;
+import com.parking.metrics.MetricsHttpServer;
+import com.parking.metrics.MetricsRegistry;
+import com.parking.metrics.MetricsSnapshot;
+import com.parking.metrics.PrometheusExporter;
 import com.parking.model.*;
+import com.parking.output.AsyncOutputSink;
+import com.parking.output.OutputSink;
+import com.parking.persistence.DurabilityLevel;
+import com.parking.persistence.Journal;
+import com.parking.persistence.PartitionedTicketArchive;
+import com.parking.persistence.Recovery;
+import com.parking.persistence.SlotStateFile;
+import com.parking.persistence.SnapshotStore;
+import com.parking.server.GateServer;
 import com.parking.service.core.*;
+import com.parking.service.strategy.OccupancyRateProvider;
+import com.parking.service.strategy.PriceCurve;
+import com.parking.service.strategy.Tariff;
+import com.parking.service.strategy.TariffFeeCalculator;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Scanner;
 import java.time.format.DateTimeFormatter;
 
@@ -15,19 +37,57 @@ public class ParkingApplication {
     private static DisplayBoardService displayBoard;
     private static EntryGateHandler entryGate;
     private static ExitGateHandler exitGate;
+    private static PaymentProcessor paymentProcessor;
+    private static Journal journal;
+    private static SnapshotStore snapshotStore;
+    private static SlotStateFile slotStateFile;
+    private static PartitionedTicketArchive ticketArchive;
+    private static boolean restoredFromSlotState;
+    private static OutputSink output = OutputSink.console();
+    private static MetricsRegistry metrics;
+    private static MetricsSnapshot lastMetrics;
+    private static MetricsHttpServer metricsServer;
+    private static GateServer gateServer;
 
     public static void main(String[] args) {
         sc = new Scanner(System.in);
         
+        configureClock();
+        
         // Initialize services with dependency injection
         adminService = new AdminService();
         parkingService = new ParkingService();
-        displayBoard = new DisplayBoardService();
-        entryGate = new EntryGateHandler("ENTRY-1", parkingService);
+        // Re-render a changing board at most this many times a second (0 = every change)
+        displayBoard = DisplayBoardService.open(Integer.getInteger("parking.display.maxfps", 0));
+        entryGate = new EntryGateHandler("ENTRY-1", parkingService, displayBoard);
         exitGate = new ExitGateHandler("EXIT-1", parkingService);
+        paymentProcessor = new PaymentProcessor();
+        parkingService.setPaymentProcessor(paymentProcessor);
+        openOutput();
+        openMetrics();
+        openTariff();
+        openPricing();
+        openArchive();
+        openSlotState();
+        openJournal();
+        openMetricsServer();
+        if (slotStateFile != null) {
+            slotStateFile.attach(ParkingLot.getInstance());
+        }
+        if (ticketArchive != null) {
+            // Rebuild revenue buckets from the exits already archived
+            paymentProcessor.replayArchive(Integer.getInteger("parking.revenue.days", 31));
+        }
         
         // Configure parking lot
         ParkingLot.getInstance().setName("Smart Parking System");
+        // Remote gates only once the lot is fully restored
+        openGateServer();
+        
+        if (Arrays.asList(args).contains("--server")) {
+            serveUntilShutdown();
+            return;
+        }
         
         printWelcome();
         
@@ -50,6 +110,7 @@ public class ParkingApplication {
                     System.out.println("║     Thank you for using our system!   ║");
                     System.out.println("╚═══════════════════════════════════════╝");
                     sc.close();
+                    shutdown();
                     return;
                 default:
                     System.out.println("Invalid option. Please try again.");
@@ -57,6 +118,353 @@ public class ParkingApplication {
         }
     }
 
+    /**
+     * Record events in the journal named by the {@code parking.journal} system
+     * property, with the durability level named by {@code parking.durability}
+     * (SYNC, BATCHED or ASYNC; default BATCHED). State is first recovered from
+     * the newest snapshot in {@code parking.snapshots}, if set, plus the
+     * journal events after it; new snapshots are then written every
+     * {@code parking.snapshot.interval} seconds (default 300). Recovery is
+     * skipped when the slot state file already restored the lot.
+     */
+    private static void openJournal() {
+        String path = System.getProperty("parking.journal");
+        if (path == null) {
+            return;
+        }
+        String snapshots = System.getProperty("parking.snapshots");
+        try {
+            DurabilityLevel level = DurabilityLevel.valueOf(
+                System.getProperty("parking.durability", "BATCHED").toUpperCase());
+            Path snapshotDir = snapshots == null ? null : Paths.get(snapshots);
+            // New events must be numbered after the newest snapshot, even if the journal lost its tail
+            long afterSequence;
+            if (!restoredFromSlotState) {
+                Recovery.Result recovered = new Recovery(ParkingLot.getInstance(), parkingService)
+                    .recover(snapshotDir, Paths.get(path));
+                System.out.println(recovered);
+                afterSequence = recovered.getLastSequence();
+            } else {
+                afterSequence = snapshotDir == null ? 0 : SnapshotStore.latestSequence(snapshotDir);
+            }
+
+            journal = Journal.open(Paths.get(path), level, Journal.defaultFlushIntervalMicros(level), afterSequence);
+            parkingService.setJournal(journal);
+            adminService.setJournal(journal);
+            System.out.println("Journal: " + path + " (" + level + ")");
+
+            if (snapshotDir != null) {
+                snapshotStore = new SnapshotStore(snapshotDir, ParkingLot.getInstance(), parkingService, journal);
+                snapshotStore.setOutputSink(output);
+                snapshotStore.start(Long.getLong("parking.snapshot.interval", 300));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Error: Could not open journal " + path + " - " + e.getMessage());
+        }
+    }
+
+    private static void closeJournal() {
+        try {
+            if (snapshotStore != null) {
+                snapshotStore.close();
+                snapshotStore.writeSnapshot();
+            }
+            if (journal != null) {
+                journal.close();
+            }
+        } catch (IOException | JournalException e) {
+            System.out.println("Error: Could not close journal - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Mirror slot state in the memory-mapped file named by the
+     * {@code parking.slotstate} system property. If the file already holds a
+     * lot, floors, slots and active tickets are restored from it straight
+     * away; changes are forced to disk every {@code parking.checkpoint.interval}
+     * seconds (default 60) and on exit.
+     */
+    private static void openSlotState() {
+        String path = System.getProperty("parking.slotstate");
+        if (path == null) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            slotStateFile = SlotStateFile.open(Paths.get(path));
+            slotStateFile.setOutputSink(output);
+            int slots = slotStateFile.load(ParkingLot.getInstance(), parkingService);
+            restoredFromSlotState = slots > 0;
+            parkingService.setSlotStateFile(slotStateFile);
+            slotStateFile.start(Long.getLong("parking.checkpoint.interval", 60));
+            System.out.printf("Slot state: %s (%d slots, %d active tickets restored in %d ms)%n", path, slots,
+                ParkingLot.getInstance().getActiveTickets().size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error: Could not open slot state file " + path + " - " + e.getMessage());
+            slotStateFile = null;
+        }
+    }
+
+    private static void closeSlotState() {
+        if (slotStateFile == null) {
+            return;
+        }
+        try {
+            slotStateFile.close();
+        } catch (IOException e) {
+            System.out.println("Error: Could not close slot state file - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Run the lot on a clock {@code parking.clock.speed} times faster than
+     * real time, e.g. 60 to see an hour of fees accrue every minute.
+     */
+    private static void configureClock() {
+        String speed = System.getProperty("parking.clock.speed");
+        if (speed == null) {
+            return;
+        }
+        try {
+            ParkingLot.getInstance().setClock(ParkingClock.accelerated(Double.parseDouble(speed)));
+            System.out.println("Clock speed: " + speed + "x");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: Invalid clock speed " + speed + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Send gate banners and receipts to the sink named by the
+     * {@code parking.output} system property: CONSOLE (the default) prints
+     * on the gate's thread, ASYNC formats and prints on a writer thread, and
+     * SILENT discards them for headless nodes.
+     */
+    private static void openOutput() {
+        String mode = System.getProperty("parking.output", "CONSOLE").toUpperCase();
+        switch (mode) {
+            case "CONSOLE":
+                return;
+            case "ASYNC":
+                output = new AsyncOutputSink();
+                break;
+            case "SILENT":
+                output = OutputSink.silent();
+                break;
+            default:
+                System.out.println("Error: Unknown output mode " + mode + " - using CONSOLE");
+                return;
+        }
+        parkingService.setOutputSink(output);
+        adminService.setOutputSink(output);
+        paymentProcessor.setOutputSink(output);
+        entryGate.setOutputSink(output);
+        exitGate.setOutputSink(output);
+        System.out.println("Gate output: " + mode);
+    }
+
+    /**
+     * Time parks, unparks, slot searches, fees and lost tickets per gate and
+     * vehicle type, unless the {@code parking.metrics} system property is false.
+     */
+    private static void openMetrics() {
+        if (!Boolean.parseBoolean(System.getProperty("parking.metrics", "true"))) {
+            return;
+        }
+        metrics = new MetricsRegistry();
+        parkingService.setMetrics(metrics);
+        exitGate.setMetrics(metrics);
+    }
+
+    /**
+     * Serve {@code /metrics} in Prometheus format and {@code /health} on the
+     * port in the {@code parking.http.port} system property, bound to
+     * {@code parking.http.host} (default 127.0.0.1).
+     */
+    private static void openMetricsServer() {
+        Integer port = Integer.getInteger("parking.http.port");
+        if (port == null) {
+            return;
+        }
+        String host = System.getProperty("parking.http.host", "127.0.0.1");
+        try {
+            PrometheusExporter exporter = new PrometheusExporter(ParkingLot.getInstance(), metrics);
+            exporter.setJournal(journal);
+            metricsServer = new MetricsHttpServer(new InetSocketAddress(host, port), exporter);
+            System.out.println("Metrics: http://" + host + ":" + metricsServer.getPort() + "/metrics");
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Error: Could not start metrics server on " + host + ":" + port + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Accept remote gate controllers on the port in the {@code parking.server.port}
+     * system property, bound to {@code parking.server.host} (default 127.0.0.1).
+     * At most {@code parking.server.maxconnections} connections are served at
+     * once (default 10000), and connections idle for
+     * {@code parking.server.idletimeout} seconds are closed (default 0, never).
+     */
+    private static void openGateServer() {
+        Integer port = Integer.getInteger("parking.server.port");
+        if (port == null) {
+            return;
+        }
+        String host = System.getProperty("parking.server.host", "127.0.0.1");
+        try {
+            gateServer = new GateServer(new InetSocketAddress(host, port), parkingService, displayBoard,
+                Integer.getInteger("parking.server.maxconnections", GateServer.DEFAULT_MAX_CONNECTIONS),
+                Integer.getInteger("parking.server.idletimeout", 0) * 1000);
+            gateServer.setOutputSink(output);
+            gateServer.setMetrics(metrics);
+            gateServer.start();
+            System.out.println("Gate server: " + host + ":" + gateServer.getPort());
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Error: Could not start gate server on " + host + ":" + port + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Server mode ({@code --server}): no console menu, just the gate server
+     * until the process is stopped, then a clean shutdown.
+     */
+    private static void serveUntilShutdown() {
+        if (gateServer == null) {
+            System.out.println("Error: Server mode needs -Dparking.server.port=<port>.");
+            shutdown();
+            return;
+        }
+        Thread main = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            main.interrupt();
+            try {
+                main.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "shutdown"));
+        try {
+            Thread.sleep(Long.MAX_VALUE);
+        } catch (InterruptedException e) {
+            // Stopped
+        }
+        shutdown();
+    }
+
+    /**
+     * Stop the servers, then flush and close the files.
+     */
+    private static void shutdown() {
+        if (gateServer != null) {
+            gateServer.close();
+        }
+        output.close();
+        if (metricsServer != null) {
+            metricsServer.close();
+        }
+        closeJournal();
+        closeSlotState();
+        closeArchive();
+    }
+
+    /**
+     * Print the operation metrics, with throughput since they were last shown.
+     */
+    private static void showMetrics() {
+        if (metrics == null) {
+            System.out.println("\n⚠ Metrics are disabled (parking.metrics=false).");
+            return;
+        }
+        output.flush();
+        MetricsSnapshot snapshot = metrics.snapshot();
+        System.out.println("\nOPERATION METRICS");
+        if (snapshot.getSeries().isEmpty()) {
+            System.out.println("No operations recorded yet.");
+        } else {
+            System.out.print(snapshot.format(lastMetrics));
+        }
+        lastMetrics = snapshot;
+    }
+
+    /**
+     * Charge exits by the tariff in the file named by the {@code parking.tariff}
+     * system property. Without it every hour is charged at the lot's hourly rate.
+     */
+    private static void openTariff() {
+        String path = System.getProperty("parking.tariff");
+        if (path == null) {
+            return;
+        }
+        try {
+            TariffFeeCalculator tariffCalculator = new TariffFeeCalculator(Tariff.load(Paths.get(path)));
+            // Before the journal is opened, so replayed rate changes are compiled in too
+            tariffCalculator.attach();
+            parkingService.setFeeCalculator(tariffCalculator);
+            System.out.println("Tariff: " + path);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error: Could not load tariff " + path + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Raise rates with occupancy along the price curve in the
+     * {@code parking.pricing} system property, e.g. {@code 0:1,70:1,90:1.5,100:2},
+     * or per vehicle type in {@code parking.pricing.2W} and so on. The rate
+     * at entry is locked on each ticket.
+     */
+    private static void openPricing() {
+        String all = System.getProperty("parking.pricing");
+        OccupancyRateProvider provider = null;
+        try {
+            for (VehicleType type : VehicleType.values()) {
+                String curve = System.getProperty("parking.pricing." + type.getCode() + "W", all);
+                if (curve != null) {
+                    if (provider == null) {
+                        provider = new OccupancyRateProvider();
+                    }
+                    provider.setCurve(type, PriceCurve.parse(curve));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: Could not set up dynamic pricing - " + e.getMessage());
+            return;
+        }
+        if (provider != null) {
+            parkingService.setRateProvider(provider);
+            System.out.println("Dynamic pricing: on");
+        }
+    }
+
+    /**
+     * Archive closed tickets in daily partitions under the directory named by
+     * the {@code parking.archive} system property. Without it only the most
+     * recent exits are kept.
+     */
+    private static void openArchive() {
+        String path = System.getProperty("parking.archive");
+        if (path == null) {
+            return;
+        }
+        try {
+            ticketArchive = new PartitionedTicketArchive(Paths.get(path));
+            ticketArchive.setOutputSink(output);
+            ParkingLot.getInstance().setTicketArchive(ticketArchive);
+            System.out.println("Ticket archive: " + path + " (" + ticketArchive.getPartitionCount() + " days)");
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error: Could not open ticket archive " + path + " - " + e.getMessage());
+        }
+    }
+
+    private static void closeArchive() {
+        if (ticketArchive == null) {
+            return;
+        }
+        try {
+            ParkingLot.getInstance().setTicketArchive(null);
+            ticketArchive.close();
+        } catch (IOException e) {
+            System.out.println("Error: Could not close ticket archive - " + e.getMessage());
+        }
+    }
+
     private static void printWelcome() {
         System.out.println();
         System.out.println("╔══════════════════════════════════════════════════════════════╗");
@@ -80,6 +488,8 @@ public class ParkingApplication {
 
     private static void adminMode() {
         while (true) {
+            // Let the admin service's output catch up before the menu is shown again
+            output.flush();
             System.out.println("\n┌─────────────────────────────────────┐");
             System.out.println("│          ADMIN MENU                 │");
             System.out.println("├─────────────────────────────────────┤");
@@ -141,6 +551,7 @@ public class ParkingApplication {
                     } catch (NoFloorsConfiguredException e) {
                         System.out.println("\n⚠ " + e.getMessage());
                     }
+                    paymentProcessor.displayRevenue();
                     break;
                 case 0:
                     return;
@@ -152,6 +563,7 @@ public class ParkingApplication {
     
     private static void slotManagement() {
         while (true) {
+            output.flush();
             System.out.println("\n┌─────────────────────────────────────┐");
             System.out.println("│        SLOT MANAGEMENT              │");
             System.out.println("├─────────────────────────────────────┤");
@@ -217,6 +629,7 @@ public class ParkingApplication {
         
         // First display available floors
         adminService.displayAllFloorsWithSlots();
+        output.flush();
         
         System.out.print("Floor number to add slots: ");
         int floorNum = readInt();
@@ -247,6 +660,7 @@ public class ParkingApplication {
         
         // First display available floors
         adminService.displayAllFloorsWithSlots();
+        output.flush();
         
         System.out.print("Floor number to delete slots from: ");
         int floorNum = readInt();
@@ -280,6 +694,7 @@ public class ParkingApplication {
         
         // Show current slot details
         adminService.displaySlotDetails(slotId);
+        output.flush();
         
         System.out.println("\nSet slot properties:");
         System.out.print("Is reserved slot? (y/n): ");
@@ -391,6 +806,8 @@ public class ParkingApplication {
 
     private static void securityMode() {
         while (true) {
+            // Let the gates' output catch up before the menu is shown again
+            output.flush();
             System.out.println("\n┌─────────────────────────────────────┐");
             System.out.println("│        SECURITY MODE                │");
             System.out.println("├─────────────────────────────────────┤");
@@ -542,6 +959,7 @@ public class ParkingApplication {
             System.out.println("│  3. Compact View                    │");
             System.out.println("│  4. Floor Slot Map                  │");
             System.out.println("│  5. Parking Lot Status              │");
+            System.out.println("│  6. Operation Metrics               │");
             System.out.println("│  0. Back to Main Menu               │");
             System.out.println("└─────────────────────────────────────┘");
             System.out.print("Enter your choice: ");
@@ -589,6 +1007,9 @@ public class ParkingApplication {
                         System.out.println("\n⚠ " + e.getMessage());
                     }
                     break;
+                case 6:
+                    showMetrics();
+                    break;
                 case 0:
                     return;
                 default:
@@ -0,0 +1,245 @@
+package com.parking.benchmark;
+
+import com.parking.model.ParkingLot;
+import com.parking.model.VirtualClock;
+import com.parking.output.OutputSink;
+import com.parking.service.core.AdminService;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Minimal micro-benchmark harness.
+ * Each benchmark is warmed up, then measured in three phases:
+ * throughput (ops/s over fixed-length iterations), latency (per-operation
+ * timing of a sample, reported as percentiles) and allocation (bytes
+ * allocated per operation by the benchmark thread, plus GC count and time).
+ *
+ * Also holds the lot fixtures shared by the benchmarks and checks in this
+ * package, which reset the {@link ParkingLot} singleton before building.
+ */
+public class BenchmarkHarness {
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationNanos;
+    private final int latencySamples;
+
+    public BenchmarkHarness(int warmupIterations, int measurementIterations, long iterationMillis, int latencySamples) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+        this.latencySamples = latencySamples;
+    }
+
+    /**
+     * Default settings: 3 warmup and 5 measurement iterations of 500 ms.
+     */
+    public BenchmarkHarness() {
+        this(3, 5, 500, 100_000);
+    }
+
+    /**
+     * Run one benchmark operation and collect its results.
+     * @param name Benchmark name
+     * @param params Parameter description, e.g. "floors=10 slots=1000 occupancy=0.5"
+     * @param op The operation under test
+     */
+    public Result run(String name, String params, Runnable op) {
+        return run(name, params, op, null);
+    }
+
+    /**
+     * Run one benchmark operation, calling {@code iterationSetup} outside the
+     * measured region before every iteration, e.g. to rebuild state that the
+     * operation accumulates.
+     */
+    public Result run(String name, String params, Runnable op, Runnable iterationSetup) {
+        for (int i = 0; i < warmupIterations; i++) {
+            setUp(iterationSetup);
+            runIteration(op);
+        }
+
+        long gcCountBefore = gcCount();
+        long gcTimeBefore = gcTimeMillis();
+        long bytes = 0;
+        long totalOps = 0;
+        long totalNanos = 0;
+        for (int i = 0; i < measurementIterations; i++) {
+            setUp(iterationSetup);
+            long bytesBefore = allocatedBytes();
+            long start = System.nanoTime();
+            totalOps += runIteration(op);
+            totalNanos += System.nanoTime() - start;
+            bytes += allocatedBytes() - bytesBefore;
+        }
+        if (allocatedBytes() < 0) {
+            bytes = -1;
+        }
+        long gcCount = gcCount() - gcCountBefore;
+        long gcTime = gcTimeMillis() - gcTimeBefore;
+
+        setUp(iterationSetup);
+        long[] samples = new long[latencySamples];
+        for (int i = 0; i < latencySamples; i++) {
+            long start = System.nanoTime();
+            op.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+
+        Result result = new Result();
+        result.name = name;
+        result.params = params;
+        result.opsPerSecond = totalOps * 1_000_000_000.0 / totalNanos;
+        result.p50Nanos = percentile(samples, 0.50);
+        result.p99Nanos = percentile(samples, 0.99);
+        result.p999Nanos = percentile(samples, 0.999);
+        result.bytesPerOp = bytes < 0 ? -1 : (double) bytes / totalOps;
+        result.allocMbPerSecond = bytes < 0 ? -1 : bytes * 1_000.0 / totalNanos;
+        result.gcCount = gcCount;
+        result.gcTimeMillis = gcTime;
+        return result;
+    }
+
+    private static void setUp(Runnable iterationSetup) {
+        if (iterationSetup != null) {
+            iterationSetup.run();
+        }
+    }
+
+    private long runIteration(Runnable op) {
+        long deadline = System.nanoTime() + iterationNanos;
+        long ops = 0;
+        do {
+            for (int i = 0; i < 256; i++) {
+                op.run();
+            }
+            ops += 256;
+        } while (System.nanoTime() < deadline);
+        return ops;
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(index, 0)];
+    }
+
+    /**
+     * Bytes allocated so far by the current thread, or -1 if the JVM cannot tell.
+     */
+    static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    /**
+     * Reset the lot and add floors of {@code slotsPerFloor} slots, split as
+     * in {@link ParkingBenchmarks}.
+     */
+    static ParkingLot freshLot(int floors, int slotsPerFloor) {
+        ParkingLot.resetInstance();
+        addFloors(silentAdmin(), floors, slotsPerFloor);
+        return ParkingLot.getInstance();
+    }
+
+    /**
+     * Reset the lot to one floor with two slots of each type and a virtual
+     * clock starting at 10:00 on 4 March 2024, for checks that charge fares.
+     */
+    static VirtualClock freshClockedLot() {
+        ParkingLot.resetInstance();
+        VirtualClock clock = new VirtualClock(LocalDateTime.of(2024, 3, 4, 10, 0));
+        ParkingLot.getInstance().setClock(clock);
+        silentAdmin().addFloors(1, 2, 2, 2);
+        return clock;
+    }
+
+    /**
+     * Add floors through an admin service, e.g. one that journals them.
+     */
+    static void addFloors(AdminService admin, int floors, int slotsPerFloor) {
+        admin.addFloors(floors, ParkingBenchmarks.twoWheelerSlots(slotsPerFloor),
+            ParkingBenchmarks.fourWheelerSlots(slotsPerFloor), ParkingBenchmarks.sixWheelerSlots(slotsPerFloor));
+    }
+
+    /**
+     * An admin service for the current lot that prints nothing.
+     */
+    static AdminService silentAdmin() {
+        AdminService admin = new AdminService();
+        admin.setOutputSink(OutputSink.silent());
+        return admin;
+    }
+
+    /**
+     * End a check: print PASSED, or FAILED and exit with status 1.
+     */
+    static void finish(boolean passed) {
+        if (!passed) {
+            System.out.println("FAILED");
+            System.exit(1);
+        }
+        System.out.println("PASSED");
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(gc.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    private static long gcTimeMillis() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(gc.getCollectionTime(), 0);
+        }
+        return time;
+    }
+
+    /**
+     * Results of one benchmark run.
+     */
+    public static class Result {
+        String name;
+        String params;
+        double opsPerSecond;
+        long p50Nanos;
+        long p99Nanos;
+        long p999Nanos;
+        double bytesPerOp;
+        double allocMbPerSecond;
+        long gcCount;
+        long gcTimeMillis;
+
+        public double getOpsPerSecond() {
+            return opsPerSecond;
+        }
+
+        public double getBytesPerOp() {
+            return bytesPerOp;
+        }
+
+        public long getP99Nanos() {
+            return p99Nanos;
+        }
+
+        public static String header() {
+            return String.format("%-38s %-36s %14s %9s %9s %9s %10s %9s %5s %7s",
+                "Benchmark", "Params", "ops/s", "p50 ns", "p99 ns", "p99.9 ns", "B/op", "MB/s", "gc", "gc ms");
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-38s %-36s %14.0f %9d %9d %9d %10.1f %9.1f %5d %7d",
+                name, params, opsPerSecond, p50Nanos, p99Nanos, p999Nanos,
+                bytesPerOp, allocMbPerSecond, gcCount, gcTimeMillis);
+        }
+    }
+}
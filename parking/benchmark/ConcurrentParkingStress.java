@@ -0,0 +1,121 @@
+package com.parking.benchmark;
+
+import com.parking.model.*;
+import com.parking.output.OutputSink;
+import com.parking.service.core.ParkingService;
+import com.parking.service.interfaces.SlotAllocationStrategy;
+import com.parking.service.strategy.HourlyFeeCalculator;
+import com.parking.service.strategy.NearestSlotStrategy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stress check for concurrent entry and exit gates: proves that no slot is
+ * ever handed to two vehicles at once and that the occupancy counters still
+ * match the slots afterwards.
+ *
+ * Usage:
+ * <pre>
+ *   java -cp out com.parking.benchmark.ConcurrentParkingStress \
+ *       --threads=16 --seconds=5 --floors=2 --slots=20
+ * </pre>
+ * The lot is kept small so that gates constantly race for the same few
+ * slots. Each gate parks a car, records which car holds the slot, and lets
+ * it out again; a slot already recorded for another car is a double park.
+ * Half the gates allocate through {@link NearestSlotStrategy}, the other
+ * half through the default {@link SlotAllocationStrategy#claimSlot} retry
+ * loop. Exits with status 1 if any check fails.
+ */
+public class ConcurrentParkingStress {
+
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = 16;
+        int seconds = 5;
+        int floors = 2;
+        int slotsPerFloor = 20;
+        for (String arg : args) {
+            String[] kv = arg.replaceFirst("^--", "").split("=", 2);
+            switch (kv[0]) {
+                case "threads":
+                    threads = Integer.parseInt(kv[1]);
+                    break;
+                case "seconds":
+                    seconds = Integer.parseInt(kv[1]);
+                    break;
+                case "floors":
+                    floors = Integer.parseInt(kv[1]);
+                    break;
+                case "slots":
+                    slotsPerFloor = Integer.parseInt(kv[1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        ParkingLot lot = BenchmarkHarness.freshLot(floors, slotsPerFloor);
+
+        ParkingService nearest = service(new NearestSlotStrategy());
+        ParkingService retrying = service((candidates, type) -> new NearestSlotStrategy().findAvailableSlot(candidates, type));
+        // The two services number tickets independently; keep their IDs apart
+        retrying.advanceTicketCounter(1 << 30);
+        Map<Slot, String> holders = new ConcurrentHashMap<>();
+        AtomicLong parks = new AtomicLong();
+        AtomicLong full = new AtomicLong();
+        AtomicLong doubleParks = new AtomicLong();
+        AtomicLong failedExits = new AtomicLong();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            ParkingService parking = t % 2 == 0 ? nearest : retrying;
+            String gate = "STRESS-" + t;
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int i = 0; System.nanoTime() < deadline; i++) {
+                        VehicleType type = VehicleType.values()[i % VehicleType.values().length];
+                        String number = gate + "-" + i;
+                        Ticket ticket = parking.parkVehicle(VehicleFactory.createVehicle(number, "Grey", type), gate);
+                        if (ticket == null) {
+                            full.incrementAndGet();
+                            continue;
+                        }
+                        parks.incrementAndGet();
+                        Slot slot = ticket.getSlot();
+                        if (holders.putIfAbsent(slot, number) != null) {
+                            doubleParks.incrementAndGet();
+                        }
+                        holders.remove(slot, number);
+                        if (!parking.unparkVehicle(ticket.getTicketId(), gate)) {
+                            failedExits.incrementAndGet();
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, gate);
+            thread.start();
+        }
+        done.await();
+
+        boolean countersMatch = lot.verifyCounters();
+        int occupied = lot.getTotalOccupiedSlots();
+        int active = lot.getActiveTicketCount();
+        System.out.printf("%d gates, %d s: %d parks, %d turned away | double parks=%d failed exits=%d"
+                + " | occupied=%d active tickets=%d counters %s%n",
+            threads, seconds, parks.get(), full.get(), doubleParks.get(), failedExits.get(),
+            occupied, active, countersMatch ? "match" : "DRIFTED");
+        ParkingLot.resetInstance();
+        BenchmarkHarness.finish(doubleParks.get() == 0 && failedExits.get() == 0 && occupied == 0 && active == 0 && countersMatch);
+    }
+
+    private static ParkingService service(SlotAllocationStrategy strategy) {
+        ParkingService parking = new ParkingService(strategy, new HourlyFeeCalculator());
+        parking.setOutputSink(OutputSink.silent());
+        return parking;
+    }
+}
@@ -0,0 +1,77 @@
+package com.parking.benchmark;
+
+import com.parking.model.*;
+import com.parking.output.OutputSink;
+import com.parking.service.core.ParkingService;
+import com.parking.service.interfaces.FeeCalculator;
+import com.parking.service.strategy.HourlyFeeCalculator;
+import com.parking.service.strategy.NearestSlotStrategy;
+import com.parking.service.strategy.OccupancyRateProvider;
+import com.parking.service.strategy.PriceCurve;
+import com.parking.service.strategy.Tariff;
+import com.parking.service.strategy.TariffFeeCalculator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Check that a rate locked by {@link OccupancyRateProvider} scales the fee
+ * of whichever calculator charges the ticket, including a tariff whose own
+ * hourly rate differs from the lot's.
+ *
+ * Usage:
+ * <pre>
+ *   java -cp out com.parking.benchmark.DynamicPricingCheck
+ * </pre>
+ * Each case parks one car on a one-floor lot with a virtual clock, lets two
+ * hours pass and compares the fare with the expected one. The lot's
+ * four-wheeler rate is left at its default of Rs. 20/hour. Exits with
+ * status 1 if any fare is wrong.
+ */
+public class DynamicPricingCheck {
+
+    private static final List<String> OWN_RATE_TARIFF = List.of("rate 4W 25");
+
+    public static void main(String[] args) {
+        int failures = 0;
+        failures += check("hourly, flat curve", null, PriceCurve.flat(), 40.0);
+        failures += check("hourly, doubled", null, PriceCurve.parse("0:2,100:2"), 80.0);
+        failures += check("tariff at lot rate, flat curve", List.of(), PriceCurve.flat(), 40.0);
+        failures += check("tariff rate 4W 25, no pricing", OWN_RATE_TARIFF, null, 50.0);
+        failures += check("tariff rate 4W 25, flat curve", OWN_RATE_TARIFF, PriceCurve.flat(), 50.0);
+        failures += check("tariff rate 4W 25, doubled", OWN_RATE_TARIFF, PriceCurve.parse("0:2,100:2"), 100.0);
+        BenchmarkHarness.finish(failures == 0);
+    }
+
+    /**
+     * Park a four-wheeler for two hours and compare its fare.
+     * @param tariff Tariff rules, or null to charge by the hour
+     * @param curve Price curve, or null for no dynamic pricing
+     * @return 1 if the fare was wrong, otherwise 0
+     */
+    private static int check(String name, List<String> tariff, PriceCurve curve, double expected) {
+        VirtualClock clock = BenchmarkHarness.freshClockedLot();
+
+        FeeCalculator fees;
+        if (tariff != null) {
+            TariffFeeCalculator calculator = new TariffFeeCalculator(Tariff.parse(tariff));
+            calculator.attach();
+            fees = calculator;
+        } else {
+            fees = new HourlyFeeCalculator();
+        }
+        ParkingService parking = new ParkingService(new NearestSlotStrategy(), fees);
+        parking.setOutputSink(OutputSink.silent());
+        if (curve != null) {
+            parking.setRateProvider(new OccupancyRateProvider(curve));
+        }
+
+        Ticket ticket = parking.parkVehicle(VehicleFactory.createVehicle("KA01AB1234", "Grey", VehicleType.FOUR_WHEELER));
+        clock.advanceMinutes(120);
+        boolean closed = ticket != null && parking.unparkVehicle(ticket.getTicketId());
+        double fare = closed ? ticket.getFare() : Double.NaN;
+        boolean ok = closed && Math.abs(fare - expected) < 0.005;
+        System.out.printf(Locale.ROOT, "%-34s expected %7.2f got %7.2f %s%n", name, expected, fare, ok ? "ok" : "WRONG");
+        ParkingLot.resetInstance();
+        return ok ? 0 : 1;
+    }
+}
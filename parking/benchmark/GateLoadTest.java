@@ -0,0 +1,219 @@
+package com.parking.benchmark;
+
+import com.parking.metrics.HistogramSnapshot;
+import com.parking.metrics.LatencyHistogram;
+import com.parking.model.ParkingLot;
+import com.parking.output.OutputSink;
+import com.parking.server.GateClient;
+import com.parking.server.GateServer;
+import com.parking.service.core.DisplayBoardService;
+import com.parking.service.core.ParkingService;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load test for the {@link GateServer}: many gate connections, each parking
+ * a car and letting it out again in a loop, as fast as the server answers
+ * or with a pause between requests to model quieter gates and kiosks.
+ *
+ * Usage:
+ * <pre>
+ *   java -cp out com.parking.benchmark.GateLoadTest \
+ *       --connections=2000 --gates=30 --warmup=5 --duration=10 --think=0 \
+ *       --floors=10 --slots=1000
+ * </pre>
+ * Without {@code --port} the server is started in this process on a fresh
+ * lot of {@code floors} x {@code slots}; with it, the test drives the server
+ * at {@code --host} (default 127.0.0.1), whose lot needs enough free
+ * four-wheeler slots for one car per connection. Every connection is opened
+ * before the clock starts; each runs on its own virtual thread. Requests in
+ * the first {@code warmup} seconds, while the JIT compiles the server, are
+ * sent but not measured.
+ */
+public class GateLoadTest {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 30_000;
+
+    public static void main(String[] args) throws Exception {
+        String host = "127.0.0.1";
+        int port = -1;
+        int connections = 1000;
+        int gates = 30;
+        int warmupSeconds = 5;
+        int durationSeconds = 10;
+        int thinkMillis = 0;
+        int floors = 10;
+        int slotsPerFloor = 1000;
+        for (String arg : args) {
+            String[] kv = arg.replaceFirst("^--", "").split("=", 2);
+            switch (kv[0]) {
+                case "host":
+                    host = kv[1];
+                    break;
+                case "port":
+                    port = Integer.parseInt(kv[1]);
+                    break;
+                case "connections":
+                    connections = Integer.parseInt(kv[1]);
+                    break;
+                case "gates":
+                    gates = Integer.parseInt(kv[1]);
+                    break;
+                case "warmup":
+                    warmupSeconds = Integer.parseInt(kv[1]);
+                    break;
+                case "duration":
+                    durationSeconds = Integer.parseInt(kv[1]);
+                    break;
+                case "think":
+                    thinkMillis = Integer.parseInt(kv[1]);
+                    break;
+                case "floors":
+                    floors = Integer.parseInt(kv[1]);
+                    break;
+                case "slots":
+                    slotsPerFloor = Integer.parseInt(kv[1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        GateServer server = null;
+        if (port < 0) {
+            server = startServer(floors, slotsPerFloor, connections);
+            port = server.getPort();
+        }
+        try {
+            run(new InetSocketAddress(host, port), connections, gates, warmupSeconds, durationSeconds, thinkMillis, server);
+        } finally {
+            if (server != null) {
+                server.close();
+                ParkingLot.resetInstance();
+            }
+        }
+    }
+
+    private static GateServer startServer(int floors, int slotsPerFloor, int connections) throws IOException {
+        BenchmarkHarness.freshLot(floors, slotsPerFloor);
+        ParkingService parking = new ParkingService();
+        parking.setOutputSink(OutputSink.silent());
+        DisplayBoardService board = DisplayBoardService.open();
+        GateServer server = new GateServer(new InetSocketAddress("127.0.0.1", 0), parking, board,
+            Math.max(GateServer.DEFAULT_MAX_CONNECTIONS, connections), 0);
+        server.start();
+        return server;
+    }
+
+    private static void run(InetSocketAddress address, int connections, int gates, int warmupSeconds,
+                            int durationSeconds, int thinkMillis, GateServer server) throws InterruptedException {
+        LatencyHistogram entryLatency = new LatencyHistogram();
+        LatencyHistogram exitLatency = new LatencyHistogram();
+        LongAdder full = new LongAdder();
+        LongAdder errors = new LongAdder();
+        AtomicInteger connected = new AtomicInteger();
+        AtomicInteger connectFailures = new AtomicInteger();
+        AtomicInteger dropped = new AtomicInteger();
+        CountDownLatch ready = new CountDownLatch(connections);
+        CountDownLatch start = new CountDownLatch(1);
+        long[] phases = new long[2];    // Measurement start and end, in System.nanoTime()
+
+        long connectStart = System.nanoTime();
+        List<Runnable> loops = new ArrayList<>();
+        for (int c = 0; c < connections; c++) {
+            String gate = "G" + (c % gates);
+            String vehicle = "LOAD-" + c + "-";
+            loops.add(() -> {
+                GateClient client;
+                try {
+                    client = new GateClient(address, CONNECT_TIMEOUT_MILLIS);
+                    connected.incrementAndGet();
+                } catch (IOException e) {
+                    connectFailures.incrementAndGet();
+                    ready.countDown();
+                    return;
+                }
+                ready.countDown();
+                try (client) {
+                    start.await();
+                    for (int i = 0; System.nanoTime() < phases[1]; i++) {
+                        long t0 = System.nanoTime();
+                        boolean measured = t0 >= phases[0];
+                        String reply = client.entry(gate, vehicle + i, 4);
+                        long t1 = System.nanoTime();
+                        if (measured) {
+                            entryLatency.record(t1 - t0);
+                        }
+                        if (reply.startsWith("FULL")) {
+                            full.increment();
+                        } else if (!reply.startsWith("OK ")) {
+                            errors.increment();
+                        } else {
+                            pause(thinkMillis);
+                            String ticketId = reply.substring(3, reply.indexOf(' ', 3));
+                            long t2 = System.nanoTime();
+                            if (!client.exit(gate, ticketId).startsWith("OK ")) {
+                                errors.increment();
+                            }
+                            if (measured) {
+                                exitLatency.record(System.nanoTime() - t2);
+                            }
+                        }
+                        pause(thinkMillis);
+                    }
+                } catch (IOException e) {
+                    dropped.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Runnable loop : loops) {
+                clients.execute(loop);
+            }
+            ready.await();
+            long connectMillis = (System.nanoTime() - connectStart) / 1_000_000;
+            System.out.printf("Connected %d of %d in %d ms (%d failed)%s%n", connected.get(), connections,
+                connectMillis, connectFailures.get(),
+                server != null ? " | server connections: " + server.getConnectionCount()
+                    + " | JVM platform threads: " + ManagementFactory.getThreadMXBean().getThreadCount() : "");
+            phases[0] = System.nanoTime() + warmupSeconds * 1_000_000_000L;
+            phases[1] = phases[0] + durationSeconds * 1_000_000_000L;
+            start.countDown();
+        }
+
+        HistogramSnapshot entries = entryLatency.snapshot();
+        HistogramSnapshot exits = exitLatency.snapshot();
+        long requests = entries.getCount() + exits.getCount();
+        System.out.printf("%d requests measured in %d s: %.0f req/s, %.0f park+unpark/s | full=%d errors=%d dropped=%d%s%n",
+            requests, durationSeconds, requests / (double) durationSeconds, exits.getCount() / (double) durationSeconds,
+            full.sum(), errors.sum(), dropped.get(),
+            server != null ? " rejected=" + server.getRejectedCount() : "");
+        System.out.printf("%-6s %10s %10s %10s %10s %10s%n", "", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us");
+        printLatency("ENTRY", entries);
+        printLatency("EXIT", exits);
+    }
+
+    private static void printLatency(String name, HistogramSnapshot latency) {
+        System.out.printf("%-6s %10.0f %10.0f %10.0f %10.0f %10.0f%n", name,
+            latency.getValueAtPercentile(50) / 1e3, latency.getValueAtPercentile(90) / 1e3,
+            latency.getValueAtPercentile(99) / 1e3, latency.getValueAtPercentile(99.9) / 1e3,
+            latency.getMax() / 1e3);
+    }
+
+    private static void pause(int millis) throws InterruptedException {
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.parking.benchmark;
+
+import com.parking.model.*;
+import com.parking.output.OutputSink;
+import com.parking.server.GateClient;
+import com.parking.server.GateServer;
+import com.parking.service.core.DisplayBoardService;
+import com.parking.service.core.ExitGateHandler;
+import com.parking.service.core.ParkingService;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * Check that a lost ticket closes: the vehicle leaves with the lost-ticket
+ * penalty charged, its slot and active ticket are released, and it can park
+ * again afterwards.
+ *
+ * Usage:
+ * <pre>
+ *   java -cp out com.parking.benchmark.LostTicketCheck
+ * </pre>
+ * Runs once through an {@link ExitGateHandler} and once through the
+ * {@link GateServer}'s {@code LOST} command, on a one-floor lot with a
+ * virtual clock and the default Rs. 20/hour four-wheeler rate. Exits with
+ * status 1 if any check fails.
+ */
+public class LostTicketCheck {
+
+    private static final String VEHICLE = "KA01AB1234";
+
+    private static int failures;
+
+    public static void main(String[] args) throws IOException {
+        checkExitGate();
+        checkGateServer();
+        BenchmarkHarness.finish(failures == 0);
+    }
+
+    private static void checkExitGate() {
+        VirtualClock clock = BenchmarkHarness.freshClockedLot();
+        ParkingService parking = new ParkingService();
+        parking.setOutputSink(OutputSink.silent());
+        ExitGateHandler gate = new ExitGateHandler("EXIT-1", parking);
+        gate.setOutputSink(OutputSink.silent());
+
+        Ticket ticket = parking.parkVehicle(VehicleFactory.createVehicle(VEHICLE, "Grey", VehicleType.FOUR_WHEELER));
+        clock.advanceMinutes(120);
+        boolean closed = ticket != null && gate.processLostTicket(VEHICLE);
+        expect("exit gate: lost ticket closes", closed);
+        expect("exit gate: two hours charged twice, 80.00", closed && Math.abs(ticket.getFare() - 80.0) < 0.005);
+        expectReleased("exit gate");
+        Ticket again = parking.parkVehicle(VehicleFactory.createVehicle(VEHICLE, "Grey", VehicleType.FOUR_WHEELER));
+        expect("exit gate: vehicle can park again", again != null);
+        ParkingLot.resetInstance();
+    }
+
+    private static void checkGateServer() throws IOException {
+        BenchmarkHarness.freshClockedLot();
+        ParkingService parking = new ParkingService();
+        parking.setOutputSink(OutputSink.silent());
+        DisplayBoardService board = DisplayBoardService.open();
+        try (GateServer server = new GateServer(new InetSocketAddress("127.0.0.1", 0), parking, board)) {
+            server.start();
+            try (GateClient client = new GateClient("127.0.0.1", server.getPort())) {
+                expect("server: entry admitted", client.entry("G1", VEHICLE, 4).startsWith("OK "));
+                String lost = client.lostTicket("G1", VEHICLE);
+                expect("server: LOST answers OK with the one-hour fare doubled, 40.00",
+                    lost.startsWith("OK ") && lost.endsWith(" 40.00"));
+                expectReleased("server");
+                expect("server: second LOST finds no vehicle", client.lostTicket("G1", VEHICLE).startsWith("ERR "));
+                expect("server: vehicle can enter again", client.entry("G1", VEHICLE, 4).startsWith("OK "));
+            }
+        } finally {
+            board.close();
+            ParkingLot.resetInstance();
+        }
+    }
+
+    private static void expectReleased(String name) {
+        ParkingLot lot = ParkingLot.getInstance();
+        expect(name + ": slot released", lot.getOccupiedSlotsByType(VehicleType.FOUR_WHEELER) == 0);
+        expect(name + ": active ticket released", lot.getActiveTicketCount() == 0 && !lot.isVehicleParked(VEHICLE));
+    }
+
+    private static void expect(String check, boolean ok) {
+        System.out.printf("%-62s %s%n", check, ok ? "ok" : "WRONG");
+        if (!ok) {
+            failures++;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.parking.benchmark;
+
+import com.parking.metrics.LatencyHistogram;
+import com.parking.metrics.MetricsRegistry;
+import com.parking.metrics.OperationMetrics;
+import com.parking.model.*;
+import com.parking.output.AsyncOutputSink;
+import com.parking.output.OutputSink;
+import com.parking.service.core.DisplayBoardService;
+import com.parking.service.core.ParkingService;
+import com.parking.service.interfaces.FeeCalculator;
+import com.parking.service.interfaces.SlotAllocationStrategy;
+import com.parking.service.strategy.HourlyFeeCalculator;
+import com.parking.service.strategy.NearestSlotStrategy;
+import com.parking.service.strategy.Tariff;
+import com.parking.service.strategy.TariffFeeCalculator;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Benchmarks for the parking, allocation, fee and display paths.
+ * Every benchmark runs for each combination of floor count, slots per floor
+ * and occupancy level, and reports throughput, latency percentiles and
+ * allocation rate.
+ *
+ * Usage:
+ * <pre>
+ *   javac -encoding UTF-8 -d out $(find . -name '*.java')
+ *   java -cp out com.parking.benchmark.ParkingBenchmarks \
+ *       --floors=1,10,40 --slots=100,1000 --occupancy=0,0.5,0.95 \
+ *       --benchmarks=park,find,fee,summary,display,store,metrics \
+ *       --warmup=3 --iterations=5 --time=500
+ * </pre>
+ * Slots on each floor are split 20% two-wheeler, 70% four-wheeler and 10%
+ * six-wheeler; the park and allocation benchmarks use four-wheelers. The
+ * fee benchmark prices a four-wheeler parked for just over three hours, with
+ * the flat hourly rate and with {@link #BENCH_TARIFF}.
+ * Console output from the services is discarded while benchmarks run; the
+ * park benchmark also runs with silent and asynchronous output sinks. The
+ * metrics benchmark checks the cost of the timings recorded for one
+ * park+unpark against {@link #METRICS_BUDGET_NANOS}, then runs silent
+ * park+unpark with and without a {@link MetricsRegistry}.
+ */
+public class ParkingBenchmarks {
+
+    private static final PrintStream NULL_OUT = new PrintStream(OutputStream.nullOutputStream());
+    private static final int VEHICLE_POOL = 1024;
+    private static final double METRICS_BUDGET_NANOS = 600;    // Timing one park+unpark: 8 clock reads, 4 records
+    private static final int BENCH_MAX_FPS = 10;    // Board refresh cap for the coalesced display run
+    private static final List<String> BENCH_TARIFF = List.of(
+        "grace 10",
+        "weekend ALL 15",
+        "band 4W WEEKDAY 08-20 40",
+        "band ALL ALL 22-06 5",
+        "cap 4W 300",
+        "first-hour-free 2W");
+
+    public static void main(String[] args) {
+        int[] floorCounts = {1, 10, 40};
+        int[] slotsPerFloor = {100, 1000};
+        double[] occupancies = {0.0, 0.5, 0.95};
+        Set<String> benchmarks = new LinkedHashSet<>(List.of("park", "find", "fee", "summary", "display", "store", "metrics"));
+        int warmup = 3;
+        int iterations = 5;
+        long time = 500;
+
+        for (String arg : args) {
+            String[] kv = arg.replaceFirst("^--", "").split("=", 2);
+            if (kv.length != 2) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            switch (kv[0]) {
+                case "floors":
+                    floorCounts = parseInts(kv[1]);
+                    break;
+                case "slots":
+                    slotsPerFloor = parseInts(kv[1]);
+                    break;
+                case "occupancy":
+                    occupancies = Arrays.stream(kv[1].split(",")).mapToDouble(Double::parseDouble).toArray();
+                    break;
+                case "benchmarks":
+                    benchmarks = new LinkedHashSet<>(Arrays.asList(kv[1].split(",")));
+                    break;
+                case "warmup":
+                    warmup = Integer.parseInt(kv[1]);
+                    break;
+                case "iterations":
+                    iterations = Integer.parseInt(kv[1]);
+                    break;
+                case "time":
+                    time = Long.parseLong(kv[1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + kv[0]);
+            }
+        }
+
+        BenchmarkHarness harness = new BenchmarkHarness(warmup, iterations, time, 20_000);
+        PrintStream out = System.out;
+        out.println("JVM: " + System.getProperty("java.vm.name") + " " + System.getProperty("java.version")
+            + " | " + ManagementFactory.getRuntimeMXBean().getInputArguments());
+        out.println(BenchmarkHarness.Result.header());
+
+        for (int floors : floorCounts) {
+            for (int slots : slotsPerFloor) {
+                for (double occupancy : occupancies) {
+                    String params = String.format("floors=%d slots=%d occupancy=%.2f", floors, slots, occupancy);
+                    Fixture fixture = new Fixture(floors, slots, occupancy);
+                    System.setOut(NULL_OUT);
+                    try {
+                        runAll(harness, fixture, params, benchmarks, out);
+                    } finally {
+                        System.setOut(out);
+                    }
+                }
+            }
+        }
+        ParkingLot.resetInstance();
+    }
+
+    private static void runAll(BenchmarkHarness harness, Fixture fixture, String params,
+                               Set<String> benchmarks, PrintStream out) {
+        if (benchmarks.contains("park")) {
+            // Every exit archives its ticket, so rebuild the lot before each iteration
+            out.println(harness.run("ParkingService.park+unpark", params, fixture::parkAndUnpark, fixture::rebuild));
+            fixture.output = OutputSink.silent();
+            out.println(harness.run("ParkingService.park+unpark(silent output)", params, fixture::parkAndUnpark, fixture::rebuild));
+            AsyncOutputSink async = new AsyncOutputSink(NULL_OUT, AsyncOutputSink.DEFAULT_CAPACITY);
+            fixture.output = async;
+            out.println(harness.run("ParkingService.park+unpark(async output)", params, fixture::parkAndUnpark, fixture::rebuild)
+                + "  dropped=" + async.getDroppedCount());
+            async.close();
+            fixture.output = OutputSink.console();
+        }
+        fixture.rebuild();
+        if (benchmarks.contains("find")) {
+            out.println(harness.run("SlotAllocationStrategy.find", params, fixture::findAvailableSlot));
+        }
+        if (benchmarks.contains("fee")) {
+            out.println(harness.run("HourlyFeeCalculator.calculateFee", params, fixture::calculateFee));
+            out.println(harness.run("TariffFeeCalculator.calculateFee", params, fixture::calculateTariffFee));
+        }
+        if (benchmarks.contains("summary")) {
+            out.println(harness.run("ParkingLot.getStatusSummary", params, fixture::statusSummary));
+            out.println(harness.run("ParkingLot.getStatusSummary(1 slot changed)", params, fixture::statusSummaryAfterChange));
+        }
+        if (benchmarks.contains("display")) {
+            out.println(harness.run("DisplayBoard.showAllFloors", params, fixture::showAllFloors));
+            out.println(harness.run("DisplayBoard.showAllFloors(1 floor changed)", params, fixture::showAllFloorsAfterChange));
+            fixture.displayBoard.setMaxFramesPerSecond(BENCH_MAX_FPS);
+            out.println(harness.run("DisplayBoard.showAllFloors(1 floor changed, " + BENCH_MAX_FPS + " fps)", params,
+                fixture::showAllFloorsAfterChange));
+            fixture.displayBoard.setMaxFramesPerSecond(0);
+            out.println(harness.run("DisplayBoard.showCompactView", params, fixture::showCompactView));
+        }
+        if (benchmarks.contains("metrics")) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            out.println(harness.run("LatencyHistogram.record", params, () -> histogram.record(fixture.next++ & 0xFFFFF)));
+            OperationMetrics operation = new MetricsRegistry().park();
+            out.println(harness.run("OperationMetrics.record", params,
+                () -> operation.record("ENTRY-1", VehicleType.FOUR_WHEELER, System.nanoTime(), true)));
+
+            // What the services record for one park+unpark: park, slot search, unpark and fee
+            MetricsRegistry registry = new MetricsRegistry();
+            BenchmarkHarness.Result cost = harness.run("MetricsRegistry(park+unpark timings)", params, () -> {
+                registry.park().record("ENTRY-1", VehicleType.FOUR_WHEELER, System.nanoTime(), true);
+                registry.findSlot().record("ENTRY-1", VehicleType.FOUR_WHEELER, System.nanoTime(), true);
+                registry.unpark().record("EXIT-1", VehicleType.FOUR_WHEELER, System.nanoTime(), true);
+                registry.calculateFee().record("EXIT-1", VehicleType.FOUR_WHEELER, System.nanoTime(), true);
+            });
+            out.println(cost);
+            double overhead = 1e9 / cost.getOpsPerSecond();
+            out.println(String.format("  metrics overhead: %.0f ns per park+unpark (budget %.0f ns) %s",
+                overhead, METRICS_BUDGET_NANOS, overhead <= METRICS_BUDGET_NANOS ? "OK" : "OVER BUDGET"));
+
+            // End to end, for context; single runs are noisier than the difference being measured
+            fixture.output = OutputSink.silent();
+            out.println(harness.run("ParkingService.park+unpark(silent output)", params,
+                fixture::parkAndUnpark, fixture::rebuild));
+            fixture.metrics = new MetricsRegistry();
+            out.println(harness.run("ParkingService.park+unpark(silent output, metrics)", params,
+                fixture::parkAndUnpark, fixture::rebuild));
+            fixture.metrics = null;
+            fixture.output = OutputSink.console();
+        }
+        if (benchmarks.contains("store")) {
+            SlotStoreComparison store = new SlotStoreComparison(fixture.floors, fixture.slotsPerFloor, fixture.occupancy);
+            out.println(harness.run("SlotModel.claim+release", params, store::objectClaimRelease));
+            out.println(harness.run("PackedSlotStore.claim+release", params, store::packedClaimRelease));
+            out.println(harness.run("SlotModel.countAvailable(scan)", params, store::objectCount));
+            out.println(harness.run("PackedSlotStore.countAvailable(scan)", params, store::packedCount));
+            out.println(store.footprint(params));
+        }
+    }
+
+    private static int[] parseInts(String csv) {
+        return Arrays.stream(csv.split(",")).mapToInt(Integer::parseInt).toArray();
+    }
+
+    static int twoWheelerSlots(int slotsPerFloor) {
+        return slotsPerFloor / 5;
+    }
+
+    static int sixWheelerSlots(int slotsPerFloor) {
+        return slotsPerFloor / 10;
+    }
+
+    static int fourWheelerSlots(int slotsPerFloor) {
+        return slotsPerFloor - twoWheelerSlots(slotsPerFloor) - sixWheelerSlots(slotsPerFloor);
+    }
+
+    /**
+     * A parking lot filled to the requested occupancy, plus the services under test.
+     */
+    private static class Fixture {
+        final int floors;
+        final int slotsPerFloor;
+        final double occupancy;
+        final Vehicle[] vehicles = new Vehicle[VEHICLE_POOL];
+
+        ParkingLot parkingLot;
+        ParkingService parkingService;
+        OutputSink output = OutputSink.console();
+        MetricsRegistry metrics;
+        DisplayBoardService displayBoard;
+        SlotAllocationStrategy strategy;
+        FeeCalculator feeCalculator;
+        FeeCalculator tariffCalculator;
+        Ticket feeTicket;
+        Slot[] boardSlots;
+        double fee;
+        int next;
+        Object sink;
+
+        Fixture(int floors, int slotsPerFloor, double occupancy) {
+            this.floors = floors;
+            this.slotsPerFloor = slotsPerFloor;
+            this.occupancy = occupancy;
+            for (int i = 0; i < VEHICLE_POOL; i++) {
+                vehicles[i] = VehicleFactory.createVehicle("BENCH-" + i, "White", VehicleType.FOUR_WHEELER);
+            }
+        }
+
+        void rebuild() {
+            parkingLot = BenchmarkHarness.freshLot(floors, slotsPerFloor);
+            parkingService = new ParkingService();
+            parkingService.setOutputSink(OutputSink.silent());
+            displayBoard = DisplayBoardService.open();
+            strategy = new NearestSlotStrategy();
+            feeCalculator = new HourlyFeeCalculator();
+            tariffCalculator = new TariffFeeCalculator(Tariff.parse(BENCH_TARIFF));
+
+            for (VehicleType type : VehicleType.values()) {
+                int fill = (int) (parkingLot.getTotalSlotsByType(type) * occupancy);
+                for (int i = 0; i < fill; i++) {
+                    parkingService.parkVehicle(VehicleFactory.createVehicle("FILL-" + type.getCode() + "-" + i, "Grey", type));
+                }
+            }
+            parkingService.setOutputSink(output);
+            parkingService.setMetrics(metrics);
+            boardSlots = new Slot[floors];
+            for (int f = 0; f < floors; f++) {
+                boardSlots[f] = parkingLot.getFloors().get(f).getSlotList().get(0);
+            }
+            feeTicket = new Ticket("F1-4W-T0", "BENCH-FEE", VehicleType.FOUR_WHEELER, "F1-4W-S1", 1,
+                parkingLot.getClock().millis() - 190 * 60_000L);
+            next = 0;
+            System.gc();
+        }
+
+        void parkAndUnpark() {
+            Vehicle vehicle = vehicles[next++ & (VEHICLE_POOL - 1)];
+            Ticket ticket = parkingService.parkVehicle(vehicle);
+            if (ticket != null) {
+                parkingService.unparkVehicle(ticket.getTicketId());
+            }
+        }
+
+        void findAvailableSlot() {
+            sink = strategy.findAvailableSlot(parkingLot.getFloors(), VehicleType.FOUR_WHEELER);
+        }
+
+        void calculateFee() {
+            fee = feeCalculator.calculateFee(feeTicket);
+        }
+
+        void calculateTariffFee() {
+            fee = tariffCalculator.calculateFee(feeTicket);
+        }
+
+        void statusSummary() {
+            sink = parkingLot.getStatusSummary();
+        }
+
+        void statusSummaryAfterChange() {
+            Slot slot = boardSlots[next++ % boardSlots.length];
+            slot.setReserved(!slot.isReserved());
+            sink = parkingLot.getStatusSummary();
+        }
+
+        void showCompactView() {
+            displayBoard.showCompactView();
+        }
+
+        void showAllFloors() {
+            displayBoard.showAllFloorsAvailability();
+        }
+
+        void showAllFloorsAfterChange() {
+            // A reservation on one floor, as a gate would change between board refreshes
+            Slot slot = boardSlots[next++ % boardSlots.length];
+            slot.setReserved(!slot.isReserved());
+            displayBoard.showAllFloorsAvailability();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.parking.benchmark;
+
+import com.parking.model.*;
+import com.parking.output.OutputSink;
+import com.parking.persistence.DurabilityLevel;
+import com.parking.persistence.Journal;
+import com.parking.persistence.Recovery;
+import com.parking.persistence.SlotStateFile;
+import com.parking.persistence.SnapshotStore;
+import com.parking.service.core.AdminService;
+import com.parking.service.core.ParkingService;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Measures restart time for a large lot: loading the newest snapshot plus the
+ * journal tail, compared with replaying the whole journal and with mapping
+ * the slot state file.
+ *
+ * Usage:
+ * <pre>
+ *   java -cp out com.parking.benchmark.RecoveryBenchmark \
+ *       --floors=50 --slots=2000 --occupancy=0.6 --tail=20000 --runs=3
+ * </pre>
+ * The defaults build a 100k-slot layout, park 60% of it, take a snapshot and
+ * then journal {@code tail} more parks and exits.
+ */
+public class RecoveryBenchmark {
+
+
+    public static void main(String[] args) throws IOException {
+        int floors = 50;
+        int slotsPerFloor = 2000;
+        double occupancy = 0.6;
+        int tail = 20_000;
+        int runs = 3;
+        for (String arg : args) {
+            String[] kv = arg.replaceFirst("^--", "").split("=", 2);
+            switch (kv[0]) {
+                case "floors":
+                    floors = Integer.parseInt(kv[1]);
+                    break;
+                case "slots":
+                    slotsPerFloor = Integer.parseInt(kv[1]);
+                    break;
+                case "occupancy":
+                    occupancy = Double.parseDouble(kv[1]);
+                    break;
+                case "tail":
+                    tail = Integer.parseInt(kv[1]);
+                    break;
+                case "runs":
+                    runs = Integer.parseInt(kv[1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        Path dir = Files.createTempDirectory("parking-recovery");
+        Path journalPath = dir.resolve("journal.log");
+        Path snapshotDir = dir.resolve("snapshots");
+        Path slotStatePath = dir.resolve("slots.bin");
+        PrintStream out = System.out;
+        try {
+            long buildStart = System.nanoTime();
+            int[] expected = populate(floors, slotsPerFloor, occupancy, tail, journalPath, snapshotDir, slotStatePath);
+            long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+
+            out.printf("Layout: %d floors x %d slots = %d slots | %d active tickets | built in %d ms%n",
+                floors, slotsPerFloor, expected[0], expected[1], buildMillis);
+            out.printf("Journal: %d bytes | snapshot: %d bytes | slot state file: %d bytes%n",
+                Files.size(journalPath), Files.size(SnapshotStore.findLatest(snapshotDir)), Files.size(slotStatePath));
+
+            for (int run = 1; run <= runs; run++) {
+                report(out, "snapshot + tail", run, recover(snapshotDir, journalPath), expected);
+                report(out, "full journal replay", run, recover(null, journalPath), expected);
+                reportMapped(out, run, slotStatePath, expected);
+            }
+        } finally {
+            ParkingLot.resetInstance();
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * Build and fill the lot with a journal and a slot state file, snapshot it,
+     * then journal the tail.
+     * @return Expected total slots, active tickets and occupied slots after recovery
+     */
+    private static int[] populate(int floors, int slotsPerFloor, double occupancy, int tail,
+                                  Path journalPath, Path snapshotDir, Path slotStatePath) throws IOException {
+        ParkingLot.resetInstance();
+        ParkingLot lot = ParkingLot.getInstance();
+        AdminService admin = BenchmarkHarness.silentAdmin();
+        ParkingService parking = new ParkingService();
+        parking.setOutputSink(OutputSink.silent());
+        try (Journal journal = Journal.open(journalPath, DurabilityLevel.ASYNC);
+             SlotStateFile slotState = SlotStateFile.open(slotStatePath)) {
+            admin.setJournal(journal);
+            parking.setJournal(journal);
+            slotState.attach(lot);
+            parking.setSlotStateFile(slotState);
+            BenchmarkHarness.addFloors(admin, floors, slotsPerFloor);
+
+            List<Ticket> tickets = new ArrayList<>();
+            int n = 0;
+            for (VehicleType type : VehicleType.values()) {
+                int fill = (int) (lot.getTotalSlotsByType(type) * occupancy);
+                for (int i = 0; i < fill; i++) {
+                    Ticket t = parking.parkVehicle(VehicleFactory.createVehicle("REC-" + n++, "Grey", type));
+                    if (t != null) {
+                        tickets.add(t);
+                    }
+                }
+            }
+
+            SnapshotStore store = new SnapshotStore(snapshotDir, lot, parking, journal);
+            store.writeSnapshot();
+
+            // Journal tail: every other event parks a new car, the rest let an old one out
+            for (int i = 0; i < tail; i++) {
+                if (i % 2 == 0) {
+                    Ticket t = parking.parkVehicle(VehicleFactory.createVehicle("TAIL-" + i, "Grey", VehicleType.FOUR_WHEELER));
+                    if (t != null) {
+                        tickets.add(t);
+                    }
+                } else if (!tickets.isEmpty()) {
+                    parking.unparkVehicle(tickets.remove(tickets.size() / 2).getTicketId());
+                }
+            }
+        }
+        return new int[] {lot.getTotalCapacity(), lot.getActiveTickets().size(), lot.getTotalOccupiedSlots()};
+    }
+
+    private static Recovery.Result recover(Path snapshotDir, Path journalPath) throws IOException {
+        ParkingLot.resetInstance();
+        System.gc();
+        ParkingLot lot = ParkingLot.getInstance();
+        ParkingService parking = new ParkingService();
+        return new Recovery(lot, parking).recover(snapshotDir, journalPath);
+    }
+
+    private static void reportMapped(PrintStream out, int run, Path slotStatePath, int[] expected) throws IOException {
+        ParkingLot.resetInstance();
+        System.gc();
+        ParkingLot lot = ParkingLot.getInstance();
+        ParkingService parking = new ParkingService();
+        long start = System.nanoTime();
+        int slots;
+        long millis;
+        try (SlotStateFile slotState = SlotStateFile.open(slotStatePath)) {
+            slots = slotState.load(lot, parking);
+            millis = (System.nanoTime() - start) / 1_000_000;
+        }
+        boolean matches = lot.getTotalCapacity() == expected[0]
+            && lot.getActiveTickets().size() == expected[1]
+            && lot.getTotalOccupiedSlots() == expected[2];
+        out.printf("%-20s run %d: %6d ms total (%d slots mapped) state %s%n",
+            "mapped slot state", run, millis, slots, matches ? "matches" : "DIFFERS");
+    }
+
+    private static void report(PrintStream out, String mode, int run, Recovery.Result result, int[] expected) {
+        ParkingLot lot = ParkingLot.getInstance();
+        boolean matches = lot.getTotalCapacity() == expected[0]
+            && lot.getActiveTickets().size() == expected[1]
+            && lot.getTotalOccupiedSlots() == expected[2];
+        out.printf("%-20s run %d: %6d ms total (snapshot %5d ms, %7d events in %5d ms) state %s%n",
+            mode, run, result.getTotalMillis(), result.getSnapshotMillis(), result.getEventsReplayed(),
+            result.getReplayMillis(), matches ? "matches" : "DIFFERS");
+    }
+}
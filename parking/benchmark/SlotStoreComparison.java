@@ -0,0 +1,118 @@
+package com.parking.benchmark;
+
+import com.parking.model.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Side-by-side fixture for the object slot model ({@link Floor} holding
+ * {@link Slot} objects) and {@link PackedSlotStore}, laid out identically and
+ * filled to the same occupancy.
+ */
+class SlotStoreComparison {
+
+    private final List<Floor> floors = new ArrayList<>();
+    private final PackedSlotStore store;
+    private final Vehicle vehicle = VehicleFactory.createVehicle("BENCH-STORE", "White", VehicleType.FOUR_WHEELER);
+    private final long objectBuildBytes;
+    private final long packedBuildBytes;
+    private final int slotCount;
+    private int sink;
+
+    SlotStoreComparison(int floorCount, int slotsPerFloor, double occupancy) {
+        int twoW = ParkingBenchmarks.twoWheelerSlots(slotsPerFloor);
+        int fourW = ParkingBenchmarks.fourWheelerSlots(slotsPerFloor);
+        int sixW = ParkingBenchmarks.sixWheelerSlots(slotsPerFloor);
+        this.slotCount = floorCount * (twoW + fourW + sixW);
+
+        long before = BenchmarkHarness.allocatedBytes();
+        for (int f = 1; f <= floorCount; f++) {
+            Floor floor = new Floor(f);
+            addSlots(floor, twoW, VehicleType.TWO_WHEELER);
+            addSlots(floor, fourW, VehicleType.FOUR_WHEELER);
+            addSlots(floor, sixW, VehicleType.SIX_WHEELER);
+            floors.add(floor);
+        }
+        this.objectBuildBytes = BenchmarkHarness.allocatedBytes() - before;
+
+        before = BenchmarkHarness.allocatedBytes();
+        this.store = new PackedSlotStore(slotCount);
+        for (int f = 1; f <= floorCount; f++) {
+            store.addFloor(f, twoW, fourW, sixW);
+        }
+        this.packedBuildBytes = BenchmarkHarness.allocatedBytes() - before;
+
+        for (VehicleType type : VehicleType.values()) {
+            int total = floorCount * (type == VehicleType.TWO_WHEELER ? twoW : type == VehicleType.FOUR_WHEELER ? fourW : sixW);
+            int fill = (int) (total * occupancy);
+            Vehicle filler = VehicleFactory.createVehicle("FILL-" + type.getCode(), "Grey", type);
+            for (int i = 0; i < fill; i++) {
+                claimObject(filler);
+                store.claim(type);
+            }
+        }
+    }
+
+    private static void addSlots(Floor floor, int count, VehicleType type) {
+        List<Slot> slots = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            String slotId = "F" + floor.getFloorNumber() + "-" + type.getCode() + "W-S" + i;
+            slots.add(new Slot(slotId, type, floor.getFloorNumber(), i));
+        }
+        floor.addSlots(slots);
+    }
+
+    private Slot claimObject(Vehicle v) {
+        for (Floor floor : floors) {
+            Slot slot = floor.claimAvailableSlot(v);
+            if (slot != null) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    void objectClaimRelease() {
+        Slot slot = claimObject(vehicle);
+        if (slot != null) {
+            slot.unpark();
+        }
+    }
+
+    void packedClaimRelease() {
+        int handle = store.claim(VehicleType.FOUR_WHEELER);
+        if (handle >= 0) {
+            store.release(handle);
+        }
+    }
+
+    /**
+     * Count available four-wheeler slots by walking every slot object, as the
+     * floors did before they kept running counters.
+     */
+    void objectCount() {
+        int count = 0;
+        for (Floor floor : floors) {
+            for (Slot slot : floor.getSlotList()) {
+                if (slot.getVehicleType() == VehicleType.FOUR_WHEELER && slot.isAvailable()) {
+                    count++;
+                }
+            }
+        }
+        sink = count;
+    }
+
+    void packedCount() {
+        sink = store.countAvailableSlots(VehicleType.FOUR_WHEELER);
+    }
+
+    /**
+     * Describe the bytes allocated to build each model, per slot.
+     */
+    String footprint(String params) {
+        return String.format("%-38s %-36s object=%.1f B/slot packed=%.1f B/slot (packed arrays: %d B/slot)",
+            "SlotStore.buildAllocation", params,
+            (double) objectBuildBytes / slotCount, (double) packedBuildBytes / slotCount,
+            PackedSlotStore.bytesPerSlot());
+    }
+}
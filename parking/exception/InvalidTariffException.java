@@ -0,0 +1,18 @@
+package com.parking.exception;
+
+/**
+ * Exception thrown when a tariff definition cannot be parsed.
+ */
+public class InvalidTariffException extends ParkingException {
+
+    private final int lineNumber;
+
+    public InvalidTariffException(int lineNumber, String message) {
+        super("Invalid tariff at line " + lineNumber + ": " + message);
+        this.lineNumber = lineNumber;
+    }
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+}
@@ -0,0 +1,15 @@
+package com.parking.exception;
+
+/**
+ * Exception thrown when an event cannot be written to or read from the journal.
+ */
+public class JournalException extends ParkingException {
+    
+    public JournalException(String message) {
+        super(message);
+    }
+    
+    public JournalException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,31 @@
+package com.parking.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A fee worked out by a {@code FeeCalculator}.
+ */
+@Name("com.parking.FeeCalculation")
+@Label("Fee Calculation")
+@Category({"Parking", "Fees"})
+@StackTrace(false)
+public class FeeCalculationEvent extends jdk.jfr.Event {
+
+    @Label("Calculator")
+    public Class<?> calculator;
+
+    @Label("Vehicle Type")
+    public String vehicleType;
+
+    @Label("Ticket")
+    public String ticketId;
+
+    @Label("Locked Rate")
+    public boolean lockedRate;
+
+    @Label("Fee")
+    public double fee;
+}
@@ -0,0 +1,38 @@
+package com.parking.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A vehicle handled by an entry or exit gate, including the banners the
+ * gate writes around the service call.
+ */
+@Name("com.parking.Gate")
+@Label("Gate Operation")
+@Category({"Parking", "Gate"})
+@StackTrace(false)
+public class GateEvent extends jdk.jfr.Event {
+
+    public static final String ENTRY = "entry";
+    public static final String EXIT = "exit";
+    public static final String LOST_TICKET = "lostTicket";
+
+    @Label("Gate")
+    public String gateId;
+
+    @Label("Operation")
+    @Description("entry, exit or lostTicket")
+    public String operation;
+
+    @Label("Vehicle Type")
+    public String vehicleType;
+
+    @Label("Ticket")
+    public String ticketId;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
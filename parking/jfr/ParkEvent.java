@@ -0,0 +1,37 @@
+package com.parking.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A vehicle parked, or turned away, by {@code ParkingService}.
+ */
+@Name("com.parking.Park")
+@Label("Park")
+@Category({"Parking", "Service"})
+@Description("Ticket issued for a vehicle, from the duplicate check to the journal entry")
+@StackTrace(false)
+public class ParkEvent extends jdk.jfr.Event {
+
+    @Label("Gate")
+    public String gateId;
+
+    @Label("Vehicle Type")
+    public String vehicleType;
+
+    @Label("Ticket")
+    public String ticketId;
+
+    @Label("Floor")
+    @Description("Floor of the slot allocated, or -1 if none")
+    public int floor = -1;
+
+    @Label("Slot")
+    public String slotId;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
@@ -0,0 +1,42 @@
+package com.parking.jfr;
+
+import com.parking.model.VehicleType;
+
+/**
+ * Flight Recorder events for the parking workload.
+ *
+ * Each instrumented method creates its event, brackets the work with
+ * {@code begin()} and {@code end()}, and fills in the fields only if
+ * {@code shouldCommit()} says the event is enabled and over its threshold.
+ * With no recording running the JIT folds the checks away and the unused
+ * event object is scalar-replaced, so the instrumentation costs nothing.
+ *
+ * Record with the settings tuned for this workload:
+ * <pre>
+ * java -XX:StartFlightRecording:settings=parking/jfr/parking.jfc,filename=parking.jfr ...
+ * jfr print --events com.parking.Park parking.jfr
+ * </pre>
+ */
+public final class ParkingEvents {
+
+    private static final String[] TYPE_NAMES = typeNames();
+
+    private ParkingEvents() {
+    }
+
+    /**
+     * Short name of a vehicle type, e.g. {@code 4W}, or null.
+     */
+    public static String typeName(VehicleType type) {
+        return type != null ? TYPE_NAMES[type.ordinal()] : null;
+    }
+
+    private static String[] typeNames() {
+        VehicleType[] types = VehicleType.values();
+        String[] names = new String[types.length];
+        for (VehicleType type : types) {
+            names[type.ordinal()] = type.getCode() + "W";
+        }
+        return names;
+    }
+}
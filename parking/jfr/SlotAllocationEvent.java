@@ -0,0 +1,36 @@
+package com.parking.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A search for a free slot by a {@code SlotAllocationStrategy}.
+ */
+@Name("com.parking.SlotAllocation")
+@Label("Slot Allocation")
+@Category({"Parking", "Allocation"})
+@Description("Search for, and optionally claim, a free slot")
+@StackTrace(false)
+public class SlotAllocationEvent extends jdk.jfr.Event {
+
+    @Label("Vehicle Type")
+    public String vehicleType;
+
+    @Label("Claim")
+    @Description("True if the slot was claimed, false for a lookup only")
+    public boolean claim;
+
+    @Label("Floor")
+    @Description("Floor of the slot found, or -1 if none")
+    public int floor = -1;
+
+    @Label("Floors Scanned")
+    public int floorsScanned;
+
+    @Label("Slots Scanned")
+    @Description("Free-slot candidates tried; more than one per floor means other gates won the race")
+    public int slotsScanned;
+}
@@ -0,0 +1,37 @@
+package com.parking.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A ticket closed, or refused, by {@code ParkingService}.
+ */
+@Name("com.parking.Unpark")
+@Label("Unpark")
+@Category({"Parking", "Service"})
+@Description("Ticket closed: fee, journal entry, payment and slot release")
+@StackTrace(false)
+public class UnparkEvent extends jdk.jfr.Event {
+
+    @Label("Gate")
+    public String gateId;
+
+    @Label("Vehicle Type")
+    public String vehicleType;
+
+    @Label("Ticket")
+    public String ticketId;
+
+    @Label("Floor")
+    public int floor = -1;
+
+    @Label("Fare")
+    @Description("Fare charged, in rupees")
+    public double fare;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
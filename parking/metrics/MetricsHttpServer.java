@@ -0,0 +1,98 @@
+package com.parking.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Embedded HTTP endpoint for monitoring, on the JDK's built-in server.
+ *
+ * <ul>
+ *   <li>{@code GET /metrics}: {@link PrometheusExporter} output</li>
+ *   <li>{@code GET /health}: 200 while the lot can record events, 503 once
+ *       its journal has failed or closed</li>
+ * </ul>
+ *
+ * Requests are served one at a time on a single daemon thread, so a burst
+ * of scrapes cannot take CPU from the gates.
+ */
+public class MetricsHttpServer implements Closeable {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final PrometheusExporter exporter;
+
+    /**
+     * Bind to an address and start serving.
+     * @param address Address to listen on; port 0 picks a free port
+     */
+    public MetricsHttpServer(InetSocketAddress address, PrometheusExporter exporter) throws IOException {
+        this.exporter = exporter;
+        this.server = HttpServer.create(address, 0);
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "metrics-http");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext("/metrics", this::serveMetrics);
+        server.createContext("/health", this::serveHealth);
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private void serveMetrics(HttpExchange exchange) throws IOException {
+        if (!isGet(exchange)) {
+            return;
+        }
+        respond(exchange, 200, PrometheusExporter.CONTENT_TYPE, exporter.scrape());
+    }
+
+    private void serveHealth(HttpExchange exchange) throws IOException {
+        if (!isGet(exchange)) {
+            return;
+        }
+        boolean healthy = exporter.isHealthy();
+        respond(exchange, healthy ? 200 : 503, "text/plain; charset=utf-8",
+            healthy ? "OK\n" : "UNAVAILABLE: journal is not writable\n");
+    }
+
+    private static boolean isGet(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        if (method.equals("GET") || method.equals("HEAD")) {
+            return true;
+        }
+        exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+        exchange.sendResponseHeaders(405, -1);
+        exchange.close();
+        return false;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        boolean head = exchange.getRequestMethod().equals("HEAD");
+        exchange.sendResponseHeaders(status, head ? -1 : bytes.length);
+        if (!head) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+        exchange.close();
+    }
+}
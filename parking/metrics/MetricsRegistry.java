@@ -0,0 +1,81 @@
+package com.parking.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of per-operation counters and latency histograms.
+ *
+ * Services are given a registry and record into the operations below;
+ * anything else can register its own with {@link #operation(String)}.
+ * {@link #snapshot()} reads every series while writers keep recording.
+ */
+public class MetricsRegistry {
+
+    public static final String PARK = "park";
+    public static final String UNPARK = "unpark";
+    public static final String FIND_SLOT = "findSlot";
+    public static final String CALCULATE_FEE = "calculateFee";
+    public static final String LOST_TICKET = "lostTicket";
+
+    private static final Comparator<SeriesSnapshot> SERIES_ORDER = Comparator
+        .comparing(SeriesSnapshot::getOperation)
+        .thenComparing(SeriesSnapshot::getGateId)
+        .thenComparing(SeriesSnapshot::getVehicleTypeLabel);
+
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private final long startedAtNanos = System.nanoTime();
+    private final OperationMetrics park = register(operations, PARK);
+    private final OperationMetrics unpark = register(operations, UNPARK);
+    private final OperationMetrics findSlot = register(operations, FIND_SLOT);
+    private final OperationMetrics calculateFee = register(operations, CALCULATE_FEE);
+    private final OperationMetrics lostTicket = register(operations, LOST_TICKET);
+
+    /**
+     * The metrics for an operation, created on first use.
+     */
+    public OperationMetrics operation(String name) {
+        return register(operations, name);
+    }
+
+    private static OperationMetrics register(Map<String, OperationMetrics> operations, String name) {
+        return operations.computeIfAbsent(name, OperationMetrics::new);
+    }
+
+    public OperationMetrics park() {
+        return park;
+    }
+
+    public OperationMetrics unpark() {
+        return unpark;
+    }
+
+    public OperationMetrics findSlot() {
+        return findSlot;
+    }
+
+    public OperationMetrics calculateFee() {
+        return calculateFee;
+    }
+
+    public OperationMetrics lostTicket() {
+        return lostTicket;
+    }
+
+    /**
+     * Copy every series that has recorded something, ordered by operation,
+     * gate and vehicle type.
+     */
+    public MetricsSnapshot snapshot() {
+        long now = System.nanoTime();
+        List<SeriesSnapshot> series = new ArrayList<>();
+        for (OperationMetrics op : operations.values()) {
+            series.addAll(op.snapshot());
+        }
+        series.sort(SERIES_ORDER);
+        return new MetricsSnapshot(now, now - startedAtNanos, series);
+    }
+}
@@ -0,0 +1,82 @@
+package com.parking.metrics;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Every series of a {@link MetricsRegistry} at one moment.
+ */
+public final class MetricsSnapshot {
+
+    private final long takenAtNanos;
+    private final long uptimeNanos;
+    private final List<SeriesSnapshot> series;
+
+    MetricsSnapshot(long takenAtNanos, long uptimeNanos, List<SeriesSnapshot> series) {
+        this.takenAtNanos = takenAtNanos;
+        this.uptimeNanos = uptimeNanos;
+        this.series = Collections.unmodifiableList(series);
+    }
+
+    /**
+     * {@link System#nanoTime()} when the snapshot was taken.
+     */
+    public long getTakenAtNanos() {
+        return takenAtNanos;
+    }
+
+    /**
+     * Time since the registry was created.
+     */
+    public long getUptimeNanos() {
+        return uptimeNanos;
+    }
+
+    public List<SeriesSnapshot> getSeries() {
+        return series;
+    }
+
+    /**
+     * Operations per second for a series since an earlier snapshot, or
+     * since the registry was created if there is none.
+     */
+    public double getThroughput(SeriesSnapshot s, MetricsSnapshot earlier) {
+        long count = s.getCount();
+        long nanos = uptimeNanos;
+        if (earlier != null) {
+            SeriesSnapshot before = earlier.find(s);
+            count -= before != null ? before.getCount() : 0;
+            nanos = takenAtNanos - earlier.takenAtNanos;
+        }
+        return nanos > 0 ? count * 1e9 / nanos : 0;
+    }
+
+    /**
+     * A table of every series: counts, throughput since {@code earlier} (may
+     * be null) and latency percentiles in microseconds.
+     */
+    public String format(MetricsSnapshot earlier) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-13s %-10s %-5s %10s %8s %10s %9s %9s %9s %9s%n",
+            "Operation", "Gate", "Type", "Count", "Failed", "ops/s", "p50 us", "p99 us", "p99.9 us", "max us"));
+        for (SeriesSnapshot s : series) {
+            HistogramSnapshot latency = s.getLatency();
+            sb.append(String.format("%-13s %-10s %-5s %10d %8d %10.1f %9.1f %9.1f %9.1f %9.1f%n",
+                s.getOperation(), s.getGateId(), s.getVehicleTypeLabel(), s.getCount(), s.getFailed(),
+                getThroughput(s, earlier),
+                latency.getValueAtPercentile(50) / 1e3, latency.getValueAtPercentile(99) / 1e3,
+                latency.getValueAtPercentile(99.9) / 1e3, latency.getMax() / 1e3));
+        }
+        return sb.toString();
+    }
+
+    private SeriesSnapshot find(SeriesSnapshot s) {
+        for (SeriesSnapshot candidate : series) {
+            if (candidate.getOperation().equals(s.getOperation()) && candidate.getGateId().equals(s.getGateId())
+                    && candidate.getVehicleType() == s.getVehicleType()) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,84 @@
+package com.parking.metrics;
+
+import com.parking.model.VehicleType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for one kind of operation, kept
+ * separately for each gate and vehicle type.
+ *
+ * A gate's series are created the first time it records; after that a
+ * recording is a map lookup, an array read and a few atomic increments.
+ */
+public final class OperationMetrics {
+
+    public static final String NONE = "none";     // Label for a missing gate or vehicle type
+    private static final VehicleType[] TYPES = VehicleType.values();
+
+    private final String name;
+    private final Map<String, Series[]> byGate = new ConcurrentHashMap<>();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Record an operation that started at {@code startNanos} and has just finished.
+     * @param gateId The gate it ran for, or null
+     * @param type The vehicle type it was for, or null if unknown
+     * @param startNanos {@link System#nanoTime()} when it started
+     * @param succeeded false if it was turned down or failed
+     */
+    public void record(String gateId, VehicleType type, long startNanos, boolean succeeded) {
+        long elapsed = System.nanoTime() - startNanos;
+        String gate = gateId != null ? gateId : NONE;
+        Series[] series = byGate.get(gate);
+        if (series == null) {
+            series = byGate.computeIfAbsent(gate, OperationMetrics::newSeries);
+        }
+        Series s = series[type != null ? type.ordinal() : TYPES.length];
+        s.latency.record(elapsed);
+        (succeeded ? s.succeeded : s.failed).increment();
+    }
+
+    /**
+     * Snapshot every series that has recorded something.
+     */
+    List<SeriesSnapshot> snapshot() {
+        List<SeriesSnapshot> snapshots = new ArrayList<>();
+        for (Map.Entry<String, Series[]> entry : byGate.entrySet()) {
+            Series[] series = entry.getValue();
+            for (int row = 0; row < series.length; row++) {
+                long succeeded = series[row].succeeded.sum();
+                long failed = series[row].failed.sum();
+                if (succeeded + failed > 0) {
+                    snapshots.add(new SeriesSnapshot(name, entry.getKey(), row < TYPES.length ? TYPES[row] : null,
+                        succeeded, failed, series[row].latency.snapshot()));
+                }
+            }
+        }
+        return snapshots;
+    }
+
+    private static Series[] newSeries(String gate) {
+        Series[] series = new Series[TYPES.length + 1];   // Last row: no vehicle type
+        for (int i = 0; i < series.length; i++) {
+            series[i] = new Series();
+        }
+        return series;
+    }
+
+    private static final class Series {
+        final LongAdder succeeded = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LatencyHistogram latency = new LatencyHistogram();
+    }
+}
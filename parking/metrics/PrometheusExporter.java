@@ -0,0 +1,169 @@
+package com.parking.metrics;
+
+import com.parking.model.Floor;
+import com.parking.model.ParkingLot;
+import com.parking.model.VehicleType;
+import com.parking.persistence.Journal;
+
+/**
+ * Renders the lot's state in the Prometheus text exposition format
+ * (version 0.0.4).
+ *
+ * Everything is read from state that is already aggregated: per-floor
+ * occupancy counters, the active ticket map's size, a registry snapshot and
+ * the journal's sequence numbers. A scrape never walks the slot lists, so
+ * its cost depends on the number of floors and metric series, not on the
+ * size of the lot.
+ */
+public class PrometheusExporter {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final VehicleType[] TYPES = VehicleType.values();
+
+    private final ParkingLot parkingLot;
+    private final MetricsRegistry registry;
+    private volatile Journal journal;
+
+    /**
+     * @param registry Operation metrics to export, or null for occupancy only
+     */
+    public PrometheusExporter(ParkingLot parkingLot, MetricsRegistry registry) {
+        this.parkingLot = parkingLot;
+        this.registry = registry;
+    }
+
+    /**
+     * Set the journal whose lag is exported.
+     * @param journal The journal, or null if the lot is not journaled
+     */
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * True unless the lot's journal has failed or been closed.
+     */
+    public boolean isHealthy() {
+        Journal j = journal;
+        return j == null || j.isWritable();
+    }
+
+    public String scrape() {
+        StringBuilder sb = new StringBuilder(4096);
+        writeOccupancy(sb);
+        if (registry != null) {
+            writeOperations(sb, registry.snapshot());
+        }
+        writeJournal(sb);
+        return sb.toString();
+    }
+
+    private void writeOccupancy(StringBuilder sb) {
+        header(sb, "parking_slots", "gauge", "Slots by floor, vehicle type and state.");
+        for (Floor floor : parkingLot.getFloors()) {
+            String f = Integer.toString(floor.getFloorNumber());
+            for (VehicleType type : TYPES) {
+                String t = type.getCode() + "W";
+                slotSample(sb, f, t, "total", floor.countSlotsByType(type));
+                slotSample(sb, f, t, "available", floor.countAvailableSlotsByType(type));
+                slotSample(sb, f, t, "occupied", floor.countOccupiedSlotsByType(type));
+                slotSample(sb, f, t, "reserved", floor.countReservedSlotsByType(type));
+            }
+        }
+
+        header(sb, "parking_floor_operational", "gauge", "1 if the floor is open, 0 if closed.");
+        for (Floor floor : parkingLot.getFloors()) {
+            sb.append("parking_floor_operational{floor=\"").append(floor.getFloorNumber()).append("\"} ")
+                .append(floor.isOperational() ? 1 : 0).append('\n');
+        }
+
+        header(sb, "parking_active_tickets", "gauge", "Tickets issued and not yet closed.");
+        sb.append("parking_active_tickets ").append(parkingLot.getActiveTicketCount()).append('\n');
+    }
+
+    private static void slotSample(StringBuilder sb, String floor, String type, String state, int value) {
+        sb.append("parking_slots{floor=\"").append(floor).append("\",type=\"").append(type)
+            .append("\",state=\"").append(state).append("\"} ").append(value).append('\n');
+    }
+
+    private static void writeOperations(StringBuilder sb, MetricsSnapshot snapshot) {
+        header(sb, "parking_operations_total", "counter", "Operations by gate, vehicle type and outcome.");
+        for (SeriesSnapshot s : snapshot.getSeries()) {
+            sb.append("parking_operations_total");
+            labels(sb, s).append(",outcome=\"success\"} ").append(s.getSucceeded()).append('\n');
+            sb.append("parking_operations_total");
+            labels(sb, s).append(",outcome=\"failure\"} ").append(s.getFailed()).append('\n');
+        }
+
+        header(sb, "parking_operation_latency_seconds", "summary", "Operation latency by gate and vehicle type.");
+        for (SeriesSnapshot s : snapshot.getSeries()) {
+            HistogramSnapshot latency = s.getLatency();
+            for (double q : QUANTILES) {
+                sb.append("parking_operation_latency_seconds");
+                labels(sb, s).append(",quantile=\"").append(q).append("\"} ")
+                    .append(seconds(latency.getValueAtPercentile(q * 100))).append('\n');
+            }
+            sb.append("parking_operation_latency_seconds_sum");
+            labels(sb, s).append("} ").append(seconds(latency.getSum())).append('\n');
+            sb.append("parking_operation_latency_seconds_count");
+            labels(sb, s).append("} ").append(latency.getCount()).append('\n');
+        }
+
+        header(sb, "parking_operation_latency_max_seconds", "gauge", "Slowest operation so far by gate and vehicle type.");
+        for (SeriesSnapshot s : snapshot.getSeries()) {
+            sb.append("parking_operation_latency_max_seconds");
+            labels(sb, s).append("} ").append(seconds(s.getLatency().getMax())).append('\n');
+        }
+    }
+
+    private void writeJournal(StringBuilder sb) {
+        Journal j = journal;
+        if (j == null) {
+            return;
+        }
+        long last = j.getLastSequence();
+        long durable = j.getDurableSequence();
+        header(sb, "parking_journal_last_sequence", "gauge", "Sequence number of the last event appended to the journal.");
+        sb.append("parking_journal_last_sequence ").append(last).append('\n');
+        header(sb, "parking_journal_durable_sequence", "gauge", "Sequence number of the last journal event forced to disk.");
+        sb.append("parking_journal_durable_sequence ").append(durable).append('\n');
+        header(sb, "parking_journal_lag_events", "gauge", "Journal events appended but not yet on disk.");
+        sb.append("parking_journal_lag_events ").append(Math.max(0, last - durable)).append('\n');
+        header(sb, "parking_journal_writable", "gauge", "1 while the journal accepts events.");
+        sb.append("parking_journal_writable ").append(j.isWritable() ? 1 : 0).append('\n');
+    }
+
+    /**
+     * Open label set for a series, without the closing brace.
+     */
+    private static StringBuilder labels(StringBuilder sb, SeriesSnapshot s) {
+        sb.append("{operation=\"");
+        escape(sb, s.getOperation());
+        sb.append("\",gate=\"");
+        escape(sb, s.getGateId());
+        return sb.append("\",type=\"").append(s.getVehicleTypeLabel()).append('"');
+    }
+
+    private static void header(StringBuilder sb, String name, String type, String help) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void escape(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                sb.append('\\').append(c);
+            } else if (c == '\n') {
+                sb.append("\\n");
+            } else {
+                sb.append(c);
+            }
+        }
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+}
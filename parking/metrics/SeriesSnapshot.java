@@ -0,0 +1,64 @@
+package com.parking.metrics;
+
+import com.parking.model.VehicleType;
+
+/**
+ * Counts and latencies of one operation at one gate for one vehicle type.
+ */
+public final class SeriesSnapshot {
+
+    private final String operation;
+    private final String gateId;
+    private final VehicleType vehicleType;
+    private final long succeeded;
+    private final long failed;
+    private final HistogramSnapshot latency;
+
+    SeriesSnapshot(String operation, String gateId, VehicleType vehicleType,
+                   long succeeded, long failed, HistogramSnapshot latency) {
+        this.operation = operation;
+        this.gateId = gateId;
+        this.vehicleType = vehicleType;
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.latency = latency;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getGateId() {
+        return gateId;
+    }
+
+    /**
+     * @return The vehicle type, or null for operations without one
+     */
+    public VehicleType getVehicleType() {
+        return vehicleType;
+    }
+
+    public long getSucceeded() {
+        return succeeded;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getCount() {
+        return succeeded + failed;
+    }
+
+    public HistogramSnapshot getLatency() {
+        return latency;
+    }
+
+    /**
+     * "2W", "4W", "6W", or "none".
+     */
+    public String getVehicleTypeLabel() {
+        return vehicleType != null ? vehicleType.getCode() + "W" : OperationMetrics.NONE;
+    }
+}
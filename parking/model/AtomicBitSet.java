@@ -0,0 +1,113 @@
+package com.parking.model;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free growable bitset used for the per-floor free-slot index.
+ * Bits are packed 64 to a word and updated with compare-and-set, so gates
+ * flipping bits of neighbouring slots never lose each other's updates.
+ * Storage grows in fixed chunks that are never copied, so growing the set
+ * cannot drop a concurrent update either.
+ */
+class AtomicBitSet {
+
+    private static final int CHUNK_WORDS = 64;
+    private static final int CHUNK_BITS = CHUNK_WORDS * Long.SIZE;
+
+    private volatile AtomicLongArray[] chunks = new AtomicLongArray[0];
+
+    void set(int index, boolean value) {
+        if (value) {
+            set(index);
+        } else {
+            clear(index);
+        }
+    }
+
+    void set(int index) {
+        AtomicLongArray chunk = chunkFor(index, true);
+        int word = (index % CHUNK_BITS) >>> 6;
+        long mask = 1L << index;
+        long current;
+        do {
+            current = chunk.get(word);
+            if ((current & mask) != 0) {
+                return;
+            }
+        } while (!chunk.compareAndSet(word, current, current | mask));
+    }
+
+    void clear(int index) {
+        AtomicLongArray chunk = chunkFor(index, false);
+        if (chunk == null) {
+            return;
+        }
+        int word = (index % CHUNK_BITS) >>> 6;
+        long mask = 1L << index;
+        long current;
+        do {
+            current = chunk.get(word);
+            if ((current & mask) == 0) {
+                return;
+            }
+        } while (!chunk.compareAndSet(word, current, current & ~mask));
+    }
+
+    boolean get(int index) {
+        AtomicLongArray chunk = chunkFor(index, false);
+        return chunk != null && (chunk.get((index % CHUNK_BITS) >>> 6) & (1L << index)) != 0;
+    }
+
+    /**
+     * Index of the first set bit at or after {@code from}, or -1 if none.
+     */
+    int nextSetBit(int from) {
+        AtomicLongArray[] current = chunks;
+        int chunkIndex = from / CHUNK_BITS;
+        int word = (from % CHUNK_BITS) >>> 6;
+        long mask = -1L << from;
+        for (; chunkIndex < current.length; chunkIndex++, word = 0) {
+            AtomicLongArray chunk = current[chunkIndex];
+            for (; word < CHUNK_WORDS; word++, mask = -1L) {
+                long bits = chunk.get(word) & mask;
+                if (bits != 0) {
+                    return chunkIndex * CHUNK_BITS + (word << 6) + Long.numberOfTrailingZeros(bits);
+                }
+            }
+        }
+        return -1;
+    }
+
+    int cardinality() {
+        int count = 0;
+        for (AtomicLongArray chunk : chunks) {
+            for (int w = 0; w < CHUNK_WORDS; w++) {
+                count += Long.bitCount(chunk.get(w));
+            }
+        }
+        return count;
+    }
+
+    private AtomicLongArray chunkFor(int index, boolean create) {
+        int chunkIndex = index / CHUNK_BITS;
+        AtomicLongArray[] current = chunks;
+        if (chunkIndex < current.length) {
+            return current[chunkIndex];
+        }
+        return create ? grow(chunkIndex) : null;
+    }
+
+    private synchronized AtomicLongArray grow(int chunkIndex) {
+        AtomicLongArray[] current = chunks;
+        if (chunkIndex >= current.length) {
+            AtomicLongArray[] larger = new AtomicLongArray[chunkIndex + 1];
+            System.arraycopy(current, 0, larger, 0, current.length);
+            for (int i = current.length; i < larger.length; i++) {
+                larger[i] = new AtomicLongArray(CHUNK_WORDS);
+            }
+            chunks = larger;
+            current = larger;
+        }
+        return current[chunkIndex];
+    }
+}
@@ -1,187 +1,490 @@
-
 package com.parking.model;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents a floor in the parking lot.
  * Each floor contains multiple parking slots.
+ *
+ * Free slots are tracked in one bitset per vehicle type, indexed by the slot's
+ * stable position on the floor, so allocation is a first-set-bit lookup
+ * instead of a scan over the slot list. The index and counters are updated
+ * with atomic operations, so concurrent gates can claim slots without a lock.
+ *
+ * The set of slots is held in an immutable {@link FloorLayout}. Admin
+ * operations build the next layout off to the side and publish it with one
+ * reference swap; gates read whichever layout is current and never block.
  */
 public class Floor {
 
     private int floorNumber;
     private String floorName;
-    private ArrayList<Slot> slotList;
-    private boolean isOperational;
+    private volatile boolean isOperational;
+    private volatile boolean removed;               // Set once the floor is taken out of the lot
+    private volatile FloorLayout layout;            // Current published slot layout
+    private Map<VehicleType, AtomicBitSet> freeSlots; // Set bit = available slot at that position
+    private OccupancyCounters counters;
+    private volatile ParkingLot parkingLot;         // Lot whose counters mirror this floor, if attached
+    private final Object layoutLock = new Object(); // Serializes admins publishing new layouts
+    private final AtomicLong stateVersion = new AtomicLong(); // Bumped on every count or status change
+    private volatile FrameCache summaryFrame;       // Created on first read, see getAvailabilitySummary
 
     public Floor(int floorNumber) {
-        this.floorNumber = floorNumber;
-        this.floorName = "Floor " + floorNumber;
-        this.slotList = new ArrayList<>();
-        this.isOperational = true;
+        this(floorNumber, "Floor " + floorNumber);
     }
-    
+
     public Floor(int floorNumber, String floorName) {
         this.floorNumber = floorNumber;
         this.floorName = floorName;
-        this.slotList = new ArrayList<>();
         this.isOperational = true;
+        this.layout = FloorLayout.empty();
+        this.freeSlots = new EnumMap<>(VehicleType.class);
+        for (VehicleType type : VehicleType.values()) {
+            freeSlots.put(type, new AtomicBitSet());
+        }
+        this.counters = new OccupancyCounters();
     }
 
-    public int getFloorNumber() { 
-        return floorNumber; 
+    public int getFloorNumber() {
+        return floorNumber;
     }
-    
+
     public String getFloorName() {
         return floorName;
     }
-    
-    public ArrayList<Slot> getSlotList() { 
-        return slotList; 
+
+    /**
+     * Get the slots of the current layout. The list is an immutable snapshot.
+     */
+    public List<Slot> getSlotList() {
+        return layout.getSlots();
+    }
+
+    /**
+     * Get the current published layout.
+     */
+    public FloorLayout getLayout() {
+        return layout;
     }
-    
+
+    public long getLayoutVersion() {
+        return layout.getVersion();
+    }
+
     public boolean isOperational() {
         return isOperational;
     }
-    
+
     public void setOperational(boolean operational) {
         this.isOperational = operational;
+        stateVersion.incrementAndGet();
+        ParkingLot lot = parkingLot;
+        if (lot != null) {
+            lot.floorChanged();
+        }
+    }
+
+    /**
+     * A number that changes whenever this floor's slot counts or operational
+     * status do.
+     */
+    public long getStateVersion() {
+        return stateVersion.get();
+    }
+
+    public boolean isRemoved() {
+        return removed;
     }
 
     public void addSlot(Slot slot) {
-        slotList.add(slot);
+        addSlots(List.of(slot));
+    }
+
+    /**
+     * Add a batch of slots, published as a single new layout version.
+     */
+    public void addSlots(List<Slot> slots) {
+        if (slots.isEmpty()) {
+            return;
+        }
+        synchronized (layoutLock) {
+            FloorLayout current = layout;
+            int base = current.capacity();
+            for (int i = 0; i < slots.size(); i++) {
+                slots.get(i).attach(this, base + i);
+            }
+            layout = current.withAdded(slots);
+
+            // Index the new slots only once their positions are published
+            ParkingLot lot = parkingLot;
+            for (Slot slot : slots) {
+                if (lot != null) {
+                    lot.slotAdded(slot);
+                }
+                int state = slot.getState();
+                if (Slot.isAvailable(state)) {
+                    freeSlots.get(Slot.typeOf(state)).set(slot.getPosition());
+                }
+                updateCounters(state, 1);
+            }
+            if (lot != null) {
+                lot.floorChanged();
+            }
+        }
     }
-    
+
     public boolean removeSlot(String slotId) {
-        return slotList.removeIf(slot -> slot.getSlotId().equals(slotId) && !slot.isOccupied());
+        Slot slot = findSlotById(slotId);
+        return slot != null && removeSlots(List.of(slot)) == 1;
+    }
+
+    /**
+     * Remove a batch of slots from this floor. Occupied slots are skipped.
+     * @return Number of slots removed
+     */
+    public int removeSlots(Collection<Slot> slots) {
+        synchronized (layoutLock) {
+            List<Slot> retired = new ArrayList<>();
+            for (Slot s : slots) {
+                if (layout.slotAt(s.getPosition()) == s && s.retire()) {
+                    retired.add(s);
+                }
+            }
+            publishWithout(retired);
+            return retired.size();
+        }
+    }
+
+    /**
+     * Remove up to {@code count} empty slots of a vehicle type, in slot order.
+     * Each slot is retired with a compare-and-set, so a gate claiming it at
+     * the same moment either wins it first or finds it gone.
+     * @return The slots removed
+     */
+    public List<Slot> removeEmptySlots(VehicleType type, int count) {
+        synchronized (layoutLock) {
+            List<Slot> retired = new ArrayList<>();
+            for (Slot s : layout.getSlots()) {
+                if (retired.size() >= count) {
+                    break;
+                }
+                if (s.getVehicleType() == type && s.retire()) {
+                    retired.add(s);
+                }
+            }
+            publishWithout(retired);
+            return retired;
+        }
+    }
+
+    /**
+     * Convert up to {@code count} empty slots from one vehicle type to another,
+     * in slot order. Each conversion is a compare-and-set on the slot, so
+     * gates keep allocating throughout.
+     * @return The slots converted
+     */
+    public List<Slot> convertSlots(VehicleType fromType, VehicleType toType, int count) {
+        synchronized (layoutLock) {
+            FloorLayout current = layout;
+            List<Slot> changed = new ArrayList<>();
+            for (Slot s : current.getSlots()) {
+                if (changed.size() >= count) {
+                    break;
+                }
+                if (s.getVehicleType() == fromType && s.convertTo(toType)) {
+                    changed.add(s);
+                }
+            }
+            if (!changed.isEmpty()) {
+                layout = current.nextVersion();
+            }
+            return changed;
+        }
+    }
+
+    /**
+     * Mark this floor as removed if it has no occupied slots.
+     * A gate that claims a slot here concurrently either is seen by the
+     * occupancy check or sees the removed flag and gives the slot back.
+     * @return true if the floor is now removed
+     */
+    boolean markRemoved() {
+        synchronized (layoutLock) {
+            removed = true;
+            if (hasOccupiedSlots()) {
+                removed = false;
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Called by a slot after its type, occupancy, reservation or retirement changes.
+     * Both states are passed explicitly so that concurrent changes apply as
+     * independent deltas rather than re-reading a slot that may have moved on.
+     * @param slot The slot that changed
+     * @param previousState The slot's state word before the change
+     * @param newState The slot's state word after the change
+     */
+    void slotChanged(Slot slot, int previousState, int newState) {
+        int position = slot.getPosition();
+        if (position < 0) {
+            return;
+        }
+        if (Slot.isAvailable(previousState)) {
+            freeSlots.get(Slot.typeOf(previousState)).clear(position);
+        }
+        if (Slot.isAvailable(newState)) {
+            freeSlots.get(Slot.typeOf(newState)).set(position);
+        }
+        updateCounters(previousState, -1);
+        updateCounters(newState, 1);
+        ParkingLot lot = parkingLot;
+        if (lot != null) {
+            lot.slotStateChanged(slot, previousState, newState);
+        }
+    }
+
+    /**
+     * Claim the first available slot for a vehicle. If another gate claims a
+     * candidate first, the search continues with the next free slot.
+     * @return The claimed slot, or null if none could be claimed
+     */
+    public Slot claimAvailableSlot(Vehicle vehicle) {
+        return claimAvailableSlot(vehicle, null);
+    }
+
+    /**
+     * Claim the first available slot for a vehicle, counting the candidates tried.
+     * @param probes If not null, element 0 is incremented for each candidate tried
+     * @return The claimed slot, or null if none could be claimed
+     */
+    public Slot claimAvailableSlot(Vehicle vehicle, int[] probes) {
+        FloorLayout current = layout;
+        AtomicBitSet free = freeSlots.get(vehicle.getVehicleType());
+        for (int i = free.nextSetBit(0); i >= 0; i = free.nextSetBit(i + 1)) {
+            Slot candidate = current.slotAt(i);
+            if (probes != null) {
+                probes[0]++;
+            }
+            if (candidate != null && candidate.tryClaim(vehicle)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Attach this floor to the parking lot that aggregates its counters.
+     */
+    void attachTo(ParkingLot parkingLot) {
+        this.parkingLot = parkingLot;
+    }
+
+    OccupancyCounters getCounters() {
+        return counters;
+    }
+
+    private void publishWithout(List<Slot> retired) {
+        if (retired.isEmpty()) {
+            return;
+        }
+        // Positions are never reused, so the other slots keep their index bits
+        layout = layout.withRemoved(retired);
+        ParkingLot lot = parkingLot;
+        for (Slot s : retired) {
+            if (lot != null) {
+                lot.slotRemoved(s);
+            }
+            s.detach();
+        }
+    }
+
+    private void updateCounters(int state, int sign) {
+        if (Slot.isRetired(state)) {
+            return;
+        }
+        VehicleType type = Slot.typeOf(state);
+        boolean occupied = Slot.isOccupied(state);
+        boolean reserved = Slot.isReserved(state);
+        counters.apply(type, occupied, reserved, sign);
+        stateVersion.incrementAndGet();
+        ParkingLot lot = parkingLot;
+        if (lot != null) {
+            lot.slotCountsChanged();
+        }
     }
 
     /**
      * Count total slots of a specific vehicle type.
      */
     public int countSlotsByType(VehicleType type) {
-        int count = 0;
-        for (Slot s : slotList) {
-            if (s.getVehicleType() == type) count++;
-        }
-        return count;
+        return counters.total(type);
     }
-    
+
     /**
      * Count available slots of a specific vehicle type.
      */
     public int countAvailableSlotsByType(VehicleType type) {
-        int count = 0;
-        for (Slot s : slotList) {
-            if (s.getVehicleType() == type && s.isAvailable()) count++;
-        }
-        return count;
+        return counters.available(type);
     }
-    
+
     /**
      * Count occupied slots of a specific vehicle type.
      */
     public int countOccupiedSlotsByType(VehicleType type) {
-        int count = 0;
-        for (Slot s : slotList) {
-            if (s.getVehicleType() == type && s.isOccupied()) count++;
-        }
-        return count;
+        return counters.occupied(type);
     }
-    
+
+    /**
+     * Count reserved slots of a specific vehicle type.
+     */
+    public int countReservedSlotsByType(VehicleType type) {
+        return counters.reserved(type);
+    }
+
     /**
      * Get total number of slots on this floor.
      */
     public int getTotalSlots() {
-        return slotList.size();
+        return layout.size();
     }
-    
+
     /**
      * Get total available slots on this floor.
      */
     public int getAvailableSlots() {
-        int count = 0;
-        for (Slot s : slotList) {
-            if (s.isAvailable()) count++;
-        }
-        return count;
+        return counters.availableAll();
     }
-    
+
     /**
      * Get total occupied slots on this floor.
      */
     public int getOccupiedSlots() {
-        int count = 0;
-        for (Slot s : slotList) {
-            if (s.isOccupied()) count++;
-        }
-        return count;
+        return counters.occupiedAll();
     }
-    
+
     /**
      * Find first available slot for a vehicle type.
      */
     public Slot findAvailableSlot(VehicleType type) {
-        for (Slot s : slotList) {
-            if (s.getVehicleType() == type && s.isAvailable()) {
-                return s;
+        return findAvailableSlot(type, null);
+    }
+
+    /**
+     * Find the first available slot of a type, counting the candidates tried.
+     * @param probes If not null, element 0 is incremented for each candidate tried
+     */
+    public Slot findAvailableSlot(VehicleType type, int[] probes) {
+        FloorLayout current = layout;
+        AtomicBitSet free = freeSlots.get(type);
+        for (int i = free.nextSetBit(0); i >= 0; i = free.nextSetBit(i + 1)) {
+            Slot slot = current.slotAt(i);
+            if (probes != null) {
+                probes[0]++;
+            }
+            if (slot != null) {
+                return slot;
             }
         }
         return null;
     }
-    
+
     /**
      * Get all available slots of a specific type.
      */
     public List<Slot> getAvailableSlotsByType(VehicleType type) {
-        return slotList.stream()
-            .filter(s -> s.getVehicleType() == type && s.isAvailable())
-            .collect(Collectors.toList());
+        FloorLayout current = layout;
+        AtomicBitSet free = freeSlots.get(type);
+        List<Slot> available = new ArrayList<>(counters.available(type));
+        for (int i = free.nextSetBit(0); i >= 0; i = free.nextSetBit(i + 1)) {
+            Slot slot = current.slotAt(i);
+            if (slot != null) {
+                available.add(slot);
+            }
+        }
+        return available;
     }
-    
+
     /**
      * Find a slot by its ID.
      */
     public Slot findSlotById(String slotId) {
-        for (Slot s : slotList) {
-            if (s.getSlotId().equals(slotId)) {
-                return s;
-            }
-        }
-        return null;
+        return slotId == null ? null : layout.findSlotById(slotId);
     }
-    
+
     /**
      * Check if floor has any occupied slots.
      */
     public boolean hasOccupiedSlots() {
-        for (Slot s : slotList) {
-            if (s.isOccupied()) return true;
+        return counters.occupiedAll() > 0;
+    }
+
+    /**
+     * Recount every slot and check that the incremental counters and the
+     * free-slot index agree with it.
+     * @return true if counters and index are consistent with the slot list
+     */
+    public boolean verifyCounters() {
+        OccupancyCounters recount = recountSlots();
+        if (!recount.matches(counters)) {
+            return false;
+        }
+        for (VehicleType type : VehicleType.values()) {
+            if (freeSlots.get(type).cardinality() != recount.available(type)) {
+                return false;
+            }
         }
-        return false;
+        return true;
     }
-    
+
     /**
-     * Get availability summary for display board.
+     * Build a fresh set of counters from a full scan of the slot list.
+     */
+    OccupancyCounters recountSlots() {
+        OccupancyCounters recount = new OccupancyCounters();
+        for (Slot s : layout.getSlots()) {
+            recount.apply(s.getVehicleType(), s.isOccupied(), s.isReserved(), 1);
+        }
+        return recount;
+    }
+
+    /**
+     * Get availability summary for display board. The text is cached until
+     * the floor's state version changes.
      */
     public String getAvailabilitySummary() {
+        FrameCache frame = summaryFrame;
+        if (frame == null) {
+            // Built here rather than in the constructor, which must not hand out 'this'
+            frame = new FrameCache(this::getStateVersion, this::renderAvailabilitySummary);
+            summaryFrame = frame;
+        }
+        return frame.get();
+    }
+
+    private String renderAvailabilitySummary() {
         StringBuilder sb = new StringBuilder();
         sb.append(String.format("Floor %d: ", floorNumber));
-        
+
         for (VehicleType type : VehicleType.values()) {
             int available = countAvailableSlotsByType(type);
             int total = countSlotsByType(type);
             sb.append(String.format("%s: %d/%d  ", type.getCode() + "W", available, total));
         }
-        
+
         return sb.toString();
     }
-    
+
     @Override
     public String toString() {
-        return String.format("Floor[%d | Total: %d | Available: %d | Occupied: %d]", 
+        return String.format("Floor[%d | Total: %d | Available: %d | Occupied: %d]",
             floorNumber, getTotalSlots(), getAvailableSlots(), getOccupiedSlots());
     }
 }
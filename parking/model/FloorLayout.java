@@ -0,0 +1,117 @@
+package com.parking.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, versioned snapshot of the slots on a floor.
+ * Admin operations build the next layout off to the side and the floor
+ * publishes it with a single reference swap, so gates reading a layout never
+ * block and never see a half-applied change. Slot positions are stable across
+ * versions: removed slots leave an empty position and new slots are appended.
+ */
+public final class FloorLayout {
+
+    private final long version;
+    private final Slot[] positions;             // Stable position -> slot, null where removed
+    private final List<Slot> slots;             // Live slots in display order
+    private final Map<String, Slot> slotsById;
+
+    private FloorLayout(long version, Slot[] positions) {
+        this.version = version;
+        this.positions = positions;
+        List<Slot> live = new ArrayList<>(positions.length);
+        Map<String, Slot> byId = new HashMap<>();
+        for (Slot slot : positions) {
+            if (slot != null) {
+                live.add(slot);
+                byId.putIfAbsent(slot.getSlotId(), slot);
+            }
+        }
+        this.slots = Collections.unmodifiableList(live);
+        this.slotsById = byId;
+    }
+
+    private FloorLayout(FloorLayout previous) {
+        this.version = previous.version + 1;
+        this.positions = previous.positions;
+        this.slots = previous.slots;
+        this.slotsById = previous.slotsById;
+    }
+
+    static FloorLayout empty() {
+        return new FloorLayout(0, new Slot[0]);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the live slots in display order.
+     */
+    public List<Slot> getSlots() {
+        return slots;
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    public Slot findSlotById(String slotId) {
+        return slotsById.get(slotId);
+    }
+
+    /**
+     * Get the slot at a stable position, or null if that position is empty
+     * or was added in a later version.
+     */
+    Slot slotAt(int position) {
+        return position < positions.length ? positions[position] : null;
+    }
+
+    /**
+     * Number of positions ever allocated, including removed ones.
+     */
+    int capacity() {
+        return positions.length;
+    }
+
+    /**
+     * Build the next version with the given slots appended at new positions.
+     */
+    FloorLayout withAdded(List<Slot> added) {
+        Slot[] next = new Slot[positions.length + added.size()];
+        System.arraycopy(positions, 0, next, 0, positions.length);
+        for (int i = 0; i < added.size(); i++) {
+            next[positions.length + i] = added.get(i);
+        }
+        return new FloorLayout(version + 1, next);
+    }
+
+    /**
+     * Build the next version with the given slots' positions emptied.
+     */
+    FloorLayout withRemoved(Collection<Slot> removed) {
+        Slot[] next = positions.clone();
+        for (Slot slot : removed) {
+            int position = slot.getPosition();
+            if (position >= 0 && position < next.length && next[position] == slot) {
+                next[position] = null;
+            }
+        }
+        return new FloorLayout(version + 1, next);
+    }
+
+    /**
+     * Build the next version with the same slots, after in-place slot changes
+     * such as a type conversion.
+     */
+    FloorLayout nextVersion() {
+        return new FloorLayout(this);
+    }
+}
@@ -0,0 +1,110 @@
+package com.parking.model;
+
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A rendered text frame cached against a state version, such as
+ * {@link ParkingLot#getStateVersion()}.
+ *
+ * While the version is unchanged, {@link #get()} and {@link #writeTo} hand
+ * back the same frame without formatting or allocating. When it moves on,
+ * the next caller renders a new frame; with a maximum refresh rate set,
+ * changes that arrive faster than that (an exit-gate burst, say) are
+ * coalesced and callers keep seeing the previous frame until the interval
+ * has passed.
+ */
+public final class FrameCache {
+
+    private final LongSupplier version;
+    private final Supplier<String> renderer;
+    private volatile long minIntervalNanos;
+    private volatile Frame frame;
+
+    public FrameCache(LongSupplier version, Supplier<String> renderer) {
+        this(version, renderer, 0);
+    }
+
+    /**
+     * @param maxFramesPerSecond Most new frames to render per second, or 0 for no limit
+     */
+    public FrameCache(LongSupplier version, Supplier<String> renderer, int maxFramesPerSecond) {
+        this.version = version;
+        this.renderer = renderer;
+        setMaxFramesPerSecond(maxFramesPerSecond);
+    }
+
+    /**
+     * @param maxFramesPerSecond Most new frames to render per second, or 0 for no limit
+     */
+    public void setMaxFramesPerSecond(int maxFramesPerSecond) {
+        this.minIntervalNanos = maxFramesPerSecond > 0 ? 1_000_000_000L / maxFramesPerSecond : 0;
+    }
+
+    /**
+     * The current frame as text.
+     */
+    public String get() {
+        return current().text;
+    }
+
+    /**
+     * The current frame as UTF-8 bytes. The array is shared and must not be modified.
+     */
+    public byte[] bytes() {
+        return current().bytes;
+    }
+
+    /**
+     * Write the current frame's bytes to a stream.
+     */
+    public void writeTo(PrintStream out) {
+        byte[] bytes = current().bytes;
+        out.write(bytes, 0, bytes.length);
+        out.flush();
+    }
+
+    /**
+     * Render a new frame on the next request, whatever the version.
+     */
+    public void invalidate() {
+        frame = null;
+    }
+
+    private Frame current() {
+        Frame f = frame;
+        if (f != null && (f.version == version.getAsLong() || System.nanoTime() - f.renderedAt < minIntervalNanos)) {
+            return f;
+        }
+        synchronized (this) {
+            f = frame;
+            long v = version.getAsLong();
+            if (f != null && (f.version == v || System.nanoTime() - f.renderedAt < minIntervalNanos)) {
+                return f;
+            }
+            // Read the version before rendering: a change while rendering triggers another frame
+            String text = renderer.get();
+            // A renderer may hand back its previous text when nothing it shows changed
+            f = f != null && f.text == text ? new Frame(v, System.nanoTime(), text, f.bytes)
+                : new Frame(v, System.nanoTime(), text, text.getBytes(StandardCharsets.UTF_8));
+            frame = f;
+            return f;
+        }
+    }
+
+    private static final class Frame {
+        final long version;
+        final long renderedAt;
+        final String text;
+        final byte[] bytes;
+
+        Frame(long version, long renderedAt, String text, byte[] bytes) {
+            this.version = version;
+            this.renderedAt = renderedAt;
+            this.text = text;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.parking.model;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Per vehicle type slot counters (total, available, occupied, reserved).
+ * Kept current incrementally on every slot state change so count queries
+ * never have to walk the slot lists. Updates are atomic deltas, so gates on
+ * different threads can adjust the same counters without a lock.
+ */
+class OccupancyCounters {
+
+    private final AtomicIntegerArray total;
+    private final AtomicIntegerArray available;
+    private final AtomicIntegerArray occupied;
+    private final AtomicIntegerArray reserved;
+
+    OccupancyCounters() {
+        int types = VehicleType.values().length;
+        this.total = new AtomicIntegerArray(types);
+        this.available = new AtomicIntegerArray(types);
+        this.occupied = new AtomicIntegerArray(types);
+        this.reserved = new AtomicIntegerArray(types);
+    }
+
+    /**
+     * Add (sign = 1) or remove (sign = -1) one slot in the given state.
+     */
+    void apply(VehicleType type, boolean isOccupied, boolean isReserved, int sign) {
+        int t = type.ordinal();
+        total.addAndGet(t, sign);
+        if (isOccupied) {
+            occupied.addAndGet(t, sign);
+        } else if (!isReserved) {
+            available.addAndGet(t, sign);
+        }
+        if (isReserved) {
+            reserved.addAndGet(t, sign);
+        }
+    }
+
+    int total(VehicleType type) {
+        return total.get(type.ordinal());
+    }
+
+    int available(VehicleType type) {
+        return available.get(type.ordinal());
+    }
+
+    int occupied(VehicleType type) {
+        return occupied.get(type.ordinal());
+    }
+
+    int reserved(VehicleType type) {
+        return reserved.get(type.ordinal());
+    }
+
+    int totalAll() {
+        return sum(total);
+    }
+
+    int availableAll() {
+        return sum(available);
+    }
+
+    int occupiedAll() {
+        return sum(occupied);
+    }
+
+    boolean matches(OccupancyCounters other) {
+        for (int t = 0; t < total.length(); t++) {
+            if (total.get(t) != other.total.get(t) || available.get(t) != other.available.get(t)
+                    || occupied.get(t) != other.occupied.get(t) || reserved.get(t) != other.reserved.get(t)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int sum(AtomicIntegerArray values) {
+        int sum = 0;
+        for (int t = 0; t < values.length(); t++) {
+            sum += values.get(t);
+        }
+        return sum;
+    }
+}
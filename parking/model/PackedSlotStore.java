@@ -0,0 +1,254 @@
+package com.parking.model;
+
+import java.util.Arrays;
+
+/**
+ * Struct-of-arrays slot storage for very large deployments.
+ * Instead of one {@link Slot} object per slot, each slot is a handle (an int
+ * index) into parallel primitive arrays holding its type, state flags, floor
+ * number and slot number. Free slots are tracked in one word-packed bitmap per
+ * vehicle type, so allocation is a first-set-bit scan and counting is a tight
+ * loop over a byte array. {@link Slot} objects are only created on demand as
+ * read-only views.
+ *
+ * Slots are appended floor by floor, so handle order is nearest-first, the
+ * same order {@code NearestSlotStrategy} allocates in.
+ * This store is not thread-safe; callers serialize access to it.
+ */
+public class PackedSlotStore {
+
+    private static final byte OCCUPIED = 1;
+    private static final byte RESERVED = 2;
+    private static final VehicleType[] TYPES = VehicleType.values();
+
+    private byte[] types;
+    private byte[] idTypes;         // Type the slot was created with, which its ID is named after
+    private byte[] flags;
+    private int[] floorNumbers;
+    private int[] slotNumbers;
+    private long[][] freeBits;      // Per type: set bit = available slot handle
+    private int[] availableByType;
+    private int size;
+
+    public PackedSlotStore(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 64);
+        this.types = new byte[capacity];
+        this.idTypes = new byte[capacity];
+        this.flags = new byte[capacity];
+        this.floorNumbers = new int[capacity];
+        this.slotNumbers = new int[capacity];
+        this.freeBits = new long[TYPES.length][wordsFor(capacity)];
+        this.availableByType = new int[TYPES.length];
+    }
+
+    /**
+     * Add a floor with the given number of slots per type, numbered the same
+     * way as {@code AdminService.addFloors}.
+     * @return Handle of the first slot added
+     */
+    public int addFloor(int floorNumber, int twoW, int fourW, int sixW) {
+        int first = size;
+        addSlots(floorNumber, twoW, VehicleType.TWO_WHEELER);
+        addSlots(floorNumber, fourW, VehicleType.FOUR_WHEELER);
+        addSlots(floorNumber, sixW, VehicleType.SIX_WHEELER);
+        return first;
+    }
+
+    /**
+     * Add a single slot.
+     * @return The new slot's handle
+     */
+    public int addSlot(int floorNumber, int slotNumber, VehicleType type) {
+        ensureCapacity(size + 1);
+        int handle = size++;
+        types[handle] = (byte) type.ordinal();
+        idTypes[handle] = (byte) type.ordinal();
+        flags[handle] = 0;
+        floorNumbers[handle] = floorNumber;
+        slotNumbers[handle] = slotNumber;
+        setFree(type.ordinal(), handle);
+        availableByType[type.ordinal()]++;
+        return handle;
+    }
+
+    private void addSlots(int floorNumber, int count, VehicleType type) {
+        for (int i = 1; i <= count; i++) {
+            addSlot(floorNumber, i, type);
+        }
+    }
+
+    /**
+     * Claim the first available slot of a type.
+     * @return The claimed slot's handle, or -1 if none is available
+     */
+    public int claim(VehicleType type) {
+        int t = type.ordinal();
+        long[] bits = freeBits[t];
+        int words = wordsFor(size);
+        for (int w = 0; w < words; w++) {
+            long word = bits[w];
+            if (word != 0) {
+                int handle = (w << 6) + Long.numberOfTrailingZeros(word);
+                bits[w] = word & (word - 1);
+                flags[handle] |= OCCUPIED;
+                availableByType[t]--;
+                return handle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Release an occupied slot.
+     * @return true if the slot was occupied
+     */
+    public boolean release(int handle) {
+        if ((flags[handle] & OCCUPIED) == 0) {
+            return false;
+        }
+        flags[handle] &= ~OCCUPIED;
+        markIfAvailable(handle);
+        return true;
+    }
+
+    public void setReserved(int handle, boolean reserved) {
+        unmarkIfAvailable(handle);
+        flags[handle] = (byte) (reserved ? flags[handle] | RESERVED : flags[handle] & ~RESERVED);
+        markIfAvailable(handle);
+    }
+
+    /**
+     * Change the type of an empty slot.
+     * @return true if converted, false if the slot is occupied
+     */
+    public boolean convert(int handle, VehicleType type) {
+        if ((flags[handle] & OCCUPIED) != 0) {
+            return false;
+        }
+        unmarkIfAvailable(handle);
+        types[handle] = (byte) type.ordinal();
+        markIfAvailable(handle);
+        return true;
+    }
+
+    /**
+     * Count available slots of a type from the running counter.
+     */
+    public int getAvailableSlots(VehicleType type) {
+        return availableByType[type.ordinal()];
+    }
+
+    /**
+     * Count available slots of a type with a full scan of the state arrays.
+     */
+    public int countAvailableSlots(VehicleType type) {
+        byte t = (byte) type.ordinal();
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (types[i] == t && flags[i] == 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Count available slots of a type on one floor with a scan of the state arrays.
+     */
+    public int countAvailableSlots(int floorNumber, VehicleType type) {
+        byte t = (byte) type.ordinal();
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (floorNumbers[i] == floorNumber && types[i] == t && flags[i] == 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public VehicleType getVehicleType(int handle) {
+        return TYPES[types[handle]];
+    }
+
+    public boolean isOccupied(int handle) {
+        return (flags[handle] & OCCUPIED) != 0;
+    }
+
+    public boolean isReserved(int handle) {
+        return (flags[handle] & RESERVED) != 0;
+    }
+
+    public int getFloorNumber(int handle) {
+        return floorNumbers[handle];
+    }
+
+    public int getSlotNumber(int handle) {
+        return slotNumbers[handle];
+    }
+
+    /**
+     * Build a detached, read-only {@link Slot} view of a handle.
+     * The view is a snapshot; changing it does not change the store.
+     */
+    public Slot view(int handle) {
+        VehicleType type = getVehicleType(handle);
+        String slotId = "F" + floorNumbers[handle] + "-" + TYPES[idTypes[handle]].getCode() + "W-S" + slotNumbers[handle];
+        Slot slot = new Slot(slotId, type, floorNumbers[handle], slotNumbers[handle]);
+        if (isReserved(handle)) {
+            slot.setReserved(true);
+        }
+        if (isOccupied(handle)) {
+            slot.park();
+        }
+        return slot;
+    }
+
+    /**
+     * Approximate heap bytes used per slot by the backing arrays.
+     */
+    public static int bytesPerSlot() {
+        // type + ID type + flags + floor number + slot number + one free bit per type
+        return 1 + 1 + 1 + 4 + 4 + (TYPES.length + 7) / 8;
+    }
+
+    private void markIfAvailable(int handle) {
+        if (flags[handle] == 0) {
+            setFree(types[handle], handle);
+            availableByType[types[handle]]++;
+        }
+    }
+
+    private void unmarkIfAvailable(int handle) {
+        if (flags[handle] == 0) {
+            freeBits[types[handle]][handle >>> 6] &= ~(1L << handle);
+            availableByType[types[handle]]--;
+        }
+    }
+
+    private void setFree(int type, int handle) {
+        freeBits[type][handle >>> 6] |= 1L << handle;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= types.length) {
+            return;
+        }
+        int capacity = Math.max(required, types.length * 2);
+        types = Arrays.copyOf(types, capacity);
+        idTypes = Arrays.copyOf(idTypes, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        floorNumbers = Arrays.copyOf(floorNumbers, capacity);
+        slotNumbers = Arrays.copyOf(slotNumbers, capacity);
+        for (int t = 0; t < freeBits.length; t++) {
+            freeBits[t] = Arrays.copyOf(freeBits[t], wordsFor(capacity));
+        }
+    }
+
+    private static int wordsFor(int bits) {
+        return (bits + 63) >>> 6;
+    }
+}
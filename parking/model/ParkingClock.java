@@ -0,0 +1,70 @@
+package com.parking.model;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.TimeZone;
+
+/**
+ * Source of the current time for tickets, fees and revenue, in
+ * milliseconds since the epoch.
+ *
+ * The lot's clock is the system clock unless one is set with
+ * {@link ParkingLot#setClock}; simulations can run on an
+ * {@linkplain #accelerated accelerated} clock or a {@link VirtualClock}
+ * that only moves when told to. Calendar rules (hour of day, day of week,
+ * revenue days) read times in the system time zone.
+ */
+public abstract class ParkingClock {
+
+    private static final TimeZone ZONE = TimeZone.getDefault();
+    private static final ParkingClock SYSTEM = new ParkingClock() {
+        @Override
+        public long millis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    /**
+     * Current time in milliseconds since the epoch.
+     */
+    public abstract long millis();
+
+    public static ParkingClock system() {
+        return SYSTEM;
+    }
+
+    /**
+     * A clock that starts at the current time and runs {@code factor} times
+     * faster than the system clock, e.g. 60 for an hour per minute.
+     */
+    public static ParkingClock accelerated(double factor) {
+        if (!(factor > 0)) {
+            throw new IllegalArgumentException("Clock speed must be positive: " + factor);
+        }
+        long start = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        return new ParkingClock() {
+            @Override
+            public long millis() {
+                return start + (long) ((System.nanoTime() - startNanos) / 1_000_000.0 * factor);
+            }
+        };
+    }
+
+    /**
+     * Wall-clock milliseconds in the system time zone, for calendar
+     * arithmetic without allocating a date.
+     */
+    public static long toLocalMillis(long epochMillis) {
+        return epochMillis + ZONE.getOffset(epochMillis);
+    }
+
+    public static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    public static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
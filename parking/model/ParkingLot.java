@@ -1,27 +1,47 @@
 package com.parking.model;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ParkingLot {
     
-    private static ParkingLot instance;
+    private static volatile ParkingLot instance;
+    private static final int RECENT_ARCHIVED_TICKETS = 1024;
     
-    private String name;
-    private String address;
+    private volatile String name;
+    private volatile String address;
     private List<Floor> floors;
     private Map<String, Ticket> activeTickets;
-    private Map<String, Ticket> archivedTickets;
+    private Map<String, Ticket> activeTicketsByVehicle;  // Vehicle number -> active ticket
+    private RecentTickets archivedTickets;              // Most recent exits; older ones live in the archive
+    private volatile TicketArchive ticketArchive;        // Optional long-term store for closed tickets
     private Map<VehicleType, Double> hourlyRates;
-    private int maxCapacity;
+    private volatile int maxCapacity;
+    private Map<Integer, Floor> floorsByNumber;
+    private Map<String, Slot> slotsById;
+    private volatile SlotStateListener[] slotListeners = new SlotStateListener[0];
+    private final List<RateListener> rateListeners = new CopyOnWriteArrayList<>();
+    private volatile ParkingClock clock = ParkingClock.system();
+    private final AtomicLong stateVersion = new AtomicLong();   // Bumped on every change a status frame shows
+    private final FrameCache statusFrame;
     
     private ParkingLot() {
-        this.floors = new ArrayList<>();
-        this.activeTickets = new HashMap<>();
-        this.archivedTickets = new HashMap<>();
-        this.hourlyRates = new HashMap<>();
+        this.floors = new CopyOnWriteArrayList<>();
+        this.activeTickets = new ConcurrentHashMap<>();
+        this.activeTicketsByVehicle = new ConcurrentHashMap<>();
+        this.archivedTickets = new RecentTickets(RECENT_ARCHIVED_TICKETS);
+        this.hourlyRates = new ConcurrentHashMap<>();
+        this.floorsByNumber = new ConcurrentHashMap<>();
+        this.slotsById = new ConcurrentHashMap<>();
+        this.statusFrame = new FrameCache(this::getStateVersion, this::renderStatusSummary);
         
         // Initialize default hourly rates
         for (VehicleType type : VehicleType.values()) {
@@ -31,12 +51,20 @@ public class ParkingLot {
     
     /**
      * Get the singleton instance of ParkingLot.
+     * Gates call this on every operation, so the common path does not lock.
      */
-    public static synchronized ParkingLot getInstance() {
-        if (instance == null) {
-            instance = new ParkingLot();
+    public static ParkingLot getInstance() {
+        ParkingLot lot = instance;
+        if (lot == null) {
+            synchronized (ParkingLot.class) {
+                lot = instance;
+                if (lot == null) {
+                    lot = new ParkingLot();
+                    instance = lot;
+                }
+            }
         }
-        return instance;
+        return lot;
     }
     
     /**
@@ -49,6 +77,7 @@ public class ParkingLot {
     // Configuration methods
     public void setName(String name) {
         this.name = name;
+        stateVersion.incrementAndGet();
     }
     
     public void setAddress(String address) {
@@ -79,66 +108,283 @@ public class ParkingLot {
     // Floor management
     public void addFloor(Floor floor) {
         floors.add(floor);
+        floorsByNumber.putIfAbsent(floor.getFloorNumber(), floor);
+        floor.attachTo(this);
+        for (Slot slot : floor.getSlotList()) {
+            slotAdded(slot);
+        }
+        stateVersion.incrementAndGet();
     }
     
     public boolean removeFloor(int floorNumber) {
-        return floors.removeIf(f -> f.getFloorNumber() == floorNumber && !f.hasOccupiedSlots());
+        Floor floor = getFloor(floorNumber);
+        if (floor == null || !floor.markRemoved()) {
+            return false;
+        }
+        floors.remove(floor);
+        floorsByNumber.remove(floorNumber, floor);
+        floor.attachTo(null);
+        for (Slot slot : floor.getSlotList()) {
+            slotRemoved(slot);
+        }
+        stateVersion.incrementAndGet();
+        return true;
     }
     
-    public Floor getFloor(int floorNumber) {
-        for (Floor f : floors) {
-            if (f.getFloorNumber() == floorNumber) {
-                return f;
+    /**
+     * Called by an attached floor when a slot is added to it.
+     */
+    void slotAdded(Slot slot) {
+        slotsById.putIfAbsent(slot.getSlotId(), slot);
+        for (SlotStateListener listener : slotListeners) {
+            listener.slotAdded(slot);
+        }
+    }
+    
+    /**
+     * Called by an attached floor when a slot is removed from it.
+     */
+    void slotRemoved(Slot slot) {
+        slotsById.remove(slot.getSlotId(), slot);
+        for (SlotStateListener listener : slotListeners) {
+            listener.slotRemoved(slot);
+        }
+    }
+    
+    /**
+     * Called by an attached floor after one of its slots changes state.
+     */
+    void slotStateChanged(Slot slot, int previousState, int newState) {
+        for (SlotStateListener listener : slotListeners) {
+            listener.slotChanged(slot, previousState, newState);
+        }
+        // After the listeners, so a frame rendered at the new version includes what they recorded
+        stateVersion.incrementAndGet();
+    }
+    
+    /**
+     * Register a listener for slot changes. Gates read the listener array
+     * without locking, so registering is copy-on-write.
+     */
+    public synchronized void addSlotStateListener(SlotStateListener listener) {
+        SlotStateListener[] current = slotListeners;
+        SlotStateListener[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        slotListeners = updated;
+    }
+    
+    public synchronized void removeSlotStateListener(SlotStateListener listener) {
+        SlotStateListener[] current = slotListeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                SlotStateListener[] updated = new SlotStateListener[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                slotListeners = updated;
+                return;
             }
         }
-        return null;
+    }
+    
+    /**
+     * Called by an attached floor whenever one of its slot counts changes.
+     */
+    void slotCountsChanged() {
+        stateVersion.incrementAndGet();
+    }
+    
+    /**
+     * Called by an attached floor when slots are added or it opens or closes.
+     */
+    void floorChanged() {
+        stateVersion.incrementAndGet();
+    }
+    
+    /**
+     * A number that changes whenever the lot's name, floors or slot counts
+     * do. Rendered status frames are cached against it.
+     */
+    public long getStateVersion() {
+        return stateVersion.get();
+    }
+    
+    public Floor getFloor(int floorNumber) {
+        return floorsByNumber.get(floorNumber);
     }
     
     // Ticket management
-    public void addActiveTicket(Ticket ticket) {
+    
+    /**
+     * Register an active ticket. The vehicle number is claimed first, so two
+     * gates can never hold active tickets for the same vehicle.
+     * @return true if registered, false if the vehicle already has an active ticket
+     */
+    public boolean addActiveTicket(Ticket ticket) {
+        String vehicleNumber = ticket.getVehicleNumber();
+        if (vehicleNumber != null && activeTicketsByVehicle.putIfAbsent(vehicleNumber, ticket) != null) {
+            return false;
+        }
         activeTickets.put(ticket.getTicketId(), ticket);
+        return true;
+    }
+    
+    /**
+     * Drop an active ticket without archiving it, e.g. when its entry could
+     * not be recorded and the park is being rolled back.
+     * @return true if the ticket was active
+     */
+    public boolean removeActiveTicket(Ticket ticket) {
+        if (!activeTickets.remove(ticket.getTicketId(), ticket)) {
+            return false;
+        }
+        if (ticket.getVehicleNumber() != null) {
+            activeTicketsByVehicle.remove(ticket.getVehicleNumber(), ticket);
+        }
+        return true;
     }
     
     public Ticket getActiveTicket(String ticketId) {
         return activeTickets.get(ticketId);
     }
     
-    public void archiveTicket(String ticketId) {
+    /**
+     * Move a ticket from the active to the archived tickets.
+     * Only one caller can archive a given ticket.
+     * @return true if this call archived the ticket
+     */
+    public boolean archiveTicket(String ticketId) {
         Ticket ticket = activeTickets.remove(ticketId);
+        if (ticket == null) {
+            return false;
+        }
+        if (ticket.getVehicleNumber() != null) {
+            activeTicketsByVehicle.remove(ticket.getVehicleNumber(), ticket);
+        }
+        archivedTickets.add(ticket);
+        return true;
+    }
+    
+    /**
+     * Return a ticket taken by {@link #archiveTicket} to the active tickets,
+     * e.g. when its exit could not be recorded and is being rolled back.
+     */
+    public void unarchiveTicket(Ticket ticket) {
+        archivedTickets.remove(ticket);
+        if (ticket.getVehicleNumber() != null) {
+            activeTicketsByVehicle.putIfAbsent(ticket.getVehicleNumber(), ticket);
+        }
+        activeTickets.put(ticket.getTicketId(), ticket);
+    }
+    
+    /**
+     * Store a ticket in the archive once it has been closed, if an archive is set.
+     */
+    public void recordClosedTicket(Ticket ticket) {
+        TicketArchive archive = ticketArchive;
+        if (archive != null) {
+            archive.append(ticket);
+        }
+    }
+    
+    /**
+     * Set the clock that tickets, fees and revenue read the time from.
+     */
+    public void setClock(ParkingClock clock) {
+        this.clock = clock;
+    }
+    
+    public ParkingClock getClock() {
+        return clock;
+    }
+    
+    /**
+     * Set the long-term store for closed tickets.
+     * @param archive The archive, or null to keep only recent tickets
+     */
+    public void setTicketArchive(TicketArchive archive) {
+        this.ticketArchive = archive;
+    }
+    
+    /**
+     * Find a closed ticket, checking recent exits before the archive.
+     * @return The ticket, or null if it is not archived
+     */
+    public Ticket findArchivedTicket(String ticketId) {
+        Ticket ticket = archivedTickets.get(ticketId);
         if (ticket != null) {
-            archivedTickets.put(ticketId, ticket);
+            return ticket;
         }
+        TicketArchive archive = ticketArchive;
+        return archive == null ? null : archive.find(ticketId);
+    }
+    
+    /**
+     * Find closed tickets that exited in {@code [from, to)}, oldest exit first.
+     * Without an archive only recent exits are searched.
+     */
+    public List<Ticket> findArchivedTickets(LocalDateTime from, LocalDateTime to) {
+        TicketArchive archive = ticketArchive;
+        if (archive != null) {
+            return archive.findByExitTime(from, to);
+        }
+        List<Ticket> found = new ArrayList<>();
+        long fromMillis = ParkingClock.toEpochMillis(from);
+        long toMillis = ParkingClock.toEpochMillis(to);
+        for (Ticket ticket : archivedTickets.values()) {
+            if (ticket.hasExited() && ticket.getExitMillis() >= fromMillis && ticket.getExitMillis() < toMillis) {
+                found.add(ticket);
+            }
+        }
+        found.sort(Comparator.comparingLong(Ticket::getExitMillis));
+        return found;
     }
     
     public Map<String, Ticket> getActiveTickets() {
         return new HashMap<>(activeTickets);
     }
     
+    /**
+     * Number of active tickets, without copying them.
+     */
+    public int getActiveTicketCount() {
+        return activeTickets.size();
+    }
+    
     public boolean isVehicleParked(String vehicleNumber) {
-        for (Ticket ticket : activeTickets.values()) {
-            if (ticket.getVehicleNumber().equals(vehicleNumber) && ticket.isActive()) {
-                return true;
-            }
-        }
-        return false;
+        return findTicketByVehicle(vehicleNumber) != null;
     }
     
     public Ticket findTicketByVehicle(String vehicleNumber) {
-        for (Ticket ticket : activeTickets.values()) {
-            if (ticket.getVehicleNumber().equals(vehicleNumber) && ticket.isActive()) {
-                return ticket;
-            }
+        if (vehicleNumber == null) {
+            return null;
         }
-        return null;
+        Ticket ticket = activeTicketsByVehicle.get(vehicleNumber);
+        return ticket != null && ticket.isActive() ? ticket : null;
     }
     
     // Rate management
     public void setHourlyRate(VehicleType type, double rate) {
         hourlyRates.put(type, rate);
+        for (RateListener listener : rateListeners) {
+            listener.hourlyRateChanged(type, rate);
+        }
+    }
+    
+    /**
+     * Register a listener for hourly rate changes.
+     */
+    public void addRateListener(RateListener listener) {
+        rateListeners.add(listener);
+    }
+    
+    public void removeRateListener(RateListener listener) {
+        rateListeners.remove(listener);
     }
     
     public double getHourlyRate(VehicleType type) {
-        return hourlyRates.getOrDefault(type, type.getDefaultHourlyRate());
+        // No boxed default: fees are computed on every exit
+        Double rate = hourlyRates.get(type);
+        return rate != null ? rate : type.getDefaultHourlyRate();
     }
     
     public Map<VehicleType, Double> getAllHourlyRates() {
@@ -146,10 +392,13 @@ public class ParkingLot {
     }
     
     // Capacity calculations
+    // Lot totals are summed from the floors' own counters rather than kept in
+    // a lot-wide mirror, so a floor being added or removed while its slots
+    // change can never leave the lot's totals out of step with its floors.
     public int getTotalCapacity() {
         int total = 0;
         for (Floor floor : floors) {
-            total += floor.getTotalSlots();
+            total += floor.getCounters().totalAll();
         }
         return total;
     }
@@ -157,7 +406,7 @@ public class ParkingLot {
     public int getTotalAvailableSlots() {
         int available = 0;
         for (Floor floor : floors) {
-            available += floor.getAvailableSlots();
+            available += floor.getCounters().availableAll();
         }
         return available;
     }
@@ -165,28 +414,60 @@ public class ParkingLot {
     public int getTotalOccupiedSlots() {
         int occupied = 0;
         for (Floor floor : floors) {
-            occupied += floor.getOccupiedSlots();
+            occupied += floor.getCounters().occupiedAll();
         }
         return occupied;
     }
     
+    public int getTotalSlotsByType(VehicleType type) {
+        int total = 0;
+        for (Floor floor : floors) {
+            total += floor.getCounters().total(type);
+        }
+        return total;
+    }
+    
     public int getAvailableSlotsByType(VehicleType type) {
         int available = 0;
         for (Floor floor : floors) {
-            available += floor.countAvailableSlotsByType(type);
+            available += floor.getCounters().available(type);
         }
         return available;
     }
     
-    // Find slot
-    public Slot findSlotById(String slotId) {
+    public int getOccupiedSlotsByType(VehicleType type) {
+        int occupied = 0;
         for (Floor floor : floors) {
-            Slot slot = floor.findSlotById(slotId);
-            if (slot != null) {
-                return slot;
+            occupied += floor.getCounters().occupied(type);
+        }
+        return occupied;
+    }
+    
+    public int getReservedSlotsByType(VehicleType type) {
+        int reserved = 0;
+        for (Floor floor : floors) {
+            reserved += floor.getCounters().reserved(type);
+        }
+        return reserved;
+    }
+    
+    /**
+     * Recount every slot on every floor and check that the floor counters,
+     * which the lot totals are summed from, agree with it.
+     * @return true if all counters are consistent with a full recount
+     */
+    public boolean verifyCounters() {
+        for (Floor floor : floors) {
+            if (!floor.verifyCounters()) {
+                return false;
             }
         }
-        return null;
+        return true;
+    }
+    
+    // Find slot
+    public Slot findSlotById(String slotId) {
+        return slotId == null ? null : slotsById.get(slotId);
     }
     
     public boolean isFull() {
@@ -198,9 +479,14 @@ public class ParkingLot {
     }
     
     /**
-     * Get parking lot status summary.
+     * Get parking lot status summary. The text is rendered again only after
+     * the lot's state version has moved on.
      */
     public String getStatusSummary() {
+        return statusFrame.get();
+    }
+    
+    private String renderStatusSummary() {
         StringBuilder sb = new StringBuilder();
         sb.append("\n╔══════════════════════════════════════════════════════════╗\n");
         sb.append("║                    PARKING LOT STATUS                    ║\n");
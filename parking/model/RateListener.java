@@ -0,0 +1,15 @@
+package com.parking.model;
+
+/**
+ * Receives every change to a {@link ParkingLot}'s hourly rates, whether made
+ * by an admin, replayed from the journal or loaded from a snapshot.
+ *
+ * Listeners run on the thread that changed the rate and must not throw.
+ */
+public interface RateListener {
+
+    /**
+     * The hourly rate for a vehicle type was set.
+     */
+    void hourlyRateChanged(VehicleType type, double rate);
+}
@@ -0,0 +1,48 @@
+package com.parking.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size cache of the most recently archived tickets. Each new ticket
+ * takes the next position in a ring and evicts the ticket that held it, so
+ * the cache never grows however busy the lot is.
+ */
+final class RecentTickets {
+
+    private final AtomicReferenceArray<Ticket> ring;
+    private final AtomicLong next = new AtomicLong();
+    private final Map<String, Ticket> byId = new ConcurrentHashMap<>();
+
+    RecentTickets(int capacity) {
+        this.ring = new AtomicReferenceArray<>(capacity);
+    }
+
+    void add(Ticket ticket) {
+        byId.put(ticket.getTicketId(), ticket);
+        int position = (int) (next.getAndIncrement() % ring.length());
+        Ticket evicted = ring.getAndSet(position, ticket);
+        if (evicted != null) {
+            byId.remove(evicted.getTicketId(), evicted);
+        }
+    }
+
+    /**
+     * Forget a ticket. Its ring position is reused as usual.
+     */
+    void remove(Ticket ticket) {
+        byId.remove(ticket.getTicketId(), ticket);
+    }
+
+    Ticket get(String ticketId) {
+        return byId.get(ticketId);
+    }
+
+    List<Ticket> values() {
+        return new ArrayList<>(byId.values());
+    }
+}
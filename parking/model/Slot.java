@@ -1,28 +1,40 @@
 
 package com.parking.model;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Represents a parking slot in the parking lot.
  * Each slot can accommodate a specific vehicle type.
+ *
+ * The vehicle type, occupied flag and reserved flag are packed into a single
+ * atomic state word, so every transition is a compare-and-set and two gates
+ * can never claim the same slot. Admin removal and type conversion are
+ * compare-and-sets on the same word, so they never need to pause the gates.
  */
 public class Slot {
 
+    // State word layout: [type ordinal << 3 | RETIRED | RESERVED | OCCUPIED]
+    static final int OCCUPIED = 1;
+    static final int RESERVED = 2;
+    static final int RETIRED = 4;       // Removed from its floor, can never be claimed again
+    private static final int TYPE_SHIFT = 3;
+    private static final VehicleType[] TYPES = VehicleType.values();
+
     private String slotId;
-    private VehicleType vehicleType;
-    private boolean occupied;
-    private Vehicle parkedVehicle;
+    private final AtomicInteger state;
+    private volatile Vehicle parkedVehicle;
     private int floorNumber;
     private int slotNumber;
-    private boolean isReserved;
+    private volatile Floor floor;       // Owning floor, notified on every state change
+    private volatile int position = -1; // Stable index of this slot in the floor's free-slot index
 
     public Slot(String slotId, VehicleType vehicleType, int floorNumber, int slotNumber) {
         this.slotId = slotId;
-        this.vehicleType = vehicleType;
         this.floorNumber = floorNumber;
         this.slotNumber = slotNumber;
-        this.occupied = false;
+        this.state = new AtomicInteger(encode(vehicleType, false, false));
         this.parkedVehicle = null;
-        this.isReserved = false;
     }
 
     // Legacy constructor for backward compatibility
@@ -30,32 +42,59 @@ public class Slot {
         this(slotId, vehicleType, 0, 0);
     }
 
-    public String getSlotId() { 
-        return slotId; 
+    public String getSlotId() {
+        return slotId;
     }
-    
-    public VehicleType getVehicleType() { 
-        return vehicleType; 
+
+    public VehicleType getVehicleType() {
+        return typeOf(state.get());
     }
-    
-    public boolean isOccupied() { 
-        return occupied; 
+
+    public boolean isOccupied() {
+        return (state.get() & OCCUPIED) != 0;
     }
-    
+
     public Vehicle getParkedVehicle() {
         return parkedVehicle;
     }
-    
+
     public int getFloorNumber() {
         return floorNumber;
     }
-    
+
     public int getSlotNumber() {
         return slotNumber;
     }
-    
+
     public boolean isReserved() {
-        return isReserved;
+        return (state.get() & RESERVED) != 0;
+    }
+
+    int getPosition() {
+        return position;
+    }
+
+    /**
+     * The packed state word; decode it with the static helpers below.
+     */
+    public int getState() {
+        return state.get();
+    }
+
+    /**
+     * Attach this slot to a floor at the given index position.
+     */
+    void attach(Floor floor, int position) {
+        this.floor = floor;
+        this.position = position;
+    }
+
+    /**
+     * Detach this slot from its floor when it is removed.
+     */
+    void detach() {
+        this.floor = null;
+        this.position = -1;
     }
 
     /**
@@ -64,67 +103,169 @@ public class Slot {
      * @return true if parked successfully, false otherwise
      */
     public boolean park(Vehicle vehicle) {
-        if (occupied || vehicle == null) {
+        return claim(vehicle, false);
+    }
+
+    /**
+     * Atomically claim this slot for a vehicle.
+     * Unlike {@link #park(Vehicle)}, a reserved slot is never claimed.
+     * @param vehicle The vehicle to park
+     * @return true if this call won the slot, false if it was taken or not suitable
+     */
+    public boolean tryClaim(Vehicle vehicle) {
+        return claim(vehicle, true);
+    }
+
+    private boolean claim(Vehicle vehicle, boolean requireUnreserved) {
+        if (vehicle == null) {
             return false;
         }
-        if (vehicle.getVehicleType() != this.vehicleType) {
-            return false;
+        while (true) {
+            int current = state.get();
+            if ((current & (OCCUPIED | RETIRED)) != 0 || typeOf(current) != vehicle.getVehicleType()) {
+                return false;
+            }
+            if (requireUnreserved && (current & RESERVED) != 0) {
+                return false;
+            }
+            if (state.compareAndSet(current, current | OCCUPIED)) {
+                this.parkedVehicle = vehicle;
+                notifyFloor(current, current | OCCUPIED);
+                Floor owner = floor;
+                if (owner != null && owner.isRemoved()) {
+                    // The floor was taken out of service while we claimed; give the slot back
+                    unpark();
+                    return false;
+                }
+                return true;
+            }
         }
-        this.parkedVehicle = vehicle;
-        this.occupied = true;
-        return true;
     }
-    
+
     /**
      * Legacy park method for backward compatibility.
      */
-    public void park() { 
-        occupied = true; 
+    public void park() {
+        int previous = state.getAndUpdate(s -> s | OCCUPIED);
+        notifyFloor(previous, previous | OCCUPIED);
     }
-    
+
     /**
      * Unpark the vehicle from this slot.
      * @return The unparked vehicle, or null if slot was empty
      */
     public Vehicle unparkVehicle() {
-        if (!occupied) {
+        if (!isOccupied()) {
             return null;
         }
         Vehicle vehicle = this.parkedVehicle;
         this.parkedVehicle = null;
-        this.occupied = false;
+        int previous = state.getAndUpdate(s -> s & ~OCCUPIED);
+        if ((previous & OCCUPIED) == 0) {
+            return null;
+        }
+        notifyFloor(previous, previous & ~OCCUPIED);
         return vehicle;
     }
-    
+
     /**
      * Legacy unpark method for backward compatibility.
      */
-    public void unpark() { 
-        occupied = false;
+    public void unpark() {
         parkedVehicle = null;
+        int previous = state.getAndUpdate(s -> s & ~OCCUPIED);
+        notifyFloor(previous, previous & ~OCCUPIED);
     }
 
     public void setVehicleType(VehicleType type) {
-        if (!occupied) {
-            this.vehicleType = type;
+        convertTo(type);
+    }
+
+    /**
+     * Atomically change the vehicle type of an empty slot.
+     * @return true if converted, false if the slot is occupied or removed
+     */
+    boolean convertTo(VehicleType type) {
+        while (true) {
+            int current = state.get();
+            if ((current & (OCCUPIED | RETIRED)) != 0) {
+                return false;
+            }
+            int updated = encode(type, false, (current & RESERVED) != 0);
+            if (state.compareAndSet(current, updated)) {
+                notifyFloor(current, updated);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Atomically retire an empty slot so that no gate can claim it again.
+     * @return true if retired, false if the slot is occupied or already retired
+     */
+    boolean retire() {
+        while (true) {
+            int current = state.get();
+            if ((current & (OCCUPIED | RETIRED)) != 0) {
+                return false;
+            }
+            if (state.compareAndSet(current, current | RETIRED)) {
+                notifyFloor(current, current | RETIRED);
+                return true;
+            }
         }
     }
-    
+
     public void setReserved(boolean reserved) {
-        this.isReserved = reserved;
+        int previous = state.getAndUpdate(s -> reserved ? s | RESERVED : s & ~RESERVED);
+        notifyFloor(previous, reserved ? previous | RESERVED : previous & ~RESERVED);
     }
-    
+
     /**
      * Check if slot is available for parking.
      * @return true if slot is available
      */
     public boolean isAvailable() {
-        return !occupied && !isReserved;
+        return isAvailable(state.get());
+    }
+
+    /**
+     * Keep the owning floor's free-slot index and counters in sync after a state change.
+     */
+    private void notifyFloor(int previousState, int newState) {
+        Floor owner = floor;
+        if (owner != null && previousState != newState) {
+            owner.slotChanged(this, previousState, newState);
+        }
+    }
+
+    static int encode(VehicleType type, boolean occupied, boolean reserved) {
+        return (type.ordinal() << TYPE_SHIFT) | (occupied ? OCCUPIED : 0) | (reserved ? RESERVED : 0);
+    }
+
+    public static VehicleType typeOf(int state) {
+        return TYPES[state >>> TYPE_SHIFT];
+    }
+
+    public static boolean isOccupied(int state) {
+        return (state & OCCUPIED) != 0;
+    }
+
+    public static boolean isReserved(int state) {
+        return (state & RESERVED) != 0;
+    }
+
+    public static boolean isRetired(int state) {
+        return (state & RETIRED) != 0;
+    }
+
+    public static boolean isAvailable(int state) {
+        return (state & (OCCUPIED | RESERVED | RETIRED)) == 0;
     }
-    
+
     @Override
     public String toString() {
-        String status = occupied ? "OCCUPIED" : "AVAILABLE";
-        return String.format("Slot[%s | %s | %s]", slotId, vehicleType, status);
+        String status = isOccupied() ? "OCCUPIED" : "AVAILABLE";
+        return String.format("Slot[%s | %s | %s]", slotId, getVehicleType(), status);
     }
 }
@@ -0,0 +1,31 @@
+package com.parking.model;
+
+/**
+ * Receives every slot change in a {@link ParkingLot}: slots joining or
+ * leaving the lot, and changes to a slot's state word (type, occupancy,
+ * reservation, retirement). Decode state words with the static helpers on
+ * {@link Slot}.
+ *
+ * Listeners run on the thread that made the change, usually a gate, so they
+ * must be quick and must not throw.
+ */
+public interface SlotStateListener {
+
+    /**
+     * A slot became part of the lot, either with a new floor or added to an existing one.
+     */
+    void slotAdded(Slot slot);
+
+    /**
+     * A slot's state word changed.
+     * @param slot The slot that changed
+     * @param previousState The state word before the change
+     * @param newState The state word after the change
+     */
+    void slotChanged(Slot slot, int previousState, int newState);
+
+    /**
+     * A slot left the lot, either retired from its floor or with a removed floor.
+     */
+    void slotRemoved(Slot slot);
+}
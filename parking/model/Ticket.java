@@ -2,11 +2,12 @@
 package com.parking.model;
 
 import java.time.LocalDateTime;
-import java.time.Duration;
 
 /**
  * Represents a parking ticket issued when a vehicle is parked.
  * Contains all information needed for tracking and billing.
+ * Entry and exit times are kept as epoch millis, so tickets stay small and
+ * durations are plain arithmetic; "now" comes from the lot's clock.
  */
 public class Ticket {
 
@@ -14,17 +15,21 @@ public class Ticket {
         ACTIVE, PAID, EXITED, LOST
     }
 
+    private static final long NOT_EXITED = Long.MIN_VALUE;
+
     private String ticketId;
     private String vehicleNumber;
     private VehicleType vehicleType;
     private String slotId;
+    private Slot slot;          // Direct handle to the occupied slot, null for legacy tickets
     private int floorNumber;
-    private LocalDateTime entryTime;
-    private LocalDateTime exitTime;
+    private long entryMillis;
+    private long exitMillis = NOT_EXITED;
     private double fare;
     private TicketStatus status;
     private String entryGateId;
     private String exitGateId;
+    private double lockedHourlyRate = Double.NaN;  // Rate in force at entry, NaN if not locked
 
     public Ticket(String ticketId, String vehicleNumber, VehicleType vehicleType, String slotId, int floorNumber) {
         this.ticketId = ticketId;
@@ -32,16 +37,51 @@ public class Ticket {
         this.vehicleType = vehicleType;
         this.slotId = slotId;
         this.floorNumber = floorNumber;
-        this.entryTime = LocalDateTime.now();
+        this.entryMillis = now();
         this.status = TicketStatus.ACTIVE;
     }
     
+    /**
+     * Create a ticket that carries a direct handle to its slot, so the slot
+     * can be released on exit without searching for it.
+     */
+    public Ticket(String ticketId, String vehicleNumber, VehicleType vehicleType, Slot slot) {
+        this(ticketId, vehicleNumber, vehicleType, slot.getSlotId(), slot.getFloorNumber());
+        this.slot = slot;
+    }
+    
+    /**
+     * Create a ticket with a known entry time, e.g. from the service's clock or during recovery.
+     */
+    public Ticket(String ticketId, String vehicleNumber, VehicleType vehicleType, Slot slot, long entryMillis) {
+        this(ticketId, vehicleNumber, vehicleType, slot);
+        this.entryMillis = entryMillis;
+    }
+    
+    public Ticket(String ticketId, String vehicleNumber, VehicleType vehicleType, Slot slot, LocalDateTime entryTime) {
+        this(ticketId, vehicleNumber, vehicleType, slot, ParkingClock.toEpochMillis(entryTime));
+    }
+    
+    /**
+     * Re-create a ticket without a slot handle, e.g. when reading the archive.
+     */
+    public Ticket(String ticketId, String vehicleNumber, VehicleType vehicleType, String slotId, int floorNumber,
+                  long entryMillis) {
+        this(ticketId, vehicleNumber, vehicleType, slotId, floorNumber);
+        this.entryMillis = entryMillis;
+    }
+    
+    public Ticket(String ticketId, String vehicleNumber, VehicleType vehicleType, String slotId, int floorNumber,
+                  LocalDateTime entryTime) {
+        this(ticketId, vehicleNumber, vehicleType, slotId, floorNumber, ParkingClock.toEpochMillis(entryTime));
+    }
+    
     // Legacy constructor for backward compatibility
     public Ticket(String ticketId, String vehicleNumber, String slotId) {
         this.ticketId = ticketId;
         this.vehicleNumber = vehicleNumber;
         this.slotId = slotId;
-        this.entryTime = LocalDateTime.now();
+        this.entryMillis = now();
         this.status = TicketStatus.ACTIVE;
     }
 
@@ -62,16 +102,42 @@ public class Ticket {
         return slotId; 
     }
     
+    /**
+     * Get the slot this ticket occupies.
+     * @return The slot, or null if the ticket was created without a slot handle
+     */
+    public Slot getSlot() {
+        return slot;
+    }
+    
     public int getFloorNumber() {
         return floorNumber;
     }
     
     public LocalDateTime getEntryTime() { 
-        return entryTime; 
+        return ParkingClock.toLocalDateTime(entryMillis); 
     }
     
+    /**
+     * @return The exit time, or null if the vehicle has not left
+     */
     public LocalDateTime getExitTime() { 
-        return exitTime; 
+        return hasExited() ? ParkingClock.toLocalDateTime(exitMillis) : null; 
+    }
+    
+    public long getEntryMillis() {
+        return entryMillis;
+    }
+    
+    /**
+     * @return The exit time in epoch millis; only meaningful if {@link #hasExited()}
+     */
+    public long getExitMillis() {
+        return exitMillis;
+    }
+    
+    public boolean hasExited() {
+        return exitMillis != NOT_EXITED;
     }
     
     public double getFare() { 
@@ -90,6 +156,17 @@ public class Ticket {
         return exitGateId;
     }
     
+    /**
+     * Hourly rate locked at entry, or NaN if the ticket is charged at the current rates.
+     */
+    public double getLockedHourlyRate() {
+        return lockedHourlyRate;
+    }
+    
+    public boolean hasLockedRate() {
+        return !Double.isNaN(lockedHourlyRate);
+    }
+    
     // Setters
     public void setEntryGateId(String entryGateId) {
         this.entryGateId = entryGateId;
@@ -99,16 +176,34 @@ public class Ticket {
         this.exitGateId = exitGateId;
     }
 
+    /**
+     * Lock the hourly rate this ticket is charged at, whatever the rates are when it exits.
+     */
+    public void lockHourlyRate(double hourlyRate) {
+        this.lockedHourlyRate = hourlyRate;
+    }
+
     /**
      * Close the ticket when vehicle exits.
      * @param fare The calculated fare
      */
     public void closeTicket(double fare) {
-        this.exitTime = LocalDateTime.now();
+        closeTicket(fare, now());
+    }
+    
+    /**
+     * Close the ticket with a known exit time, e.g. from the service's clock or during recovery.
+     */
+    public void closeTicket(double fare, long exitMillis) {
+        this.exitMillis = exitMillis;
         this.fare = fare;
         this.status = TicketStatus.EXITED;
     }
     
+    public void closeTicket(double fare, LocalDateTime exitTime) {
+        closeTicket(fare, ParkingClock.toEpochMillis(exitTime));
+    }
+    
     /**
      * Mark ticket as lost (higher fare applies).
      */
@@ -117,21 +212,35 @@ public class Ticket {
     }
     
     /**
-     * Check if ticket is still active.
+     * Check if ticket is still active: its vehicle has not exited yet, even
+     * if the ticket was reported lost.
      */
     public boolean isActive() {
-        return status == TicketStatus.ACTIVE || status == TicketStatus.PAID;
+        return status != TicketStatus.EXITED;
+    }
+    
+    /**
+     * Check if the ticket was reported lost and its vehicle has not exited yet.
+     */
+    public boolean isLost() {
+        return status == TicketStatus.LOST;
     }
     
     /**
-     * Get parking duration in hours.
+     * Get parking duration in hours, up to the exit or the lot clock's current time.
      */
     public long getParkingDurationHours() {
-        LocalDateTime end = exitTime != null ? exitTime : LocalDateTime.now();
-        Duration duration = Duration.between(entryTime, end);
-        long hours = duration.toHours();
+        return getParkingDurationHours(hasExited() ? exitMillis : now());
+    }
+    
+    /**
+     * Get parking duration in hours, up to the exit or {@code nowMillis} if still parked.
+     */
+    public long getParkingDurationHours(long nowMillis) {
+        long minutes = getParkingDurationMinutes(nowMillis);
+        long hours = minutes / 60;
         // Minimum 1 hour, round up any partial hour
-        if (duration.toMinutes() % 60 > 0) {
+        if (minutes % 60 > 0) {
             hours++;
         }
         return Math.max(1, hours);
@@ -141,9 +250,12 @@ public class Ticket {
      * Get parking duration in minutes.
      */
     public long getParkingDurationMinutes() {
-        LocalDateTime end = exitTime != null ? exitTime : LocalDateTime.now();
-        Duration duration = Duration.between(entryTime, end);
-        return duration.toMinutes();
+        return getParkingDurationMinutes(hasExited() ? exitMillis : now());
+    }
+    
+    public long getParkingDurationMinutes(long nowMillis) {
+        long end = hasExited() ? exitMillis : nowMillis;
+        return (end - entryMillis) / 60_000;
     }
     
     /**
@@ -159,9 +271,12 @@ public class Ticket {
         sb.append(String.format("Vehicle Type  : %s\n", vehicleType));
         sb.append(String.format("Floor         : %d\n", floorNumber));
         sb.append(String.format("Slot          : %s\n", slotId));
-        sb.append(String.format("Entry Time    : %s\n", entryTime));
-        if (exitTime != null) {
-            sb.append(String.format("Exit Time     : %s\n", exitTime));
+        sb.append(String.format("Entry Time    : %s\n", getEntryTime()));
+        if (hasLockedRate()) {
+            sb.append(String.format("Rate          : Rs. %.2f/hour\n", lockedHourlyRate));
+        }
+        if (hasExited()) {
+            sb.append(String.format("Exit Time     : %s\n", getExitTime()));
             sb.append(String.format("Duration      : %d hours\n", getParkingDurationHours()));
             sb.append(String.format("Fare          : Rs. %.2f\n", fare));
         }
@@ -174,4 +289,8 @@ public class Ticket {
         return String.format("Ticket[%s | %s | %s | Status: %s]", 
             ticketId, vehicleNumber, slotId, status);
     }
+    
+    private static long now() {
+        return ParkingLot.getInstance().getClock().millis();
+    }
 }
@@ -0,0 +1,28 @@
+package com.parking.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Long-term store for closed tickets, kept outside the heap so that the
+ * {@link ParkingLot} only has to hold a small cache of recent exits.
+ */
+public interface TicketArchive {
+
+    /**
+     * Store a closed ticket. Storing the same ticket twice has no effect.
+     * @return false if the ticket could not be stored
+     */
+    boolean append(Ticket ticket);
+
+    /**
+     * Find an archived ticket by ID.
+     * @return A copy of the ticket, or null if it is not archived
+     */
+    Ticket find(String ticketId);
+
+    /**
+     * Find tickets that exited in {@code [from, to)}, oldest exit first.
+     */
+    List<Ticket> findByExitTime(LocalDateTime from, LocalDateTime to);
+}
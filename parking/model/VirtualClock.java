@@ -0,0 +1,42 @@
+package com.parking.model;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clock that stands still until it is moved, for simulations and for
+ * checking fees without waiting on wall time.
+ */
+public class VirtualClock extends ParkingClock {
+
+    private final AtomicLong now;
+
+    public VirtualClock(long epochMillis) {
+        this.now = new AtomicLong(epochMillis);
+    }
+
+    public VirtualClock(LocalDateTime time) {
+        this(toEpochMillis(time));
+    }
+
+    @Override
+    public long millis() {
+        return now.get();
+    }
+
+    public void set(long epochMillis) {
+        now.set(epochMillis);
+    }
+
+    /**
+     * Move the clock forward.
+     * @return The new time in epoch millis
+     */
+    public long advance(long millis) {
+        return now.addAndGet(millis);
+    }
+
+    public long advanceMinutes(long minutes) {
+        return advance(minutes * 60_000);
+    }
+}
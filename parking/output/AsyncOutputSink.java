@@ -0,0 +1,211 @@
+package com.parking.output;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sink that formats and writes messages on a background writer thread.
+ *
+ * Gates claim a slot in a fixed-size ring with one compare-and-set and
+ * return; the writer takes messages in the order they were claimed, formats
+ * them into a buffer and writes it to the target stream in batches. A gate
+ * never waits on the console: if the writer falls so far behind that the
+ * ring is full, the message is dropped and counted, and the writer reports
+ * the count with its next batch.
+ *
+ * Safe for concurrent use by any number of gate threads.
+ */
+public class AsyncOutputSink implements OutputSink {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+    private static final int WRITE_BATCH_BYTES = 64 * 1024;    // Write early rather than let the buffer grow
+    private static final long IDLE_PARK_NANOS = 10_000_000L;   // Upper bound on a missed wake-up
+
+    private final PrintStream target;
+    private final AtomicReferenceArray<Message> ring;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();     // Next sequence a gate claims
+    private volatile long head;                           // Next sequence the writer takes
+    private volatile long written;                        // Every sequence below this is on the target
+    private final AtomicLong dropped = new AtomicLong();
+    private long reportedDrops;                            // Only used by the writer
+    private volatile boolean writerWaiting;
+    private volatile boolean closed;
+    private final Batch batch = new Batch();
+    private final PrintStream batchOut;                   // Encodes as the target would
+    private final Thread writer;
+
+    /**
+     * Write to the stream that is {@code System.out} now, with the default capacity.
+     */
+    public AsyncOutputSink() {
+        this(System.out, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param target Stream to write to
+     * @param capacity Messages that may wait for the writer, rounded up to a power of two
+     */
+    public AsyncOutputSink(PrintStream target, int capacity) {
+        if (capacity < 1 || capacity > 1 << 24) {
+            throw new IllegalArgumentException("capacity must be between 1 and " + (1 << 24) + ": " + capacity);
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.target = target;
+        this.batchOut = new PrintStream(batch, false, target.charset());
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.writer = new Thread(this::runWriter, "output-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void print(Message message) {
+        if (message == null) {
+            return;
+        }
+        if (closed) {
+            // The writer is gone; late output goes straight through
+            synchronized (target) {
+                message.writeTo(target);
+            }
+            return;
+        }
+        long seq;
+        do {
+            seq = tail.get();
+            if (seq - head > mask) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!tail.compareAndSet(seq, seq + 1));
+        ring.set((int) seq & mask, message);
+        if (writerWaiting) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    @Override
+    public void println(String line) {
+        print(out -> out.println(line));
+    }
+
+    /**
+     * Wait until the messages sent before this call are on the target stream.
+     * Does not wait if called by the writer itself or after {@link #close()}.
+     */
+    @Override
+    public void flush() {
+        long until = tail.get();
+        while (written < until && writer.isAlive() && Thread.currentThread() != writer) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(100_000L);
+        }
+    }
+
+    /**
+     * Write what is queued and stop the writer. Output sent after this is
+     * written on the caller's thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        target.flush();
+    }
+
+    /**
+     * Messages dropped so far because the ring was full.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Messages waiting for the writer.
+     */
+    public int getQueuedCount() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    private void runWriter() {
+        while (true) {
+            long h = head;
+            int index = (int) h & mask;
+            Message message = ring.get(index);
+            if (message == null) {
+                // Nothing published at h: the ring is empty, or a gate has claimed h and is about to publish
+                writeBatch(h);
+                if (h == tail.get()) {
+                    if (closed) {
+                        return;
+                    }
+                    writerWaiting = true;
+                    if (h == tail.get() && !closed) {
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    }
+                    writerWaiting = false;
+                } else {
+                    Thread.onSpinWait();
+                }
+                continue;
+            }
+            // Free the slot before moving on, so a gate that claims it next finds it empty
+            ring.set(index, null);
+            head = h + 1;
+            try {
+                message.writeTo(batchOut);
+            } catch (RuntimeException e) {
+                batchOut.println("Error: Could not write output - " + e);
+            }
+            if (batch.size() >= WRITE_BATCH_BYTES) {
+                writeBatch(h + 1);
+            }
+        }
+    }
+
+    /**
+     * Write the buffered output, which covers every sequence below {@code through}.
+     */
+    private void writeBatch(long through) {
+        long lost = dropped.get() - reportedDrops;
+        if (lost > 0) {
+            reportedDrops += lost;
+            batchOut.println("Warning: " + lost + " output message(s) dropped, writer was behind");
+        }
+        if (batch.size() > 0) {
+            synchronized (target) {
+                batch.drainTo(target);
+                target.flush();
+            }
+        }
+        written = through;
+    }
+
+    /**
+     * Output buffer that is written out without copying.
+     */
+    private static final class Batch extends ByteArrayOutputStream {
+        Batch() {
+            super(WRITE_BATCH_BYTES);
+        }
+
+        void drainTo(PrintStream out) {
+            out.write(buf, 0, count);
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.parking.output;
+
+/**
+ * Synchronous sink that prints to {@code System.out}.
+ */
+final class ConsoleOutputSink implements OutputSink {
+
+    static final ConsoleOutputSink INSTANCE = new ConsoleOutputSink();
+
+    private ConsoleOutputSink() {
+    }
+
+    @Override
+    public void print(Message message) {
+        message.writeTo(System.out);
+    }
+
+    @Override
+    public void printNow(Message message) {
+        message.writeTo(System.out);
+    }
+
+    @Override
+    public void println(String line) {
+        System.out.println(line);
+    }
+
+    @Override
+    public void flush() {
+        System.out.flush();
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+}
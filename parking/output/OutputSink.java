@@ -0,0 +1,76 @@
+package com.parking.output;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Where gates and services send the text they show to operators: entry
+ * banners, receipts and error lines.
+ *
+ * Output is handed over as a {@link Message} that writes itself to a stream,
+ * so a sink decides when, where and on which thread the formatting happens.
+ * {@link #console()} formats and prints on the caller's thread, as the
+ * interactive application expects; {@link AsyncOutputSink} does both on a
+ * writer thread so gates never wait on the console; {@link #silent()}
+ * discards everything without formatting it, for headless nodes.
+ */
+public interface OutputSink {
+
+    /**
+     * Text to be written. Called at most once, possibly on another thread,
+     * so it should only read state that no longer changes, such as a closed
+     * ticket.
+     */
+    @FunctionalInterface
+    interface Message {
+        void writeTo(PrintStream out);
+    }
+
+    /**
+     * Send a message to the sink.
+     */
+    void print(Message message);
+
+    /**
+     * Send a line of text that is already built.
+     */
+    void println(String line);
+
+    /**
+     * Format a message on the caller's thread and send the text, for reports
+     * that read state still changing, such as slot occupancy or revenue.
+     */
+    default void printNow(Message message) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(buffer, false, StandardCharsets.UTF_8);
+        message.writeTo(out);
+        out.flush();
+        String text = buffer.toString(StandardCharsets.UTF_8);
+        print(o -> o.print(text));
+    }
+
+    /**
+     * Wait until everything sent so far has been written.
+     */
+    void flush();
+
+    /**
+     * Write what is outstanding and release the sink's resources.
+     */
+    void close();
+
+    /**
+     * Formats and prints on the caller's thread to whatever {@code System.out} is at the time.
+     */
+    static OutputSink console() {
+        return ConsoleOutputSink.INSTANCE;
+    }
+
+    /**
+     * Discards all output without formatting it.
+     */
+    static OutputSink silent() {
+        return SilentOutputSink.INSTANCE;
+    }
+}
@@ -0,0 +1,32 @@
+package com.parking.output;
+
+/**
+ * Sink that drops everything.
+ */
+final class SilentOutputSink implements OutputSink {
+
+    static final SilentOutputSink INSTANCE = new SilentOutputSink();
+
+    private SilentOutputSink() {
+    }
+
+    @Override
+    public void print(Message message) {
+    }
+
+    @Override
+    public void printNow(Message message) {
+    }
+
+    @Override
+    public void println(String line) {
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,13 @@
+package com.parking.persistence;
+
+/**
+ * How long {@link Journal#append} waits before an event counts as recorded.
+ */
+public enum DurabilityLevel {
+    /** Every append is written and forced to disk before it returns. */
+    SYNC,
+    /** Appends wait for a group commit that forces many events with one fsync. */
+    BATCHED,
+    /** Appends return at once; a background thread writes and forces periodically. */
+    ASYNC
+}
@@ -0,0 +1,380 @@
+package com.parking.persistence;
+
+import com.parking.exception.JournalException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary journal of parking lot events.
+ *
+ * Each record is {@code [int length][int crc32][long sequence][event body]},
+ * after an 8-byte file header. Sequence numbers increase by one per event and
+ * follow file order. Appends are queued in memory and written in batches, so
+ * with {@link DurabilityLevel#BATCHED} many gates share one fsync (group
+ * commit) instead of paying for one each.
+ *
+ * Safe for concurrent use by any number of gate and admin threads. Gates
+ * wait for a commit on {@code java.util.concurrent} locks rather than
+ * monitors, so a gate on a virtual thread releases its carrier while the
+ * batch is forced instead of pinning it.
+ */
+public class Journal implements Closeable {
+
+    static final int MAGIC = 0x504B4A31;            // "PKJ1"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    static final int RECORD_HEADER_BYTES = 8;       // length + crc32
+    static final int MAX_RECORD_BYTES = 1 << 20;
+
+    private static final long DEFAULT_BATCH_WINDOW_MICROS = 1_000;
+    private static final long DEFAULT_ASYNC_INTERVAL_MICROS = 50_000;
+    private static final int EARLY_FLUSH_BYTES = 256 * 1024;  // Flush without waiting out the window
+
+    private final Path path;
+    private final FileChannel channel;
+    private final DurabilityLevel durability;
+    private final long flushIntervalNanos;
+
+    private final Object appendLock = new Object();    // Guards pending and lastSequence
+    private final ReentrantLock flushLock = new ReentrantLock();    // Serializes writes to the channel
+    private final ReentrantLock durableLock = new ReentrantLock();  // Waiters for a group commit
+    private final Condition durable = durableLock.newCondition();
+    private List<ByteBuffer> pending = new ArrayList<>();
+    private int pendingBytes;
+    private long lastSequence;
+    private volatile long durableSequence;
+    private volatile IOException failure;
+    private volatile boolean closed;
+    private final Thread flusher;
+
+    private Journal(Path path, FileChannel channel, DurabilityLevel durability,
+                    long flushIntervalMicros, long lastSequence) {
+        this.path = path;
+        this.channel = channel;
+        this.durability = durability;
+        this.flushIntervalNanos = flushIntervalMicros * 1_000L;
+        this.lastSequence = lastSequence;
+        this.durableSequence = lastSequence;
+        if (durability == DurabilityLevel.SYNC) {
+            this.flusher = null;
+        } else {
+            this.flusher = new Thread(this::runFlusher, "journal-flusher");
+            this.flusher.setDaemon(true);
+            this.flusher.start();
+        }
+    }
+
+    /**
+     * Open a journal with the default flush interval for its durability level:
+     * a 1 ms group-commit window for BATCHED, 50 ms for ASYNC.
+     */
+    public static Journal open(Path path, DurabilityLevel durability) throws IOException {
+        return open(path, durability, defaultFlushIntervalMicros(durability), 0);
+    }
+
+    public static Journal open(Path path, DurabilityLevel durability, long flushIntervalMicros) throws IOException {
+        return open(path, durability, flushIntervalMicros, 0);
+    }
+
+    /**
+     * Open a journal for appending, creating it if needed. An existing journal
+     * is scanned and any torn record at its end is cut off, so new events
+     * continue the sequence of the last complete one.
+     *
+     * A snapshot can be labelled with a later sequence than the journal still
+     * holds, if the journal lost its tail after the snapshot was written.
+     * Passing that label as {@code afterSequence} numbers new events after it,
+     * so they are not mistaken for events the snapshot already contains.
+     * @param flushIntervalMicros Group-commit window for BATCHED, write interval for ASYNC
+     * @param afterSequence Lowest sequence to continue from, e.g. the recovered snapshot's
+     */
+    public static Journal open(Path path, DurabilityLevel durability, long flushIntervalMicros,
+                               long afterSequence) throws IOException {
+        long validLength = 0;
+        long lastSequence = 0;
+        if (path.toFile().length() > 0) {
+            try (JournalReader reader = new JournalReader(path)) {
+                reader.skipThrough(Long.MAX_VALUE);
+                while (reader.next() != null) {
+                    // Scan to the end of the valid records
+                }
+                validLength = reader.getValidLength();
+                lastSequence = reader.getLastSequence();
+            }
+        }
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (validLength < HEADER_BYTES) {
+                channel.truncate(0);
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(FORMAT_VERSION);
+                header.flip();
+                writeFully(channel, header, 0);
+                validLength = HEADER_BYTES;
+            } else {
+                channel.truncate(validLength);
+            }
+            channel.force(true);
+            channel.position(validLength);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new Journal(path, channel, durability, flushIntervalMicros, Math.max(lastSequence, afterSequence));
+    }
+
+    /**
+     * The flush interval {@link #open(Path, DurabilityLevel)} uses: a 1 ms
+     * group-commit window for BATCHED, 50 ms for ASYNC.
+     */
+    public static long defaultFlushIntervalMicros(DurabilityLevel durability) {
+        return durability == DurabilityLevel.ASYNC ? DEFAULT_ASYNC_INTERVAL_MICROS : DEFAULT_BATCH_WINDOW_MICROS;
+    }
+
+    /**
+     * Append an event, waiting as long as the durability level requires.
+     * @return The event's sequence number
+     * @throws JournalException if the journal is closed or a write has failed
+     */
+    public long append(JournalEvent event) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + 8 + event.maxEncodedSize());
+        long sequence;
+        synchronized (appendLock) {
+            // Checked under the lock so that close() flushes everything enqueued before it
+            checkUsable();
+            sequence = ++lastSequence;
+            record.position(RECORD_HEADER_BYTES);
+            record.putLong(sequence);
+            event.encode(record);
+            int length = record.position() - RECORD_HEADER_BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(record.array(), RECORD_HEADER_BYTES, length);
+            record.putInt(0, length);
+            record.putInt(4, (int) crc.getValue());
+            record.flip();
+            pending.add(record);
+            pendingBytes += record.remaining();
+            if (flusher != null) {
+                appendLock.notify();
+            }
+        }
+
+        switch (durability) {
+            case SYNC:
+                flush();
+                // Another gate's flush may have taken this record into a batch that failed
+                awaitDurable(sequence);
+                break;
+            case BATCHED:
+                awaitDurable(sequence);
+                break;
+            case ASYNC:
+                break;
+        }
+        return sequence;
+    }
+
+    /**
+     * Write every queued event and force it to disk.
+     * @throws JournalException if the write fails
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<ByteBuffer> batch;
+            long upTo;
+            synchronized (appendLock) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+                pendingBytes = 0;
+                upTo = lastSequence;
+            }
+            try {
+                ByteBuffer[] buffers = batch.toArray(new ByteBuffer[0]);
+                long remaining = 0;
+                for (ByteBuffer b : buffers) {
+                    remaining += b.remaining();
+                }
+                while (remaining > 0) {
+                    remaining -= channel.write(buffers);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                failure = e;
+                signalDurable();
+                throw new JournalException("Journal write failed: " + path, e);
+            }
+            durableSequence = upTo;
+            signalDurable();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Sequence number of the last event appended.
+     */
+    public long getLastSequence() {
+        synchronized (appendLock) {
+            return lastSequence;
+        }
+    }
+
+    /**
+     * Sequence number of the last event known to be forced to disk.
+     */
+    public long getDurableSequence() {
+        return durableSequence;
+    }
+
+    /**
+     * False once a write has failed or the journal has been closed.
+     */
+    public boolean isWritable() {
+        return failure == null && !closed;
+    }
+
+    public DurabilityLevel getDurability() {
+        return durability;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Read every valid event in a journal file, in order.
+     * @return Number of events read
+     */
+    public static long replay(Path path, Consumer<JournalReader.SequencedEvent> consumer) throws IOException {
+        long count = 0;
+        try (JournalReader reader = new JournalReader(path)) {
+            JournalReader.SequencedEvent next;
+            while ((next = reader.next()) != null) {
+                consumer.accept(next);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Flush outstanding events and close the file.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            appendLock.notify();
+        }
+        if (flusher != null) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            flush();
+        } finally {
+            signalDurable();
+            channel.close();
+        }
+    }
+
+    private void runFlusher() {
+        while (true) {
+            synchronized (appendLock) {
+                while (pending.isEmpty() && !closed) {
+                    try {
+                        appendLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+            }
+            // Give other gates a moment to join this batch
+            long deadline = System.nanoTime() + flushIntervalNanos;
+            while (System.nanoTime() < deadline && pendingBytes() < EARLY_FLUSH_BYTES && !closed) {
+                LockSupport.parkNanos(deadline - System.nanoTime());
+            }
+            try {
+                flush();
+            } catch (JournalException e) {
+                return;
+            }
+        }
+    }
+
+    private int pendingBytes() {
+        synchronized (appendLock) {
+            return pendingBytes;
+        }
+    }
+
+    private void awaitDurable(long sequence) {
+        durableLock.lock();
+        try {
+            while (durableSequence < sequence) {
+                IOException writeFailure = failure;
+                if (writeFailure != null) {
+                    throw new JournalException("Journal write failed: " + path, writeFailure);
+                }
+                try {
+                    durable.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new JournalException("Interrupted waiting for journal commit: " + path, e);
+                }
+            }
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    private void signalDurable() {
+        durableLock.lock();
+        try {
+            durable.signalAll();
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    private void checkUsable() {
+        IOException e = failure;
+        if (e != null) {
+            throw new JournalException("Journal write failed earlier: " + path, e);
+        }
+        if (closed) {
+            throw new JournalException("Journal is closed: " + path);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            position += channel.write(buf, position);
+        }
+    }
+}
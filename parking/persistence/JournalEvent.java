@@ -0,0 +1,407 @@
+package com.parking.persistence;
+
+import com.parking.model.Ticket;
+import com.parking.model.VehicleType;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A single state change recorded in the {@link Journal}.
+ * Events are immutable; each type uses only the fields it needs and leaves
+ * the others at their defaults.
+ */
+public final class JournalEvent {
+
+    public enum Type {
+        PARK(1), UNPARK(2), LOST_TICKET(3), RESERVE(4), RATE_CHANGE(5),
+        FLOOR_ADDED(6), FLOOR_REMOVED(7), SLOTS_ADDED(8), SLOTS_REMOVED(9), SLOTS_CONVERTED(10);
+
+        private final byte code;
+
+        Type(int code) {
+            this.code = (byte) code;
+        }
+
+        public byte getCode() {
+            return code;
+        }
+
+        public static Type fromCode(byte code) {
+            for (Type t : values()) {
+                if (t.code == code) return t;
+            }
+            return null;
+        }
+    }
+
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+
+    private final Type type;
+    private final long timestamp;       // Epoch millis when the event was created
+    private String ticketId;
+    private String vehicleNumber;
+    private VehicleType vehicleType;
+    private String slotId;
+    private int floorNumber;
+    private long time;                  // Entry or exit time in epoch millis
+    private double amount;              // Fare or hourly rate
+    private boolean reserved;
+    private int[] counts = new int[0];  // Slot counts or slot numbers, by event type
+    private List<String> slotIds = Collections.emptyList();
+
+    private JournalEvent(Type type, long timestamp) {
+        this.type = type;
+        this.timestamp = timestamp;
+    }
+
+    private static JournalEvent create(Type type) {
+        return new JournalEvent(type, System.currentTimeMillis());
+    }
+
+    /**
+     * A vehicle was parked and issued a ticket.
+     */
+    public static JournalEvent park(Ticket ticket) {
+        JournalEvent e = create(Type.PARK);
+        e.ticketId = ticket.getTicketId();
+        e.vehicleNumber = ticket.getVehicleNumber();
+        e.vehicleType = ticket.getVehicleType();
+        e.slotId = ticket.getSlotId();
+        e.floorNumber = ticket.getFloorNumber();
+        e.time = ticket.getEntryMillis();
+        e.amount = ticket.getLockedHourlyRate();
+        return e;
+    }
+
+    /**
+     * A ticket was closed and its vehicle left.
+     */
+    public static JournalEvent unpark(Ticket ticket) {
+        return unpark(ticket, ticket.getFare(), ticket.getExitMillis());
+    }
+
+    /**
+     * A ticket is being closed with this fare and exit time, recorded before the ticket itself is closed.
+     */
+    public static JournalEvent unpark(Ticket ticket, double fare, long exitMillis) {
+        JournalEvent e = create(Type.UNPARK);
+        e.ticketId = ticket.getTicketId();
+        e.slotId = ticket.getSlotId();
+        e.time = exitMillis;
+        e.amount = fare;
+        return e;
+    }
+
+    /**
+     * A ticket was reported lost.
+     */
+    public static JournalEvent lostTicket(Ticket ticket) {
+        JournalEvent e = create(Type.LOST_TICKET);
+        e.ticketId = ticket.getTicketId();
+        e.vehicleNumber = ticket.getVehicleNumber();
+        return e;
+    }
+
+    public static JournalEvent reserve(String slotId, boolean reserved) {
+        JournalEvent e = create(Type.RESERVE);
+        e.slotId = slotId;
+        e.reserved = reserved;
+        return e;
+    }
+
+    public static JournalEvent rateChange(VehicleType vehicleType, double rate) {
+        JournalEvent e = create(Type.RATE_CHANGE);
+        e.vehicleType = vehicleType;
+        e.amount = rate;
+        return e;
+    }
+
+    /**
+     * A floor was added with the standard slot numbering of {@code AdminService.addFloors}.
+     */
+    public static JournalEvent floorAdded(int floorNumber, int twoW, int fourW, int sixW) {
+        JournalEvent e = create(Type.FLOOR_ADDED);
+        e.floorNumber = floorNumber;
+        e.counts = new int[] {twoW, fourW, sixW};
+        return e;
+    }
+
+    public static JournalEvent floorRemoved(int floorNumber) {
+        JournalEvent e = create(Type.FLOOR_REMOVED);
+        e.floorNumber = floorNumber;
+        return e;
+    }
+
+    /**
+     * Slots numbered {@code firstSlotNumber} onwards were added to a floor.
+     */
+    public static JournalEvent slotsAdded(int floorNumber, VehicleType vehicleType, int firstSlotNumber, int count) {
+        JournalEvent e = create(Type.SLOTS_ADDED);
+        e.floorNumber = floorNumber;
+        e.vehicleType = vehicleType;
+        e.counts = new int[] {firstSlotNumber, count};
+        return e;
+    }
+
+    public static JournalEvent slotsRemoved(int floorNumber, List<String> slotIds) {
+        JournalEvent e = create(Type.SLOTS_REMOVED);
+        e.floorNumber = floorNumber;
+        e.slotIds = List.copyOf(slotIds);
+        return e;
+    }
+
+    public static JournalEvent slotsConverted(int floorNumber, VehicleType toType, List<String> slotIds) {
+        JournalEvent e = create(Type.SLOTS_CONVERTED);
+        e.floorNumber = floorNumber;
+        e.vehicleType = toType;
+        e.slotIds = List.copyOf(slotIds);
+        return e;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getTicketId() {
+        return ticketId;
+    }
+
+    public String getVehicleNumber() {
+        return vehicleNumber;
+    }
+
+    public VehicleType getVehicleType() {
+        return vehicleType;
+    }
+
+    public String getSlotId() {
+        return slotId;
+    }
+
+    public int getFloorNumber() {
+        return floorNumber;
+    }
+
+    /**
+     * Entry time for PARK, exit time for UNPARK, in epoch millis.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Fare for UNPARK, hourly rate for RATE_CHANGE, locked hourly rate for
+     * PARK (NaN if the ticket has none).
+     */
+    public double getAmount() {
+        return amount;
+    }
+
+    public boolean isReserved() {
+        return reserved;
+    }
+
+    /**
+     * Slot counts per type (2W, 4W, 6W) for FLOOR_ADDED; first slot number and
+     * count for SLOTS_ADDED.
+     */
+    public int[] getCounts() {
+        return counts.clone();
+    }
+
+    public List<String> getSlotIds() {
+        return slotIds;
+    }
+
+    /**
+     * Encode the event body: timestamp, type code and the fields its type uses.
+     */
+    void encode(ByteBuffer buf) {
+        buf.putLong(timestamp);
+        buf.put(type.code);
+        switch (type) {
+            case PARK:
+                putString(buf, ticketId);
+                putString(buf, vehicleNumber);
+                putType(buf, vehicleType);
+                putString(buf, slotId);
+                buf.putInt(floorNumber);
+                buf.putLong(time);
+                buf.putDouble(amount);
+                break;
+            case UNPARK:
+                putString(buf, ticketId);
+                putString(buf, slotId);
+                buf.putLong(time);
+                buf.putDouble(amount);
+                break;
+            case LOST_TICKET:
+                putString(buf, ticketId);
+                putString(buf, vehicleNumber);
+                break;
+            case RESERVE:
+                putString(buf, slotId);
+                buf.put((byte) (reserved ? 1 : 0));
+                break;
+            case RATE_CHANGE:
+                putType(buf, vehicleType);
+                buf.putDouble(amount);
+                break;
+            case FLOOR_ADDED:
+            case SLOTS_ADDED:
+                buf.putInt(floorNumber);
+                putType(buf, vehicleType);
+                putInts(buf, counts);
+                break;
+            case FLOOR_REMOVED:
+                buf.putInt(floorNumber);
+                break;
+            case SLOTS_REMOVED:
+            case SLOTS_CONVERTED:
+                buf.putInt(floorNumber);
+                putType(buf, vehicleType);
+                buf.putInt(slotIds.size());
+                for (String id : slotIds) {
+                    putString(buf, id);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Upper bound on the encoded size of this event's body.
+     */
+    int maxEncodedSize() {
+        int size = 8 + 1 + 4 + 1 + 8 + 8 + 1 + 4 + 4 * counts.length + 4;
+        size += maxStringSize(ticketId) + maxStringSize(vehicleNumber) + maxStringSize(slotId);
+        for (String id : slotIds) {
+            size += maxStringSize(id);
+        }
+        return size;
+    }
+
+    /**
+     * Decode an event body written by {@link #encode}.
+     * @return The event, or null if the type code is unknown
+     */
+    static JournalEvent decode(ByteBuffer buf) {
+        long timestamp = buf.getLong();
+        Type type = Type.fromCode(buf.get());
+        if (type == null) {
+            return null;
+        }
+        JournalEvent e = new JournalEvent(type, timestamp);
+        switch (type) {
+            case PARK:
+                e.ticketId = getString(buf);
+                e.vehicleNumber = getString(buf);
+                e.vehicleType = getType(buf);
+                e.slotId = getString(buf);
+                e.floorNumber = buf.getInt();
+                e.time = buf.getLong();
+                // Events journaled before rates were locked end here
+                e.amount = buf.remaining() >= 8 ? buf.getDouble() : Double.NaN;
+                break;
+            case UNPARK:
+                e.ticketId = getString(buf);
+                e.slotId = getString(buf);
+                e.time = buf.getLong();
+                e.amount = buf.getDouble();
+                break;
+            case LOST_TICKET:
+                e.ticketId = getString(buf);
+                e.vehicleNumber = getString(buf);
+                break;
+            case RESERVE:
+                e.slotId = getString(buf);
+                e.reserved = buf.get() != 0;
+                break;
+            case RATE_CHANGE:
+                e.vehicleType = getType(buf);
+                e.amount = buf.getDouble();
+                break;
+            case FLOOR_ADDED:
+            case SLOTS_ADDED:
+                e.floorNumber = buf.getInt();
+                e.vehicleType = getType(buf);
+                e.counts = getInts(buf);
+                break;
+            case FLOOR_REMOVED:
+                e.floorNumber = buf.getInt();
+                break;
+            case SLOTS_REMOVED:
+            case SLOTS_CONVERTED:
+                e.floorNumber = buf.getInt();
+                e.vehicleType = getType(buf);
+                int n = buf.getInt();
+                List<String> ids = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    ids.add(getString(buf));
+                }
+                e.slotIds = Collections.unmodifiableList(ids);
+                break;
+        }
+        return e;
+    }
+
+    private static void putString(ByteBuffer buf, String s) {
+        if (s == null) {
+            buf.putInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        buf.putInt(bytes.length);
+        buf.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int maxStringSize(String s) {
+        return 4 + (s == null ? 0 : s.length() * 3);
+    }
+
+    private static void putType(ByteBuffer buf, VehicleType vehicleType) {
+        buf.put((byte) (vehicleType == null ? -1 : vehicleType.ordinal()));
+    }
+
+    private static VehicleType getType(ByteBuffer buf) {
+        byte ordinal = buf.get();
+        return ordinal < 0 ? null : VEHICLE_TYPES[ordinal];
+    }
+
+    private static void putInts(ByteBuffer buf, int[] values) {
+        buf.putInt(values.length);
+        for (int v : values) {
+            buf.putInt(v);
+        }
+    }
+
+    private static int[] getInts(ByteBuffer buf) {
+        int[] values = new int[buf.getInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = buf.getInt();
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("JournalEvent[%s | ticket=%s | vehicle=%s | slot=%s | floor=%d]",
+            type, ticketId, vehicleNumber, slotId, floorNumber);
+    }
+}
@@ -0,0 +1,149 @@
+package com.parking.persistence;
+
+import com.parking.exception.JournalException;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+/**
+ * Sequential reader for a journal file.
+ * Reading stops at the first record that is incomplete or fails its checksum,
+ * which is what a crash in the middle of a write leaves behind; everything
+ * before it is returned and {@link #getValidLength()} marks where it ends.
+ */
+public class JournalReader implements Closeable {
+
+    private static final SequencedEvent SKIPPED = new SequencedEvent(0, null);
+
+    private final DataInputStream in;
+    private long validLength;
+    private long lastSequence;
+    private long skipThrough;
+    private boolean done;
+
+    public JournalReader(Path path) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16));
+        try {
+            if (in.readInt() != Journal.MAGIC) {
+                in.close();
+                throw new JournalException("Not a journal file: " + path);
+            }
+            int version = in.readInt();
+            if (version != Journal.FORMAT_VERSION) {
+                in.close();
+                throw new JournalException("Unsupported journal format version " + version + ": " + path);
+            }
+            validLength = Journal.HEADER_BYTES;
+        } catch (EOFException e) {
+            // Empty or truncated header: treat as an empty journal
+            done = true;
+        }
+    }
+
+    /**
+     * Skip records up to and including a sequence number. They are still
+     * checksummed but not decoded, e.g. when a snapshot already covers them.
+     */
+    public void skipThrough(long sequence) {
+        this.skipThrough = sequence;
+    }
+
+    /**
+     * Read the next complete record.
+     * @return The event with its sequence number, or null at the end of the valid journal
+     */
+    public SequencedEvent next() throws IOException {
+        SequencedEvent event;
+        do {
+            event = readRecord();
+        } while (event == SKIPPED);
+        return event;
+    }
+
+    private SequencedEvent readRecord() throws IOException {
+        if (done) {
+            return null;
+        }
+        try {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length < 8 || length > Journal.MAX_RECORD_BYTES) {
+                done = true;
+                return null;
+            }
+            byte[] record = new byte[length];
+            in.readFully(record);
+            CRC32 crc = new CRC32();
+            crc.update(record);
+            if ((int) crc.getValue() != checksum) {
+                done = true;
+                return null;
+            }
+            ByteBuffer buf = ByteBuffer.wrap(record);
+            long sequence = buf.getLong();
+            if (sequence <= skipThrough) {
+                validLength += Journal.RECORD_HEADER_BYTES + length;
+                lastSequence = sequence;
+                return SKIPPED;
+            }
+            JournalEvent event = JournalEvent.decode(buf);
+            if (event == null) {
+                done = true;
+                return null;
+            }
+            validLength += Journal.RECORD_HEADER_BYTES + length;
+            lastSequence = sequence;
+            return new SequencedEvent(sequence, event);
+        } catch (EOFException | RuntimeException e) {
+            // A torn or corrupt tail ends the journal
+            done = true;
+            return null;
+        }
+    }
+
+    /**
+     * Byte length of the journal up to the end of the last valid record read.
+     */
+    public long getValidLength() {
+        return validLength;
+    }
+
+    /**
+     * Sequence number of the last valid record read, or 0 if none.
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * A journal event together with the sequence number it was written with.
+     */
+    public static final class SequencedEvent {
+        private final long sequence;
+        private final JournalEvent event;
+
+        SequencedEvent(long sequence, JournalEvent event) {
+            this.sequence = sequence;
+            this.event = event;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public JournalEvent getEvent() {
+            return event;
+        }
+    }
+}
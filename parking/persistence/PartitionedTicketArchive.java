@@ -0,0 +1,196 @@
+package com.parking.persistence;
+
+import com.parking.model.ParkingClock;
+import com.parking.model.Ticket;
+import com.parking.model.TicketArchive;
+import com.parking.output.OutputSink;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Archive of closed tickets in one memory-mapped partition per exit day,
+ * named {@code tickets-<yyyy-MM-dd>.dat} with a sorted ID index in
+ * {@code tickets-<yyyy-MM-dd>.idx}.
+ *
+ * Only the day currently being written keeps an index on the heap. When
+ * exits move on to a new day, earlier partitions are sealed, which writes
+ * their index to disk; partitions of other days are only mapped when a
+ * lookup or scan needs them.
+ */
+public class PartitionedTicketArchive implements TicketArchive, Closeable {
+
+    private static final String PREFIX = "tickets-";
+    private static final String SUFFIX = ".dat";
+    private static final String INDEX_SUFFIX = ".idx";
+
+    private final Path directory;
+    private final ConcurrentSkipListSet<LocalDate> days = new ConcurrentSkipListSet<>();
+    private final ConcurrentSkipListMap<LocalDate, TicketArchivePartition> partitions = new ConcurrentSkipListMap<>();
+    private volatile LocalDate latestDay;
+    private volatile OutputSink output = OutputSink.console();
+
+    public PartitionedTicketArchive(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path p : stream) {
+                String name = p.getFileName().toString();
+                try {
+                    days.add(LocalDate.parse(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                } catch (DateTimeParseException e) {
+                    // Not a partition written by this archive
+                }
+            }
+        }
+        latestDay = days.isEmpty() ? null : days.last();
+    }
+
+    /**
+     * Set where errors writing or reading partitions are written.
+     * @param output The sink, or null to discard the output
+     */
+    public void setOutputSink(OutputSink output) {
+        this.output = output != null ? output : OutputSink.silent();
+    }
+
+    @Override
+    public boolean append(Ticket ticket) {
+        if (!ticket.hasExited()) {
+            output.println("Error: Ticket " + ticket.getTicketId() + " has not been closed.");
+            return false;
+        }
+        byte[] ticketId = bytes(ticket.getTicketId());
+        byte[] vehicleNumber = bytes(ticket.getVehicleNumber());
+        byte[] slotId = bytes(ticket.getSlotId());
+        byte[] entryGate = bytes(ticket.getEntryGateId());
+        byte[] exitGate = bytes(ticket.getExitGateId());
+        if (ticketId.length > TicketArchivePartition.MAX_ID_BYTES
+                || vehicleNumber.length > TicketArchivePartition.MAX_VEHICLE_NUMBER_BYTES
+                || slotId.length > TicketArchivePartition.MAX_ID_BYTES
+                || entryGate.length > TicketArchivePartition.MAX_GATE_BYTES
+                || exitGate.length > TicketArchivePartition.MAX_GATE_BYTES) {
+            output.println("Error: Ticket " + ticket.getTicketId() + " is too long for the archive.");
+            return false;
+        }
+        try {
+            LocalDate day = ticket.getExitTime().toLocalDate();
+            partition(day, true).append(ticket, ticketId, vehicleNumber, slotId, entryGate, exitGate);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            output.println("Error: Could not archive ticket " + ticket.getTicketId() + " - " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public Ticket find(String ticketId) {
+        // Newest days first: recent tickets are the ones looked up most
+        for (LocalDate day : days.descendingSet()) {
+            try {
+                Ticket ticket = partition(day, false).find(ticketId);
+                if (ticket != null) {
+                    return ticket;
+                }
+            } catch (IOException | RuntimeException e) {
+                output.println("Error: Could not read archive for " + day + " - " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<Ticket> findByExitTime(LocalDateTime from, LocalDateTime to) {
+        List<Ticket> found = new ArrayList<>();
+        if (!from.isBefore(to)) {
+            return found;
+        }
+        long fromMillis = ParkingClock.toEpochMillis(from);
+        long toMillis = ParkingClock.toEpochMillis(to);
+        for (LocalDate day : days.subSet(from.toLocalDate(), true, to.toLocalDate(), true)) {
+            try {
+                partition(day, false).scan(fromMillis, toMillis, found);
+            } catch (IOException | RuntimeException e) {
+                output.println("Error: Could not read archive for " + day + " - " + e.getMessage());
+            }
+        }
+        // Concurrent exits can be appended a few milliseconds out of order
+        found.sort(Comparator.comparingLong(Ticket::getExitMillis));
+        return found;
+    }
+
+    /**
+     * Force the partitions being written to disk.
+     */
+    public void checkpoint() {
+        for (TicketArchivePartition partition : partitions.values()) {
+            partition.force();
+        }
+    }
+
+    /**
+     * Seal every partition, writing their indexes.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        for (TicketArchivePartition partition : partitions.values()) {
+            partition.seal();
+        }
+        partitions.clear();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Number of days that have archived tickets.
+     */
+    public int getPartitionCount() {
+        return days.size();
+    }
+
+    private TicketArchivePartition partition(LocalDate day, boolean forAppend) throws IOException {
+        TicketArchivePartition partition = partitions.get(day);
+        if (partition != null && !(forAppend && isNewDay(day))) {
+            return partition;
+        }
+        synchronized (this) {
+            partition = partitions.get(day);
+            if (partition == null) {
+                partition = TicketArchivePartition.open(day, directory.resolve(PREFIX + day + SUFFIX),
+                    directory.resolve(PREFIX + day + INDEX_SUFFIX));
+                partitions.put(day, partition);
+                days.add(day);
+            }
+            if (forAppend && isNewDay(day)) {
+                // Exits have moved on to a new day: seal the days before it
+                for (TicketArchivePartition older : partitions.headMap(day).values()) {
+                    older.seal();
+                }
+                latestDay = day;
+            }
+            return partition;
+        }
+    }
+
+    private boolean isNewDay(LocalDate day) {
+        LocalDate latest = latestDay;
+        return latest == null || day.isAfter(latest);
+    }
+
+    private static byte[] bytes(String s) {
+        return s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,298 @@
+package com.parking.persistence;
+
+import com.parking.model.*;
+import com.parking.service.core.ParkingService;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rebuilds parking lot state after a restart: loads the newest valid snapshot
+ * and replays only the journal events written after it.
+ *
+ * Replay is idempotent, because a snapshot taken while gates were running may
+ * already contain some of the events that follow its sequence number: a park
+ * whose ticket is already active, a slot that already exists or a floor that
+ * is already gone is simply skipped.
+ */
+public class Recovery {
+
+    private final ParkingLot parkingLot;
+    private final ParkingService parkingService;
+
+    public Recovery(ParkingLot parkingLot, ParkingService parkingService) {
+        this.parkingLot = parkingLot;
+        this.parkingService = parkingService;
+    }
+
+    /**
+     * Recover into an empty lot.
+     * @param snapshotDirectory Directory of snapshots, or null to replay the whole journal
+     * @param journalPath The journal, which need not exist
+     */
+    public Result recover(Path snapshotDirectory, Path journalPath) throws IOException {
+        Result result = new Result();
+        long start = System.nanoTime();
+
+        Path snapshot = snapshotDirectory == null ? null : SnapshotStore.findLatest(snapshotDirectory);
+        if (snapshot != null) {
+            result.snapshot = snapshot;
+            result.snapshotSequence = Snapshot.load(snapshot, parkingLot, parkingService);
+            result.lastSequence = result.snapshotSequence;
+            result.slotsLoaded = parkingLot.getTotalCapacity();
+            result.ticketsLoaded = parkingLot.getActiveTickets().size();
+        }
+        long loaded = System.nanoTime();
+        result.snapshotMillis = (loaded - start) / 1_000_000;
+
+        if (journalPath != null && Files.exists(journalPath) && Files.size(journalPath) > 0) {
+            try (JournalReader reader = new JournalReader(journalPath)) {
+                reader.skipThrough(result.snapshotSequence);
+                JournalReader.SequencedEvent next;
+                while ((next = reader.next()) != null) {
+                    apply(next.getEvent());
+                    result.eventsReplayed++;
+                }
+                result.lastSequence = Math.max(reader.getLastSequence(), result.snapshotSequence);
+            }
+        }
+        result.replayMillis = (System.nanoTime() - loaded) / 1_000_000;
+        return result;
+    }
+
+    /**
+     * Apply one journal event to the lot, skipping it if its effect is already present.
+     * @return true if the event changed the lot
+     */
+    public boolean apply(JournalEvent event) {
+        switch (event.getType()) {
+            case PARK:
+                return applyPark(event);
+            case UNPARK:
+                return applyUnpark(event);
+            case LOST_TICKET: {
+                Ticket ticket = parkingLot.getActiveTicket(event.getTicketId());
+                if (ticket == null || ticket.getStatus() == Ticket.TicketStatus.LOST) {
+                    return false;
+                }
+                ticket.markAsLost();
+                return true;
+            }
+            case RESERVE: {
+                Slot slot = parkingLot.findSlotById(event.getSlotId());
+                if (slot == null || slot.isReserved() == event.isReserved()) {
+                    return false;
+                }
+                slot.setReserved(event.isReserved());
+                return true;
+            }
+            case RATE_CHANGE:
+                parkingLot.setHourlyRate(event.getVehicleType(), event.getAmount());
+                return true;
+            case FLOOR_ADDED:
+                return applyFloorAdded(event);
+            case FLOOR_REMOVED:
+                return parkingLot.removeFloor(event.getFloorNumber());
+            case SLOTS_ADDED:
+                return applySlotsAdded(event);
+            case SLOTS_REMOVED: {
+                Floor floor = parkingLot.getFloor(event.getFloorNumber());
+                if (floor == null) {
+                    return false;
+                }
+                List<Slot> slots = new ArrayList<>();
+                for (String id : event.getSlotIds()) {
+                    Slot slot = floor.findSlotById(id);
+                    if (slot != null) {
+                        slots.add(slot);
+                    }
+                }
+                return floor.removeSlots(slots) > 0;
+            }
+            case SLOTS_CONVERTED: {
+                Floor floor = parkingLot.getFloor(event.getFloorNumber());
+                if (floor == null) {
+                    return false;
+                }
+                boolean changed = false;
+                for (String id : event.getSlotIds()) {
+                    Slot slot = floor.findSlotById(id);
+                    if (slot != null && slot.getVehicleType() != event.getVehicleType()) {
+                        slot.setVehicleType(event.getVehicleType());
+                        changed = true;
+                    }
+                }
+                return changed;
+            }
+            default:
+                return false;
+        }
+    }
+
+    private boolean applyPark(JournalEvent event) {
+        if (parkingLot.getActiveTicket(event.getTicketId()) != null) {
+            return false;
+        }
+        advanceTicketCounter(event.getTicketId());
+        Ticket ticket = restoreTicket(parkingLot, event.getTicketId(), event.getVehicleNumber(),
+            event.getVehicleType(), event.getSlotId(), event.getTime());
+        if (ticket != null) {
+            ticket.lockHourlyRate(event.getAmount());
+        }
+        return ticket != null;
+    }
+
+    private boolean applyUnpark(JournalEvent event) {
+        Ticket ticket = parkingLot.getActiveTicket(event.getTicketId());
+        if (ticket == null || !parkingLot.archiveTicket(event.getTicketId())) {
+            return false;
+        }
+        ticket.closeTicket(event.getAmount(), event.getTime());
+        parkingLot.recordClosedTicket(ticket);
+        Slot slot = ticket.getSlot() != null ? ticket.getSlot() : parkingLot.findSlotById(ticket.getSlotId());
+        if (slot != null) {
+            slot.unpark();
+        }
+        return true;
+    }
+
+    private boolean applyFloorAdded(JournalEvent event) {
+        int floorNumber = event.getFloorNumber();
+        if (parkingLot.getFloor(floorNumber) != null) {
+            return false;
+        }
+        int[] counts = event.getCounts();
+        Floor floor = new Floor(floorNumber);
+        List<Slot> slots = new ArrayList<>();
+        addNumberedSlots(slots, floorNumber, VehicleType.TWO_WHEELER, 1, counts[0]);
+        addNumberedSlots(slots, floorNumber, VehicleType.FOUR_WHEELER, 1, counts[1]);
+        addNumberedSlots(slots, floorNumber, VehicleType.SIX_WHEELER, 1, counts[2]);
+        floor.addSlots(slots);
+        parkingLot.addFloor(floor);
+        return true;
+    }
+
+    private boolean applySlotsAdded(JournalEvent event) {
+        Floor floor = parkingLot.getFloor(event.getFloorNumber());
+        if (floor == null) {
+            return false;
+        }
+        int[] counts = event.getCounts();
+        List<Slot> candidates = new ArrayList<>();
+        addNumberedSlots(candidates, event.getFloorNumber(), event.getVehicleType(), counts[0], counts[1]);
+        List<Slot> missing = new ArrayList<>();
+        for (Slot slot : candidates) {
+            if (floor.findSlotById(slot.getSlotId()) == null) {
+                missing.add(slot);
+            }
+        }
+        floor.addSlots(missing);
+        return !missing.isEmpty();
+    }
+
+    /**
+     * Create slots with the same IDs and numbering as {@code AdminService}.
+     */
+    private static void addNumberedSlots(List<Slot> slots, int floorNumber, VehicleType type, int first, int count) {
+        for (int i = first; i < first + count; i++) {
+            String slotId = "F" + floorNumber + "-" + type.getCode() + "W-S" + i;
+            slots.add(new Slot(slotId, type, floorNumber, i));
+        }
+    }
+
+    private void advanceTicketCounter(String ticketId) {
+        int number = ticketNumber(ticketId);
+        if (number >= 0) {
+            parkingService.advanceTicketCounter(number + 1);
+        }
+    }
+
+    /**
+     * The counter value a ticket ID was issued with.
+     * @return The number, or -1 if the ID was not issued by {@code ParkingService}
+     */
+    static int ticketNumber(String ticketId) {
+        int marker = ticketId == null ? -1 : ticketId.lastIndexOf("-T");
+        if (marker < 0) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(ticketId.substring(marker + 2));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Re-create an active ticket and occupy its slot.
+     * @return The ticket, or null if its slot no longer exists or is taken
+     */
+    static Ticket restoreTicket(ParkingLot lot, String ticketId, String vehicleNumber, VehicleType type,
+                                String slotId, long entryMillis) {
+        Slot slot = lot.findSlotById(slotId);
+        if (slot == null || type == null) {
+            return null;
+        }
+        Vehicle vehicle = VehicleFactory.createVehicle(vehicleNumber, "Unknown", type);
+        if (!slot.park(vehicle)) {
+            return null;
+        }
+        Ticket ticket = new Ticket(ticketId, vehicleNumber, type, slot, entryMillis);
+        if (!lot.addActiveTicket(ticket)) {
+            slot.unpark();
+            return null;
+        }
+        return ticket;
+    }
+
+    /**
+     * What a recovery loaded and replayed, and how long each part took.
+     */
+    public static class Result {
+        Path snapshot;
+        long snapshotSequence;
+        long lastSequence;
+        int slotsLoaded;
+        int ticketsLoaded;
+        long eventsReplayed;
+        long snapshotMillis;
+        long replayMillis;
+
+        public Path getSnapshot() {
+            return snapshot;
+        }
+
+        public long getSnapshotSequence() {
+            return snapshotSequence;
+        }
+
+        public long getLastSequence() {
+            return lastSequence;
+        }
+
+        public long getEventsReplayed() {
+            return eventsReplayed;
+        }
+
+        public long getSnapshotMillis() {
+            return snapshotMillis;
+        }
+
+        public long getReplayMillis() {
+            return replayMillis;
+        }
+
+        public long getTotalMillis() {
+            return snapshotMillis + replayMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Recovery[snapshot=%s @%d | %d slots, %d tickets in %d ms | %d events replayed in %d ms]",
+                snapshot == null ? "none" : snapshot.getFileName(), snapshotSequence, slotsLoaded, ticketsLoaded,
+                snapshotMillis, eventsReplayed, replayMillis);
+        }
+    }
+}
@@ -0,0 +1,532 @@
+package com.parking.persistence;
+
+import com.parking.exception.JournalException;
+import com.parking.model.*;
+import com.parking.output.OutputSink;
+import com.parking.service.core.ParkingService;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memory-mapped mirror of every slot in the lot and the ticket parked in it.
+ *
+ * Each slot owns one fixed-width record, updated in place as the slot
+ * changes, so the file always holds the current layout and occupancy without
+ * a journal to replay. A restarted process maps the file and rebuilds floors,
+ * slots and active tickets in one sequential pass with {@link #load}.
+ *
+ * Writes land in the OS page cache, so they survive the process crashing;
+ * {@link #checkpoint()} forces them to disk for surviving a machine crash.
+ * Within a record the flags byte is written last when adding state and first
+ * when removing it, so a record torn by a crash never claims a half-written
+ * slot or ticket.
+ *
+ * Rates and the lot's name are not part of slot state; they still come from
+ * the journal or snapshots.
+ */
+public class SlotStateFile implements SlotStateListener, Closeable {
+
+    static final int MAGIC = 0x504B4D31;               // "PKM1"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int RECORD_BYTES = 128;
+    static final int RECORDS_PER_CHUNK = 1 << 15;      // 4 MB per mapping
+
+    // Header layout
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_RECORD_BYTES = 8;
+    private static final int H_RECORD_COUNT = 12;
+    private static final int H_NEXT_TICKET = 16;
+
+    // Record layout; strings are a length byte followed by UTF-8 bytes
+    private static final int R_FLAGS = 0;
+    private static final int R_TYPE = 1;
+    private static final int R_TICKET_TYPE = 2;
+    private static final int R_FLOOR = 4;
+    private static final int R_SLOT_NUMBER = 8;
+    private static final int R_LOCKED_RATE = 12;      // Paise per hour, if PRICED
+    private static final int R_ENTRY_TIME = 16;
+    private static final int R_SLOT_ID = 24;
+    private static final int R_TICKET_ID = 56;
+    private static final int R_VEHICLE_NUMBER = 88;
+    private static final int MAX_ID_BYTES = 31;
+    private static final int MAX_VEHICLE_NUMBER_BYTES = 39;
+
+    // Record flags
+    private static final int IN_USE = 1;
+    private static final int OCCUPIED = 2;
+    private static final int RESERVED = 4;
+    private static final int RETIRED = 8;
+    private static final int TICKET = 16;
+    private static final int LOST = 32;
+    private static final int PRICED = 64;
+    private static final int STATE_FLAGS = OCCUPIED | RESERVED | RETIRED;
+
+    private static final VehicleType[] TYPES = VehicleType.values();
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+    private final Map<Slot, Integer> records = new ConcurrentHashMap<>();  // Slot -> record index
+    private final Object allocLock = new Object();
+    private final ArrayDeque<Integer> freeRecords = new ArrayDeque<>();    // Guarded by allocLock
+    private int recordCount;                                                // Guarded by allocLock
+    private int nextTicketNumber;                                           // Guarded by header
+    private ParkingLot attachedTo;
+    private ScheduledExecutorService scheduler;
+    private volatile OutputSink output = OutputSink.console();
+
+    private SlotStateFile(Path path, FileChannel channel) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        boolean fresh = channel.size() < HEADER_BYTES;
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        if (fresh) {
+            header.putInt(H_MAGIC, MAGIC);
+            header.putInt(H_VERSION, FORMAT_VERSION);
+            header.putInt(H_RECORD_BYTES, RECORD_BYTES);
+            header.putInt(H_RECORD_COUNT, 0);
+            header.putInt(H_NEXT_TICKET, 0);
+        } else if (header.getInt(H_MAGIC) != MAGIC) {
+            throw new JournalException("Not a slot state file: " + path);
+        } else if (header.getInt(H_VERSION) != FORMAT_VERSION || header.getInt(H_RECORD_BYTES) != RECORD_BYTES) {
+            throw new JournalException("Unsupported slot state format version " + header.getInt(H_VERSION) + ": " + path);
+        }
+        this.recordCount = header.getInt(H_RECORD_COUNT);
+        this.nextTicketNumber = header.getInt(H_NEXT_TICKET);
+        if (recordCount > 0) {
+            ensureMapped(recordCount - 1);
+        }
+    }
+
+    /**
+     * Open or create a slot state file.
+     * @throws JournalException if the file exists but is not a slot state file
+     */
+    public static SlotStateFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new SlotStateFile(path, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Rebuild floors, slots and active tickets from the file into an empty
+     * lot, then mirror the lot from here on. A slot whose record was left
+     * occupied without a complete ticket comes back free. Only records that
+     * disagree with the restored lot are written, so a clean restart leaves
+     * the file untouched.
+     * @return Number of slots restored
+     */
+    public int load(ParkingLot lot, ParkingService service) {
+        int count;
+        synchronized (allocLock) {
+            count = recordCount;
+        }
+        Slot[] restored = new Slot[count];
+        Map<Integer, List<Slot>> slotsByFloor = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            MappedByteBuffer buf = chunk(i);
+            int base = offset(i);
+            int flags = buf.get(base + R_FLAGS);
+            if ((flags & IN_USE) == 0 || (flags & RETIRED) != 0) {
+                clear(buf, base);
+                synchronized (allocLock) {
+                    freeRecords.add(i);
+                }
+                continue;
+            }
+            int floorNumber = buf.getInt(base + R_FLOOR);
+            Slot slot = new Slot(getString(buf, base + R_SLOT_ID), TYPES[buf.get(base + R_TYPE)],
+                floorNumber, buf.getInt(base + R_SLOT_NUMBER));
+            if ((flags & RESERVED) != 0) {
+                slot.setReserved(true);
+            }
+            slotsByFloor.computeIfAbsent(floorNumber, n -> new ArrayList<>()).add(slot);
+            records.put(slot, i);
+            restored[i] = slot;
+        }
+        for (Map.Entry<Integer, List<Slot>> entry : slotsByFloor.entrySet()) {
+            Floor floor = new Floor(entry.getKey());
+            floor.addSlots(entry.getValue());
+            lot.addFloor(floor);
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (restored[i] == null) {
+                continue;
+            }
+            MappedByteBuffer buf = chunk(i);
+            int base = offset(i);
+            int flags = buf.get(base + R_FLAGS);
+            if ((flags & TICKET) == 0) {
+                continue;
+            }
+            Ticket ticket = Recovery.restoreTicket(lot, getString(buf, base + R_TICKET_ID),
+                getString(buf, base + R_VEHICLE_NUMBER), TYPES[buf.get(base + R_TICKET_TYPE)],
+                restored[i].getSlotId(), buf.getLong(base + R_ENTRY_TIME));
+            if (ticket == null) {
+                buf.put(base + R_FLAGS, (byte) (flags & ~(TICKET | LOST)));
+                continue;
+            }
+            if ((flags & LOST) != 0) {
+                ticket.markAsLost();
+            }
+            if ((flags & PRICED) != 0) {
+                ticket.lockHourlyRate(buf.getInt(base + R_LOCKED_RATE) / 100.0);
+            }
+        }
+        synchronized (header) {
+            service.advanceTicketCounter(nextTicketNumber);
+        }
+
+        // Records already match the restored slots, except those left occupied without a ticket
+        for (int i = 0; i < count; i++) {
+            Slot slot = restored[i];
+            if (slot != null && (chunk(i).get(offset(i) + R_FLAGS) & STATE_FLAGS) != stateFlags(slot.getState())) {
+                writeState(slot, i);
+            }
+        }
+        synchronized (this) {
+            lot.addSlotStateListener(this);
+            attachedTo = lot;
+        }
+        return records.size();
+    }
+
+    /**
+     * Set where errors from gate and checkpoint threads are written.
+     * @param output The sink, or null to discard the output
+     */
+    public void setOutputSink(OutputSink output) {
+        this.output = output != null ? output : OutputSink.silent();
+    }
+
+    /**
+     * Start mirroring a lot, adding records for the slots and active tickets
+     * it already has, e.g. after recovering it from the journal. Attaching
+     * again to the same lot only brings the records up to date.
+     */
+    public synchronized void attach(ParkingLot lot) {
+        if (attachedTo != lot) {
+            // Listen first, so a slot added meanwhile is not missed
+            lot.addSlotStateListener(this);
+            attachedTo = lot;
+        }
+        for (Floor floor : lot.getFloors()) {
+            for (Slot slot : floor.getSlotList()) {
+                slotAdded(slot);
+            }
+        }
+        for (Ticket ticket : lot.getActiveTickets().values()) {
+            if (ticket.getSlot() != null && records.containsKey(ticket.getSlot())) {
+                ticketIssued(ticket);
+            }
+        }
+    }
+
+    @Override
+    public void slotAdded(Slot slot) {
+        synchronized (slot) {
+            Integer index = records.get(slot);
+            if (index != null) {
+                writeState(slot, index);
+                return;
+            }
+            byte[] slotId = slot.getSlotId().getBytes(StandardCharsets.UTF_8);
+            if (slotId.length > MAX_ID_BYTES) {
+                output.println("Error: Slot ID too long for the slot state file - " + slot.getSlotId());
+                return;
+            }
+            int allocated = allocate();
+            if (allocated < 0) {
+                return;
+            }
+            MappedByteBuffer buf = chunk(allocated);
+            int base = offset(allocated);
+            buf.putInt(base + R_FLOOR, slot.getFloorNumber());
+            buf.putInt(base + R_SLOT_NUMBER, slot.getSlotNumber());
+            putString(buf, base + R_SLOT_ID, slotId);
+            records.put(slot, allocated);
+            writeState(slot, allocated);
+        }
+    }
+
+    @Override
+    public void slotChanged(Slot slot, int previousState, int newState) {
+        // Re-read the slot under its lock, so the last write always holds its latest state
+        synchronized (slot) {
+            Integer index = records.get(slot);
+            if (index != null) {
+                writeState(slot, index);
+            }
+        }
+    }
+
+    @Override
+    public void slotRemoved(Slot slot) {
+        Integer index;
+        synchronized (slot) {
+            index = records.remove(slot);
+            if (index == null) {
+                return;
+            }
+            clear(chunk(index), offset(index));
+        }
+        synchronized (allocLock) {
+            freeRecords.add(index);
+        }
+    }
+
+    /**
+     * Record a newly issued ticket in its slot's record.
+     * @return false if the ticket could not be recorded
+     */
+    public boolean ticketIssued(Ticket ticket) {
+        Slot slot = ticket.getSlot();
+        if (slot == null) {
+            return true;
+        }
+        byte[] ticketId = ticket.getTicketId().getBytes(StandardCharsets.UTF_8);
+        byte[] vehicleNumber = ticket.getVehicleNumber().getBytes(StandardCharsets.UTF_8);
+        if (ticketId.length > MAX_ID_BYTES || vehicleNumber.length > MAX_VEHICLE_NUMBER_BYTES) {
+            output.println("Error: Ticket " + ticket.getTicketId() + " is too long for the slot state file.");
+            return false;
+        }
+        synchronized (slot) {
+            Integer index = records.get(slot);
+            if (index == null) {
+                output.println("Error: Slot " + slot.getSlotId() + " is not in the slot state file.");
+                return false;
+            }
+            MappedByteBuffer buf = chunk(index);
+            int base = offset(index);
+            buf.put(base + R_TICKET_TYPE, (byte) ticket.getVehicleType().ordinal());
+            buf.putLong(base + R_ENTRY_TIME, ticket.getEntryMillis());
+            putString(buf, base + R_TICKET_ID, ticketId);
+            putString(buf, base + R_VEHICLE_NUMBER, vehicleNumber);
+            int priced = 0;
+            if (ticket.hasLockedRate()) {
+                buf.putInt(base + R_LOCKED_RATE, (int) Math.round(ticket.getLockedHourlyRate() * 100));
+                priced = PRICED;
+            }
+            int flags = buf.get(base + R_FLAGS) & ~(LOST | PRICED);
+            buf.put(base + R_FLAGS, (byte) (flags | TICKET | priced));
+        }
+
+        int number = Recovery.ticketNumber(ticket.getTicketId());
+        if (number >= 0) {
+            synchronized (header) {
+                if (number + 1 > nextTicketNumber) {
+                    nextTicketNumber = number + 1;
+                    header.putInt(H_NEXT_TICKET, nextTicketNumber);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Clear a closed ticket from its slot's record.
+     */
+    public void ticketClosed(Ticket ticket) {
+        updateTicketFlags(ticket, 0, TICKET | LOST);
+    }
+
+    /**
+     * Mark the ticket in its slot's record as lost.
+     */
+    public void ticketLost(Ticket ticket) {
+        updateTicketFlags(ticket, LOST, 0);
+    }
+
+    private void updateTicketFlags(Ticket ticket, int set, int clear) {
+        Slot slot = ticket.getSlot();
+        if (slot == null) {
+            return;
+        }
+        synchronized (slot) {
+            Integer index = records.get(slot);
+            if (index == null) {
+                return;
+            }
+            MappedByteBuffer buf = chunk(index);
+            int base = offset(index);
+            int flags = buf.get(base + R_FLAGS);
+            if ((flags & TICKET) != 0) {
+                buf.put(base + R_FLAGS, (byte) ((flags | set) & ~clear));
+            }
+        }
+    }
+
+    /**
+     * Force every change so far from the page cache to disk.
+     */
+    public void checkpoint() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+        header.force();
+    }
+
+    /**
+     * Checkpoint every {@code intervalSeconds} on a background thread.
+     */
+    public synchronized void start(long intervalSeconds) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "slot-state-checkpoint");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint();
+            } catch (RuntimeException e) {
+                output.println("Error: Slot state checkpoint failed - " + e.getMessage());
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop mirroring, checkpoint and close the file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+        if (attachedTo != null) {
+            attachedTo.removeSlotStateListener(this);
+            attachedTo = null;
+        }
+        checkpoint();
+        channel.close();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Number of slots currently mirrored.
+     */
+    public int getSlotCount() {
+        return records.size();
+    }
+
+    /**
+     * Copy the slot's current state into its record, keeping the ticket flags.
+     * The caller holds the slot's lock.
+     */
+    private void writeState(Slot slot, int index) {
+        int state = slot.getState();
+        MappedByteBuffer buf = chunk(index);
+        int base = offset(index);
+        buf.put(base + R_TYPE, (byte) Slot.typeOf(state).ordinal());
+        int flags = buf.get(base + R_FLAGS);
+        buf.put(base + R_FLAGS, (byte) ((flags & ~STATE_FLAGS) | IN_USE | stateFlags(state)));
+    }
+
+    private static int stateFlags(int state) {
+        return (Slot.isOccupied(state) ? OCCUPIED : 0)
+            | (Slot.isReserved(state) ? RESERVED : 0)
+            | (Slot.isRetired(state) ? RETIRED : 0);
+    }
+
+    /**
+     * Take a free record, growing the file by a chunk when needed.
+     * @return The record index, or -1 if the file could not grow
+     */
+    private int allocate() {
+        synchronized (allocLock) {
+            Integer free = freeRecords.poll();
+            if (free != null) {
+                return free;
+            }
+            int index = recordCount;
+            try {
+                ensureMapped(index);
+            } catch (IOException e) {
+                output.println("Error: Could not grow slot state file - " + e.getMessage());
+                return -1;
+            }
+            recordCount = index + 1;
+            header.putInt(H_RECORD_COUNT, recordCount);
+            return index;
+        }
+    }
+
+    /**
+     * Map chunks up to the one holding a record. Existing mappings never move,
+     * so gates keep writing to them while the file grows.
+     */
+    private void ensureMapped(int index) throws IOException {
+        int needed = index / RECORDS_PER_CHUNK + 1;
+        MappedByteBuffer[] current = chunks;
+        if (current.length >= needed) {
+            return;
+        }
+        MappedByteBuffer[] grown = Arrays.copyOf(current, needed);
+        long chunkBytes = (long) RECORDS_PER_CHUNK * RECORD_BYTES;
+        for (int c = current.length; c < needed; c++) {
+            grown[c] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + c * chunkBytes, chunkBytes);
+        }
+        chunks = grown;
+    }
+
+    private MappedByteBuffer chunk(int index) {
+        return chunks[index / RECORDS_PER_CHUNK];
+    }
+
+    private static int offset(int index) {
+        return (index % RECORDS_PER_CHUNK) * RECORD_BYTES;
+    }
+
+    private static void clear(MappedByteBuffer buf, int base) {
+        buf.put(base + R_FLAGS, (byte) 0);
+        for (int i = 1; i < RECORD_BYTES; i++) {
+            buf.put(base + i, (byte) 0);
+        }
+    }
+
+    private static void putString(MappedByteBuffer buf, int position, byte[] bytes) {
+        buf.put(position + 1, bytes);
+        buf.put(position, (byte) bytes.length);
+    }
+
+    private static String getString(MappedByteBuffer buf, int position) {
+        byte[] bytes = new byte[buf.get(position)];
+        buf.get(position + 1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
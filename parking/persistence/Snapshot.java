@@ -0,0 +1,245 @@
+package com.parking.persistence;
+
+import com.parking.exception.JournalException;
+import com.parking.model.*;
+import com.parking.service.core.ParkingService;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact binary snapshot of parking lot state: configuration, rates, floors
+ * and slots, active tickets and the ticket counter.
+ *
+ * A snapshot is read from the live lot while gates keep running, so it is
+ * only fuzzy-consistent. It is labelled with the journal sequence taken
+ * before reading began; every event up to that sequence is already reflected
+ * in memory (services change state before they journal it), and events after
+ * it are replayed idempotently on recovery. Slot occupancy is not stored but
+ * derived from the active tickets, so a slot and its ticket can never
+ * disagree.
+ */
+public final class Snapshot {
+
+    static final int MAGIC = 0x504B5331;   // "PKS1"
+    static final int FORMAT_VERSION = 2;       // Version 1 had no locked ticket rates
+    private static final VehicleType[] TYPES = VehicleType.values();
+    private static final Ticket.TicketStatus[] STATUSES = Ticket.TicketStatus.values();
+
+    private Snapshot() {
+    }
+
+    /**
+     * Write a snapshot of the lot to a file, replacing it atomically.
+     * @param journalSequence Last journal sequence already reflected in memory
+     * @return Number of bytes written
+     */
+    public static long write(ParkingLot lot, ParkingService service, long journalSequence, Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(Channels.newOutputStream(channel), crc), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(journalSequence);
+            out.writeLong(System.currentTimeMillis());
+            writeNullable(out, lot.getName());
+            writeNullable(out, lot.getAddress());
+            out.writeInt(service.getNextTicketNumber());
+
+            out.writeInt(TYPES.length);
+            for (VehicleType type : TYPES) {
+                out.writeByte(type.ordinal());
+                out.writeDouble(lot.getHourlyRate(type));
+            }
+
+            List<Floor> floors = lot.getFloors();
+            out.writeInt(floors.size());
+            for (Floor floor : floors) {
+                List<Slot> slots = floor.getSlotList();
+                out.writeInt(floor.getFloorNumber());
+                out.writeUTF(floor.getFloorName());
+                out.writeBoolean(floor.isOperational());
+                out.writeInt(slots.size());
+                for (Slot slot : slots) {
+                    out.writeUTF(slot.getSlotId());
+                    out.writeByte(slot.getVehicleType().ordinal());
+                    out.writeInt(slot.getSlotNumber());
+                    out.writeBoolean(slot.isReserved());
+                }
+            }
+
+            Map<String, Ticket> tickets = lot.getActiveTickets();
+            out.writeInt(tickets.size());
+            for (Ticket ticket : tickets.values()) {
+                out.writeUTF(ticket.getTicketId());
+                writeNullable(out, ticket.getVehicleNumber());
+                out.writeByte(ticket.getVehicleType() == null ? -1 : ticket.getVehicleType().ordinal());
+                writeNullable(out, ticket.getSlotId());
+                out.writeLong(ticket.getEntryMillis());
+                out.writeByte(ticket.getStatus().ordinal());
+                writeNullable(out, ticket.getEntryGateId());
+                out.writeDouble(ticket.getLockedHourlyRate());
+            }
+            out.flush();
+
+            // The checksum trails the data and is not part of it
+            ByteBuffer trailer = ByteBuffer.allocate(8).putLong(crc.getValue());
+            trailer.flip();
+            while (trailer.hasRemaining()) {
+                channel.write(trailer);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return Files.size(file);
+    }
+
+    /**
+     * Check that a snapshot file is complete and its checksum matches.
+     */
+    public static boolean isValid(Path file) {
+        try {
+            long size = Files.size(file);
+            if (size < 16) {
+                return false;
+            }
+            CRC32 crc = new CRC32();
+            long trailer;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+                byte[] buf = new byte[1 << 16];
+                long remaining = size - 8;
+                while (remaining > 0) {
+                    int n = in.read(buf, 0, (int) Math.min(buf.length, remaining));
+                    if (n < 0) {
+                        return false;
+                    }
+                    crc.update(buf, 0, n);
+                    remaining -= n;
+                }
+                trailer = in.readLong();
+            }
+            return trailer == crc.getValue();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Load a snapshot into an empty lot.
+     * @return The journal sequence the snapshot reflects
+     * @throws JournalException if the file is not a valid snapshot
+     */
+    public static long load(Path file, ParkingLot lot, ParkingService service) throws IOException {
+        if (!isValid(file)) {
+            throw new JournalException("Snapshot is incomplete or corrupt: " + file);
+        }
+        try (InputStream raw = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(raw, 1 << 16))) {
+            int version = in.readInt() == MAGIC ? in.readInt() : -1;
+            if (version < 1 || version > FORMAT_VERSION) {
+                throw new JournalException("Not a snapshot file: " + file);
+            }
+            long journalSequence = in.readLong();
+            in.readLong(); // created at
+            String name = readNullable(in);
+            String address = readNullable(in);
+            if (name != null) {
+                lot.setName(name);
+            }
+            if (address != null) {
+                lot.setAddress(address);
+            }
+            service.advanceTicketCounter(in.readInt());
+
+            int types = in.readInt();
+            for (int i = 0; i < types; i++) {
+                VehicleType type = TYPES[in.readByte()];
+                lot.setHourlyRate(type, in.readDouble());
+            }
+
+            int floors = in.readInt();
+            for (int f = 0; f < floors; f++) {
+                int floorNumber = in.readInt();
+                Floor floor = new Floor(floorNumber, in.readUTF());
+                floor.setOperational(in.readBoolean());
+                int count = in.readInt();
+                List<Slot> slots = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    String slotId = in.readUTF();
+                    VehicleType type = TYPES[in.readByte()];
+                    Slot slot = new Slot(slotId, type, floorNumber, in.readInt());
+                    if (in.readBoolean()) {
+                        slot.setReserved(true);
+                    }
+                    slots.add(slot);
+                }
+                floor.addSlots(slots);
+                lot.addFloor(floor);
+            }
+
+            int tickets = in.readInt();
+            for (int t = 0; t < tickets; t++) {
+                String ticketId = in.readUTF();
+                String vehicleNumber = readNullable(in);
+                byte typeOrdinal = in.readByte();
+                VehicleType type = typeOrdinal < 0 ? null : TYPES[typeOrdinal];
+                String slotId = readNullable(in);
+                long entryTime = in.readLong();
+                Ticket.TicketStatus status = STATUSES[in.readByte()];
+                String entryGateId = readNullable(in);
+                double lockedRate = version >= 2 ? in.readDouble() : Double.NaN;
+                Ticket ticket = Recovery.restoreTicket(lot, ticketId, vehicleNumber, type, slotId, entryTime);
+                if (ticket != null) {
+                    if (status == Ticket.TicketStatus.LOST) {
+                        ticket.markAsLost();
+                    }
+                    ticket.setEntryGateId(entryGateId);
+                    ticket.lockHourlyRate(lockedRate);
+                }
+            }
+            return journalSequence;
+        }
+    }
+
+    /**
+     * Read the journal sequence a snapshot reflects, without loading it.
+     */
+    public static long readSequence(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            int version = in.readInt() == MAGIC ? in.readInt() : -1;
+            if (version < 1 || version > FORMAT_VERSION) {
+                throw new JournalException("Not a snapshot file: " + file);
+            }
+            return in.readLong();
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            out.writeUTF(s);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
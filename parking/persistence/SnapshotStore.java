@@ -0,0 +1,166 @@
+package com.parking.persistence;
+
+import com.parking.model.ParkingLot;
+import com.parking.output.OutputSink;
+import com.parking.service.core.ParkingService;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Directory of snapshots, named {@code snapshot-<journal sequence>.bin}.
+ * Snapshots can be written on demand or periodically on a background thread;
+ * either way gates keep running while the lot is read. Only the newest few
+ * snapshots are kept.
+ */
+public class SnapshotStore implements Closeable {
+
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+    private static final int SNAPSHOTS_KEPT = 2;
+
+    private final Path directory;
+    private final ParkingLot parkingLot;
+    private final ParkingService parkingService;
+    private final Journal journal;
+    private ScheduledExecutorService scheduler;
+    private volatile long lastSnapshotSequence = -1;
+    private volatile OutputSink output = OutputSink.console();
+
+    public SnapshotStore(Path directory, ParkingLot parkingLot, ParkingService parkingService, Journal journal) throws IOException {
+        this.directory = directory;
+        this.parkingLot = parkingLot;
+        this.parkingService = parkingService;
+        this.journal = journal;
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Set where errors from the periodic snapshot thread are written.
+     * @param output The sink, or null to discard the output
+     */
+    public void setOutputSink(OutputSink output) {
+        this.output = output != null ? output : OutputSink.silent();
+    }
+
+    /**
+     * Write a snapshot now, unless nothing was journaled since the last one.
+     * @return The snapshot file, or null if it was skipped
+     */
+    public synchronized Path writeSnapshot() throws IOException {
+        // Force the journal and read the sequence before the lot, so every event
+        // up to it is both in the snapshot and on disk. A label past the durable
+        // end of the journal would hide events numbered again after a crash.
+        journal.flush();
+        long sequence = journal.getDurableSequence();
+        if (sequence == lastSnapshotSequence) {
+            return null;
+        }
+        Path file = directory.resolve(String.format("%s%020d%s", PREFIX, sequence, SUFFIX));
+        Snapshot.write(parkingLot, parkingService, sequence, file);
+        lastSnapshotSequence = sequence;
+        prune();
+        return file;
+    }
+
+    /**
+     * Write a snapshot every {@code intervalSeconds} on a background thread.
+     */
+    public synchronized void start(long intervalSeconds) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "snapshot-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                writeSnapshot();
+            } catch (IOException | RuntimeException e) {
+                output.println("Error: Snapshot failed - " + e.getMessage());
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop periodic snapshots.
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Find the newest snapshot in a directory whose checksum is valid.
+     * @return The snapshot, or null if there is none
+     */
+    public static Path findLatest(Path directory) throws IOException {
+        List<Path> snapshots = list(directory);
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            if (Snapshot.isValid(snapshots.get(i))) {
+                return snapshots.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The journal sequence the newest valid snapshot in a directory is labelled with.
+     * @return The sequence, or 0 if there is no snapshot
+     */
+    public static long latestSequence(Path directory) throws IOException {
+        Path latest = findLatest(directory);
+        if (latest == null) {
+            return 0;
+        }
+        String name = latest.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * List snapshot files oldest first.
+     */
+    static List<Path> list(Path directory) throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return snapshots;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path p : stream) {
+                snapshots.add(p);
+            }
+        }
+        // Zero-padded sequence numbers sort by name
+        Collections.sort(snapshots);
+        return snapshots;
+    }
+
+    private void prune() throws IOException {
+        List<Path> snapshots = list(directory);
+        for (int i = 0; i < snapshots.size() - SNAPSHOTS_KEPT; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+    }
+}
@@ -0,0 +1,479 @@
+package com.parking.persistence;
+
+import com.parking.exception.JournalException;
+import com.parking.model.Ticket;
+import com.parking.model.VehicleType;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One day of archived tickets: fixed-width records appended in exit order to
+ * a memory-mapped file.
+ *
+ * While a partition is open for appends its ticket IDs are indexed in a small
+ * open-addressing table on the heap. Sealing writes that index to a sorted
+ * {@code .idx} file beside the records and drops the table, so a sealed day
+ * costs no heap at all: lookups binary-search the mapped index and range
+ * scans read the mapped records sequentially. A partition whose index file
+ * is missing or stale, e.g. after a crash, is re-indexed from its records.
+ */
+final class TicketArchivePartition {
+
+    static final int MAGIC = 0x504B4131;                // "PKA1"
+    static final int INDEX_MAGIC = 0x504B4931;          // "PKI1"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int INDEX_HEADER_BYTES = 16;
+    static final int RECORD_BYTES = 176;
+    static final int RECORDS_PER_CHUNK = 1 << 14;       // 2.75 MB per mapping
+
+    // Header layout
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_RECORD_BYTES = 8;
+    private static final int H_COUNT = 12;
+    private static final int H_EPOCH_DAY = 16;
+
+    // Record layout; strings are a length byte followed by UTF-8 bytes
+    private static final int R_FLAGS = 0;
+    private static final int R_TYPE = 1;
+    private static final int R_FLOOR = 4;
+    private static final int R_ENTRY_TIME = 8;
+    private static final int R_EXIT_TIME = 16;
+    private static final int R_FARE = 24;
+    private static final int R_ID_HASH = 32;
+    private static final int R_TICKET_ID = 40;
+    private static final int R_VEHICLE_NUMBER = 72;
+    private static final int R_SLOT_ID = 112;
+    private static final int R_ENTRY_GATE = 144;
+    private static final int R_EXIT_GATE = 160;
+    static final int MAX_ID_BYTES = 31;
+    static final int MAX_VEHICLE_NUMBER_BYTES = 39;
+    static final int MAX_GATE_BYTES = 15;
+
+    private static final int VALID = 1;
+    private static final VehicleType[] TYPES = VehicleType.values();
+
+    private final LocalDate day;
+    private final Path path;
+    private final Path indexPath;
+    private FileChannel channel;            // Null while sealed
+    private MappedByteBuffer header;
+    private MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+    private int count;
+    private int[] tableHashes;              // Open-addressing ID index while open, null while sealed
+    private int[] tableRecords;             // Record index + 1, 0 for an empty entry
+    private int indexed;
+    private LongBuffer sealedIndex;         // Sorted (hash << 32 | record) while sealed
+
+    private TicketArchivePartition(LocalDate day, Path path, Path indexPath) {
+        this.day = day;
+        this.path = path;
+        this.indexPath = indexPath;
+    }
+
+    /**
+     * Open a day's partition, sealed if it has a valid index file and open for
+     * appends otherwise. The record file is created if it does not exist.
+     */
+    static TicketArchivePartition open(LocalDate day, Path path, Path indexPath) throws IOException {
+        TicketArchivePartition partition = new TicketArchivePartition(day, path, indexPath);
+        if (!partition.openSealed()) {
+            partition.openForAppend();
+        }
+        return partition;
+    }
+
+    LocalDate getDay() {
+        return day;
+    }
+
+    synchronized boolean isSealed() {
+        return channel == null;
+    }
+
+    synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Append a closed ticket unless its ID is already in this partition.
+     * Strings must already be checked against the field widths.
+     */
+    synchronized void append(Ticket ticket, byte[] ticketId, byte[] vehicleNumber, byte[] slotId, byte[] entryGate,
+                byte[] exitGate)
+            throws IOException {
+        if (channel == null) {
+            unseal();
+        }
+        int hash = ticket.getTicketId().hashCode();
+        if (lookup(hash, ticketId) >= 0) {
+            return;
+        }
+        int record = count;
+        ensureMapped(record);
+        MappedByteBuffer buf = chunk(record);
+        int base = offset(record);
+        VehicleType type = ticket.getVehicleType();
+        buf.put(base + R_TYPE, (byte) (type == null ? -1 : type.ordinal()));
+        buf.putInt(base + R_FLOOR, ticket.getFloorNumber());
+        buf.putLong(base + R_ENTRY_TIME, ticket.getEntryMillis());
+        buf.putLong(base + R_EXIT_TIME, ticket.getExitMillis());
+        buf.putDouble(base + R_FARE, ticket.getFare());
+        buf.putInt(base + R_ID_HASH, hash);
+        putString(buf, base + R_TICKET_ID, ticketId);
+        putString(buf, base + R_VEHICLE_NUMBER, vehicleNumber);
+        putString(buf, base + R_SLOT_ID, slotId);
+        putString(buf, base + R_ENTRY_GATE, entryGate);
+        putString(buf, base + R_EXIT_GATE, exitGate);
+        // The flag makes the record visible to a reader after a crash; the count follows it
+        buf.put(base + R_FLAGS, (byte) VALID);
+        count = record + 1;
+        header.putInt(H_COUNT, count);
+        tablePut(hash, record);
+    }
+
+    /**
+     * Find a ticket by ID.
+     * @return The ticket, or null if it is not in this partition
+     */
+    synchronized Ticket find(String ticketId) {
+        int record = lookup(ticketId.hashCode(), ticketId.getBytes(StandardCharsets.UTF_8));
+        return record < 0 ? null : read(record);
+    }
+
+    /**
+     * Add every ticket whose exit time, in epoch millis, is in {@code [from, to)}.
+     */
+    synchronized void scan(long from, long to, List<Ticket> found) {
+        for (int record = 0; record < count; record++) {
+            long exit = chunk(record).getLong(offset(record) + R_EXIT_TIME);
+            if (exit >= from && exit < to) {
+                found.add(read(record));
+            }
+        }
+    }
+
+    /**
+     * Force appended records to disk.
+     */
+    synchronized void force() {
+        if (channel == null) {
+            return;
+        }
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+        header.force();
+    }
+
+    /**
+     * Write the sorted ID index and release the heap table and file handle.
+     */
+    synchronized void seal() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        force();
+        long[] entries = new long[count];
+        for (int record = 0; record < count; record++) {
+            int hash = chunk(record).getInt(offset(record) + R_ID_HASH);
+            entries[record] = ((long) hash << 32) | record;
+        }
+        Arrays.sort(entries);
+
+        Path tmp = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(count);
+            out.writeInt(0);
+            for (long entry : entries) {
+                out.writeLong(entry);
+            }
+        }
+        try (FileChannel tmpChannel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            tmpChannel.force(true);
+        }
+        Files.move(tmp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        sealedIndex = mapIndex(count);
+        tableHashes = null;
+        tableRecords = null;
+        indexed = 0;
+        // Mappings stay valid after their channel is closed
+        channel.close();
+        channel = null;
+    }
+
+    /**
+     * Map the partition read-only if its index file matches its records.
+     * @return false if the partition must be opened for appends instead
+     */
+    private boolean openSealed() throws IOException {
+        if (!Files.exists(path) || !Files.exists(indexPath)) {
+            return false;
+        }
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (ch.size() < HEADER_BYTES) {
+                return false;
+            }
+            MappedByteBuffer h = ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            checkHeader(h);
+            int recordCount = h.getInt(H_COUNT);
+            if (indexCount() != recordCount) {
+                return false;
+            }
+            this.header = h;
+            this.channel = ch;
+            this.count = recordCount;
+            if (count > 0) {
+                ensureMapped(count - 1);
+            }
+            this.channel = null;
+        }
+        sealedIndex = mapIndex(count);
+        return true;
+    }
+
+    private void openForAppend() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean fresh = channel.size() < HEADER_BYTES;
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            if (fresh) {
+                header.putInt(H_MAGIC, MAGIC);
+                header.putInt(H_VERSION, FORMAT_VERSION);
+                header.putInt(H_RECORD_BYTES, RECORD_BYTES);
+                header.putInt(H_COUNT, 0);
+                header.putLong(H_EPOCH_DAY, day.toEpochDay());
+            } else {
+                checkHeader(header);
+            }
+            count = header.getInt(H_COUNT);
+            if (count > 0) {
+                ensureMapped(count - 1);
+            }
+            recoverTail();
+            rebuildTable();
+            Files.deleteIfExists(indexPath);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            channel = null;
+            throw e;
+        }
+    }
+
+    /**
+     * Reopen a sealed partition for appends, e.g. when the journal replays an
+     * exit from a day that has already been sealed.
+     */
+    private void unseal() throws IOException {
+        sealedIndex = null;
+        chunks = new MappedByteBuffer[0];
+        openForAppend();
+    }
+
+    /**
+     * Count records a crash left valid beyond the header's count.
+     */
+    private void recoverTail() throws IOException {
+        while (true) {
+            long end = HEADER_BYTES + (long) (count + 1) * RECORD_BYTES;
+            if (channel.size() < end) {
+                break;
+            }
+            ensureMapped(count);
+            if ((chunk(count).get(offset(count) + R_FLAGS) & VALID) == 0) {
+                break;
+            }
+            count++;
+        }
+        header.putInt(H_COUNT, count);
+    }
+
+    private void checkHeader(MappedByteBuffer h) {
+        if (h.getInt(H_MAGIC) != MAGIC) {
+            throw new JournalException("Not a ticket archive partition: " + path);
+        }
+        if (h.getInt(H_VERSION) != FORMAT_VERSION || h.getInt(H_RECORD_BYTES) != RECORD_BYTES) {
+            throw new JournalException("Unsupported ticket archive format version " + h.getInt(H_VERSION) + ": " + path);
+        }
+    }
+
+    /**
+     * Number of entries in the index file, or -1 if it is missing or invalid.
+     */
+    private int indexCount() throws IOException {
+        try (FileChannel ch = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            if (ch.size() < INDEX_HEADER_BYTES) {
+                return -1;
+            }
+            MappedByteBuffer h = ch.map(FileChannel.MapMode.READ_ONLY, 0, INDEX_HEADER_BYTES);
+            if (h.getInt(0) != INDEX_MAGIC || h.getInt(4) != FORMAT_VERSION) {
+                return -1;
+            }
+            int entries = h.getInt(8);
+            return ch.size() == INDEX_HEADER_BYTES + 8L * entries ? entries : -1;
+        }
+    }
+
+    private LongBuffer mapIndex(int entries) throws IOException {
+        try (FileChannel ch = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            return ch.map(FileChannel.MapMode.READ_ONLY, INDEX_HEADER_BYTES, 8L * entries).asLongBuffer();
+        }
+    }
+
+    /**
+     * Find the record holding a ticket ID.
+     * @return The record index, or -1 if absent
+     */
+    private int lookup(int hash, byte[] ticketId) {
+        if (sealedIndex != null) {
+            // Lower bound of the first entry with this hash
+            long key = (long) hash << 32;
+            int low = 0;
+            int high = sealedIndex.limit();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sealedIndex.get(mid) < key) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            for (int i = low; i < sealedIndex.limit() && (int) (sealedIndex.get(i) >> 32) == hash; i++) {
+                int record = (int) sealedIndex.get(i);
+                if (idMatches(record, ticketId)) {
+                    return record;
+                }
+            }
+            return -1;
+        }
+        int mask = tableRecords.length - 1;
+        for (int i = mix(hash) & mask; tableRecords[i] != 0; i = (i + 1) & mask) {
+            if (tableHashes[i] == hash && idMatches(tableRecords[i] - 1, ticketId)) {
+                return tableRecords[i] - 1;
+            }
+        }
+        return -1;
+    }
+
+    private void rebuildTable() {
+        int capacity = 1024;
+        while (capacity < count * 2) {
+            capacity <<= 1;
+        }
+        tableHashes = new int[capacity];
+        tableRecords = new int[capacity];
+        indexed = 0;
+        for (int record = 0; record < count; record++) {
+            tablePut(chunk(record).getInt(offset(record) + R_ID_HASH), record);
+        }
+    }
+
+    private void tablePut(int hash, int record) {
+        if ((indexed + 1) * 2 > tableRecords.length) {
+            int[] oldHashes = tableHashes;
+            int[] oldRecords = tableRecords;
+            tableHashes = new int[oldRecords.length * 2];
+            tableRecords = new int[oldRecords.length * 2];
+            indexed = 0;
+            for (int i = 0; i < oldRecords.length; i++) {
+                if (oldRecords[i] != 0) {
+                    tablePut(oldHashes[i], oldRecords[i] - 1);
+                }
+            }
+        }
+        int mask = tableRecords.length - 1;
+        int i = mix(hash) & mask;
+        while (tableRecords[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        tableHashes[i] = hash;
+        tableRecords[i] = record + 1;
+        indexed++;
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private boolean idMatches(int record, byte[] ticketId) {
+        MappedByteBuffer buf = chunk(record);
+        int position = offset(record) + R_TICKET_ID;
+        if (buf.get(position) != ticketId.length) {
+            return false;
+        }
+        for (int i = 0; i < ticketId.length; i++) {
+            if (buf.get(position + 1 + i) != ticketId[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Ticket read(int record) {
+        MappedByteBuffer buf = chunk(record);
+        int base = offset(record);
+        byte type = buf.get(base + R_TYPE);
+        Ticket ticket = new Ticket(getString(buf, base + R_TICKET_ID), getString(buf, base + R_VEHICLE_NUMBER),
+            type < 0 ? null : TYPES[type], getString(buf, base + R_SLOT_ID), buf.getInt(base + R_FLOOR),
+            buf.getLong(base + R_ENTRY_TIME));
+        ticket.closeTicket(buf.getDouble(base + R_FARE), buf.getLong(base + R_EXIT_TIME));
+        String entryGate = getString(buf, base + R_ENTRY_GATE);
+        if (!entryGate.isEmpty()) {
+            ticket.setEntryGateId(entryGate);
+        }
+        String exitGate = getString(buf, base + R_EXIT_GATE);
+        if (!exitGate.isEmpty()) {
+            ticket.setExitGateId(exitGate);
+        }
+        return ticket;
+    }
+
+    private void ensureMapped(int record) throws IOException {
+        int needed = record / RECORDS_PER_CHUNK + 1;
+        if (chunks.length >= needed) {
+            return;
+        }
+        MappedByteBuffer[] grown = Arrays.copyOf(chunks, needed);
+        long chunkBytes = (long) RECORDS_PER_CHUNK * RECORD_BYTES;
+        for (int c = chunks.length; c < needed; c++) {
+            grown[c] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + c * chunkBytes, chunkBytes);
+        }
+        chunks = grown;
+    }
+
+    private MappedByteBuffer chunk(int record) {
+        return chunks[record / RECORDS_PER_CHUNK];
+    }
+
+    private static int offset(int record) {
+        return (record % RECORDS_PER_CHUNK) * RECORD_BYTES;
+    }
+
+    private static void putString(MappedByteBuffer buf, int position, byte[] bytes) {
+        buf.put(position, (byte) bytes.length);
+        buf.put(position + 1, bytes);
+    }
+
+    private static String getString(MappedByteBuffer buf, int position) {
+        byte[] bytes = new byte[buf.get(position)];
+        buf.get(position + 1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
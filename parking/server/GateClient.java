@@ -0,0 +1,90 @@
+package com.parking.server;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Blocking client for a {@link GateServer}, as used by a gate controller:
+ * one request at a time, each answered before the next is sent.
+ * Not safe for concurrent use; give each gate thread its own client.
+ */
+public class GateClient implements Closeable {
+
+    private final Socket socket;
+    private final BufferedReader in;
+    private final OutputStream out;
+
+    public GateClient(String host, int port) throws IOException {
+        this(new InetSocketAddress(host, port), 0);
+    }
+
+    /**
+     * Connect to a gate server.
+     * @param timeoutMillis Connect and read timeout, or 0 to wait indefinitely
+     */
+    public GateClient(InetSocketAddress address, int timeoutMillis) throws IOException {
+        this.socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.connect(address, timeoutMillis);
+            socket.setSoTimeout(timeoutMillis);
+            this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            this.out = socket.getOutputStream();
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Send one request line and wait for its reply.
+     * @return The reply, e.g. {@code OK F1-4W-T7 F1-4W-S3 1}
+     * @throws IOException if the connection fails or the server closes it
+     */
+    public String request(String line) throws IOException {
+        out.write((line + "\n").getBytes(StandardCharsets.US_ASCII));
+        String reply = in.readLine();
+        if (reply == null) {
+            throw new IOException("Connection closed by gate server");
+        }
+        return reply;
+    }
+
+    public String entry(String gateId, String vehicleNumber, int typeCode) throws IOException {
+        return request("ENTRY " + gateId + " " + vehicleNumber + " " + typeCode);
+    }
+
+    public String exit(String gateId, String ticketId) throws IOException {
+        return request("EXIT " + gateId + " " + ticketId);
+    }
+
+    public String lostTicket(String gateId, String vehicleNumber) throws IOException {
+        return request("LOST " + gateId + " " + vehicleNumber);
+    }
+
+    public String availability() throws IOException {
+        return request("AVAIL");
+    }
+
+    /**
+     * Say goodbye and close the connection.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!socket.isClosed()) {
+                request("QUIT");
+            }
+        } catch (IOException e) {
+            // Closing anyway
+        } finally {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.parking.server;
+
+import com.parking.metrics.MetricsRegistry;
+import com.parking.output.OutputSink;
+import com.parking.service.core.EntryGateHandler;
+import com.parking.service.core.ExitGateHandler;
+import com.parking.service.interfaces.IDisplayBoardService;
+import com.parking.service.interfaces.IParkingService;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Network front end for remote gate controllers and kiosks.
+ *
+ * Each connection is served on its own virtual thread, which blocks on the
+ * socket and on the parking services like a console gate would, so
+ * thousands of mostly idle gate connections cost a few kilobytes each
+ * rather than a platform thread each. Requests on one connection are
+ * answered in order; a client may pipeline several before reading.
+ *
+ * The protocol is one line of ASCII per request and per reply; see
+ * {@link GateSession} for the commands. Gate IDs name
+ * {@link EntryGateHandler}s and {@link ExitGateHandler}s that are created
+ * on first use and shared by every connection naming the same gate.
+ */
+public class GateServer implements Closeable {
+
+    public static final int DEFAULT_MAX_CONNECTIONS = 10_000;
+    static final int MAX_GATES = 1024;
+
+    private final IParkingService parkingService;
+    private final IDisplayBoardService displayBoard;
+    private final ServerSocket serverSocket;
+    private final ExecutorService sessions;
+    private Thread acceptor;
+    private final int maxConnections;
+    private final int idleTimeoutMillis;
+    private final ConcurrentHashMap<String, EntryGateHandler> entryGates = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ExitGateHandler> exitGates = new ConcurrentHashMap<>();
+    private final Set<Socket> open = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile OutputSink output = OutputSink.silent();
+    private volatile MetricsRegistry metrics;
+    private volatile boolean closed;
+
+    public GateServer(InetSocketAddress address, IParkingService parkingService,
+                      IDisplayBoardService displayBoard) throws IOException {
+        this(address, parkingService, displayBoard, DEFAULT_MAX_CONNECTIONS, 0);
+    }
+
+    /**
+     * Bind to an address. Connections queue in the backlog until {@link #start()}.
+     * @param address Address to listen on; port 0 picks a free port
+     * @param maxConnections Connections served at once; more are told the server is busy and closed
+     * @param idleTimeoutMillis Close connections that send nothing for this long, or 0 to keep them open
+     */
+    public GateServer(InetSocketAddress address, IParkingService parkingService, IDisplayBoardService displayBoard,
+                      int maxConnections, int idleTimeoutMillis) throws IOException {
+        if (maxConnections <= 0 || idleTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Invalid connection limits");
+        }
+        this.parkingService = parkingService;
+        this.displayBoard = displayBoard;
+        this.maxConnections = maxConnections;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        // A large backlog absorbs a whole site's gates reconnecting at once
+        serverSocket.bind(address, Math.min(maxConnections, 4096));
+        this.sessions = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("gate-session-", 0).factory());
+    }
+
+    /**
+     * Start accepting connections, once the output sink and metrics are set.
+     */
+    public synchronized void start() {
+        if (acceptor != null) {
+            return;
+        }
+        acceptor = new Thread(this::acceptLoop, "gate-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Set where the gates' banners and errors are written.
+     * @param output The sink, or null to discard the output
+     */
+    public void setOutputSink(OutputSink output) {
+        this.output = output != null ? output : OutputSink.silent();
+        for (EntryGateHandler gate : entryGates.values()) {
+            gate.setOutputSink(this.output);
+        }
+        for (ExitGateHandler gate : exitGates.values()) {
+            gate.setOutputSink(this.output);
+        }
+    }
+
+    /**
+     * Set the registry that the exit gates record lost-ticket timings in.
+     * @param metrics The registry, or null to stop recording
+     */
+    public void setMetrics(MetricsRegistry metrics) {
+        this.metrics = metrics;
+        for (ExitGateHandler gate : exitGates.values()) {
+            gate.setMetrics(metrics);
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Connections being served now.
+     */
+    public int getConnectionCount() {
+        return connections.get();
+    }
+
+    public long getAcceptedCount() {
+        return accepted.get();
+    }
+
+    /**
+     * Connections turned away because {@code maxConnections} were already open.
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Stop accepting, close every connection and wait for the sessions to end.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // Closing anyway
+        }
+        for (Socket socket : open) {
+            closeQuietly(socket);
+        }
+        sessions.close();
+    }
+
+    /**
+     * The entry gate with this ID, created on first use.
+     * @return The gate, or null if {@link #MAX_GATES} gates already exist
+     */
+    EntryGateHandler entryGate(String gateId) {
+        EntryGateHandler gate = entryGates.get(gateId);
+        if (gate != null || entryGates.size() >= MAX_GATES) {
+            return gate;
+        }
+        return entryGates.computeIfAbsent(gateId, id -> {
+            EntryGateHandler created = new EntryGateHandler(id, parkingService, displayBoard);
+            created.setOutputSink(output);
+            return created;
+        });
+    }
+
+    /**
+     * The exit gate with this ID, created on first use.
+     * @return The gate, or null if {@link #MAX_GATES} gates already exist
+     */
+    ExitGateHandler exitGate(String gateId) {
+        ExitGateHandler gate = exitGates.get(gateId);
+        if (gate != null || exitGates.size() >= MAX_GATES) {
+            return gate;
+        }
+        return exitGates.computeIfAbsent(gateId, id -> {
+            ExitGateHandler created = new ExitGateHandler(id, parkingService);
+            created.setOutputSink(output);
+            created.setMetrics(metrics);
+            return created;
+        });
+    }
+
+    IParkingService getParkingService() {
+        return parkingService;
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!closed) {
+                    output.println("Error: Gate server stopped accepting - " + e.getMessage());
+                }
+                return;
+            }
+            accepted.incrementAndGet();
+            if (connections.incrementAndGet() > maxConnections) {
+                connections.decrementAndGet();
+                rejected.incrementAndGet();
+                GateSession.reject(socket);
+                continue;
+            }
+            open.add(socket);
+            try {
+                sessions.execute(() -> serve(socket));
+            } catch (RuntimeException e) {
+                // Rejected because the server is closing
+                release(socket);
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(idleTimeoutMillis);
+            new GateSession(this, socket).run();
+        } catch (SocketException e) {
+            // Client went away or the server is closing
+        } catch (IOException e) {
+            // Idle timeout or broken connection; the gate reconnects
+        } finally {
+            release(socket);
+        }
+    }
+
+    private void release(Socket socket) {
+        closeQuietly(socket);
+        if (open.remove(socket)) {
+            connections.decrementAndGet();
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.parking.server;
+
+import com.parking.exception.ParkingException;
+import com.parking.model.ParkingLot;
+import com.parking.model.Ticket;
+import com.parking.model.Vehicle;
+import com.parking.model.VehicleFactory;
+import com.parking.model.VehicleType;
+import com.parking.service.core.EntryGateHandler;
+import com.parking.service.core.ExitGateHandler;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * One gate connection. Requests and replies are single lines of ASCII,
+ * words separated by spaces:
+ *
+ * <pre>
+ * ENTRY &lt;gate&gt; &lt;vehicle&gt; &lt;2|4|6&gt; [color]  OK &lt;ticket&gt; &lt;slot&gt; &lt;floor&gt; | FULL &lt;type&gt;
+ * EXIT &lt;gate&gt; &lt;ticket&gt;                    OK &lt;ticket&gt; &lt;fare&gt;
+ * LOST &lt;gate&gt; &lt;vehicle&gt;                   OK &lt;ticket&gt; &lt;fare&gt;
+ * AVAIL [2|4|6]                           OK 2W=&lt;n&gt; 4W=&lt;n&gt; 6W=&lt;n&gt; | OK &lt;n&gt;
+ * PING                                    PONG
+ * QUIT                                    BYE, then the server closes the connection
+ * </pre>
+ *
+ * Any request can instead be answered {@code ERR <message>}. Replies are
+ * buffered and flushed once no further request is waiting, so a pipelining
+ * client gets a batch of replies per packet.
+ */
+final class GateSession {
+
+    static final int MAX_LINE_BYTES = 256;
+
+    private final GateServer server;
+    private final InputStream in;
+    private final OutputStream out;
+    private final byte[] line = new byte[MAX_LINE_BYTES];
+
+    GateSession(GateServer server, Socket socket) throws IOException {
+        this.server = server;
+        this.in = new BufferedInputStream(socket.getInputStream(), 4096);
+        this.out = new BufferedOutputStream(socket.getOutputStream(), 4096);
+    }
+
+    /**
+     * Answer requests until the client quits or disconnects.
+     */
+    void run() throws IOException {
+        while (true) {
+            int length = readLine();
+            if (length < 0) {
+                out.flush();
+                return;
+            }
+            if (length > MAX_LINE_BYTES) {
+                reply("ERR Request longer than " + MAX_LINE_BYTES + " bytes");
+                out.flush();
+                return;
+            }
+            String request = new String(line, 0, length, StandardCharsets.US_ASCII).trim();
+            if (request.isEmpty()) {
+                continue;
+            }
+            String[] words = request.split(" +");
+            if (words[0].equalsIgnoreCase("QUIT")) {
+                reply("BYE");
+                out.flush();
+                return;
+            }
+            reply(handle(words));
+            if (in.available() == 0) {
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * Tell a client over the connection limit to come back later.
+     */
+    static void reject(Socket socket) {
+        try (socket) {
+            socket.getOutputStream().write("ERR Server busy\n".getBytes(StandardCharsets.US_ASCII));
+        } catch (IOException e) {
+            // The client retries either way
+        }
+    }
+
+    private String handle(String[] words) {
+        try {
+            switch (words[0].toUpperCase(Locale.ROOT)) {
+                case "ENTRY":
+                    return entry(words);
+                case "EXIT":
+                    return exit(words);
+                case "LOST":
+                    return lost(words);
+                case "AVAIL":
+                    return availability(words);
+                case "PING":
+                    return "PONG";
+                default:
+                    return "ERR Unknown command " + words[0];
+            }
+        } catch (ParkingException e) {
+            return "ERR " + e.getMessage();
+        } catch (IllegalArgumentException e) {
+            return "ERR Invalid vehicle type";
+        }
+    }
+
+    private String entry(String[] words) {
+        if (words.length != 4 && words.length != 5) {
+            return "ERR Usage: ENTRY <gate> <vehicle> <2|4|6> [color]";
+        }
+        EntryGateHandler gate = server.entryGate(words[1]);
+        if (gate == null) {
+            return "ERR Too many gates";
+        }
+        String color = words.length == 5 ? words[4] : "Unknown";
+        Vehicle vehicle = VehicleFactory.createVehicle(words[2], color, Integer.parseInt(words[3]));
+        Ticket ticket = gate.processEntry(vehicle);
+        if (ticket != null) {
+            return "OK " + ticket.getTicketId() + " " + ticket.getSlotId() + " " + ticket.getFloorNumber();
+        }
+        if (server.getParkingService().isVehicleParked(vehicle.getVehicleNumber())) {
+            return "ERR Vehicle " + vehicle.getVehicleNumber() + " is already parked";
+        }
+        if (!gate.isSpaceAvailable(vehicle.getVehicleType())) {
+            return "FULL " + vehicle.getVehicleType().getCode() + "W";
+        }
+        return "ERR Vehicle " + vehicle.getVehicleNumber() + " was not admitted";
+    }
+
+    private String exit(String[] words) {
+        if (words.length != 3) {
+            return "ERR Usage: EXIT <gate> <ticket>";
+        }
+        ExitGateHandler gate = server.exitGate(words[1]);
+        if (gate == null) {
+            return "ERR Too many gates";
+        }
+        Ticket ticket = server.getParkingService().getTicket(words[2]);
+        if (!gate.processExit(words[2])) {
+            return "ERR Ticket " + words[2] + " could not be closed";
+        }
+        return "OK " + ticket.getTicketId() + " " + fare(ticket);
+    }
+
+    private String lost(String[] words) {
+        if (words.length != 3) {
+            return "ERR Usage: LOST <gate> <vehicle>";
+        }
+        ExitGateHandler gate = server.exitGate(words[1]);
+        if (gate == null) {
+            return "ERR Too many gates";
+        }
+        Ticket ticket = server.getParkingService().findTicketByVehicle(words[2]);
+        if (!gate.processLostTicket(words[2])) {
+            return "ERR Ticket for " + words[2] + " could not be closed";
+        }
+        return "OK " + ticket.getTicketId() + " " + fare(ticket);
+    }
+
+    private String availability(String[] words) {
+        ParkingLot lot = ParkingLot.getInstance();
+        if (words.length == 2) {
+            VehicleType type = VehicleType.fromCode(Integer.parseInt(words[1]));
+            if (type == null) {
+                return "ERR Invalid vehicle type";
+            }
+            return "OK " + lot.getAvailableSlotsByType(type);
+        }
+        StringBuilder reply = new StringBuilder("OK");
+        for (VehicleType type : VehicleType.values()) {
+            reply.append(' ').append(type.getCode()).append("W=").append(lot.getAvailableSlotsByType(type));
+        }
+        return reply.toString();
+    }
+
+    private static String fare(Ticket ticket) {
+        return String.format(Locale.ROOT, "%.2f", ticket.getFare());
+    }
+
+    private void reply(String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.US_ASCII));
+        out.write('\n');
+    }
+
+    /**
+     * Read one line into {@link #line}, without its line ending.
+     * @return The line's length, more than {@link #MAX_LINE_BYTES} if it was too long, or -1 at end of stream
+     */
+    private int readLine() throws IOException {
+        int length = 0;
+        while (true) {
+            int b = in.read();
+            if (b < 0) {
+                return length > 0 ? Math.min(length, MAX_LINE_BYTES) : -1;
+            }
+            if (b == '\n') {
+                if (length > 0 && length <= MAX_LINE_BYTES && line[length - 1] == '\r') {
+                    length--;
+                }
+                return length;
+            }
+            if (length == MAX_LINE_BYTES) {
+                return MAX_LINE_BYTES + 1;
+            }
+            line[length++] = (byte) b;
+        }
+    }
+}
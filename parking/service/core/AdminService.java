@@ -1,9 +1,14 @@
 
 package com.parking.service.core;
 
+import com.parking.exception.JournalException;
 import com.parking.exception.NoFloorsConfiguredException;
 import com.parking.model.*;
+import com.parking.output.OutputSink;
+import com.parking.persistence.Journal;
+import com.parking.persistence.JournalEvent;
 import com.parking.service.interfaces.IAdminService;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,6 +20,8 @@ import java.util.List;
 public class AdminService implements IAdminService {
 
     private ParkingLot parkingLot;
+    private volatile Journal journal;   // Optional, records every rate, reservation and layout change
+    private volatile OutputSink output = OutputSink.console();
 
     public AdminService() {
         this.parkingLot = ParkingLot.getInstance();
@@ -29,6 +36,22 @@ public class AdminService implements IAdminService {
         }
     }
 
+    /**
+     * Set the journal that configuration changes are recorded in.
+     * @param journal The journal, or null to stop recording
+     */
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Set where confirmations, errors and the lot, floor and slot displays are written.
+     * @param output The sink, or null to discard the output
+     */
+    public void setOutputSink(OutputSink output) {
+        this.output = output != null ? output : OutputSink.silent();
+    }
+
     public void addFloors(int count, int twoW, int fourW, int sixW) {
         List<Floor> existingFloors = parkingLot.getFloors();
         
@@ -45,36 +68,39 @@ public class AdminService implements IAdminService {
             createSlots(floor, sixW, VehicleType.SIX_WHEELER);
 
             parkingLot.addFloor(floor);
-            System.out.println("Floor " + nextFloorNumber + " added successfully with " + 
+            record(JournalEvent.floorAdded(nextFloorNumber, twoW, fourW, sixW));
+            output.println("Floor " + nextFloorNumber + " added successfully with " + 
                 (twoW + fourW + sixW) + " slots.");
             nextFloorNumber++;
         }
     }
 
     private void createSlots(Floor floor, int count, VehicleType type) {
+        List<Slot> slots = new ArrayList<>(Math.max(count, 0));
         for (int i = 1; i <= count; i++) {
             String slotId = "F" + floor.getFloorNumber() + "-" + type.getCode() + "W-S" + i;
-            Slot slot = new Slot(slotId, type, floor.getFloorNumber(), i);
-            floor.addSlot(slot);
+            slots.add(new Slot(slotId, type, floor.getFloorNumber(), i));
         }
+        floor.addSlots(slots);
     }
 
     public boolean deleteFloor(int floorNumber) {
         Floor target = parkingLot.getFloor(floorNumber);
 
         if (target == null) {
-            System.out.println("Error: Floor " + floorNumber + " does not exist.");
+            output.println("Error: Floor " + floorNumber + " does not exist.");
             return false;
         }
 
         if (target.hasOccupiedSlots()) {
-            System.out.println("Error: Cannot delete floor " + floorNumber + " - has occupied slots.");
+            output.println("Error: Cannot delete floor " + floorNumber + " - has occupied slots.");
             return false;
         }
 
         boolean removed = parkingLot.removeFloor(floorNumber);
         if (removed) {
-            System.out.println("Floor " + floorNumber + " deleted successfully.");
+            record(JournalEvent.floorRemoved(floorNumber));
+            output.println("Floor " + floorNumber + " deleted successfully.");
         }
         return removed;
     }
@@ -83,31 +109,28 @@ public class AdminService implements IAdminService {
         Floor floor = parkingLot.getFloor(floorNumber);
 
         if (floor == null) {
-            System.out.println("Error: Floor " + floorNumber + " does not exist.");
+            output.println("Error: Floor " + floorNumber + " does not exist.");
             return false;
         }
 
         if (fromType == null || toType == null) {
-            System.out.println("Error: Invalid vehicle type.");
+            output.println("Error: Invalid vehicle type.");
             return false;
         }
 
         int available = floor.countAvailableSlotsByType(fromType);
 
         if (convertCount > available) {
-            System.out.println("Error: Only " + available + " available " + fromType + " slots. Cannot convert " + convertCount + ".");
+            output.println("Error: Only " + available + " available " + fromType + " slots. Cannot convert " + convertCount + ".");
             return false;
         }
 
-        int changed = 0;
-        for (Slot s : floor.getSlotList()) {
-            if (s.getVehicleType() == fromType && changed < convertCount && !s.isOccupied()) {
-                s.setVehicleType(toType);
-                changed++;
-            }
+        List<Slot> converted = floor.convertSlots(fromType, toType, convertCount);
+        if (!converted.isEmpty()) {
+            record(JournalEvent.slotsConverted(floorNumber, toType, slotIds(converted)));
         }
 
-        System.out.println(changed + " slots converted from " + fromType.getCode() + "W to " + toType.getCode() + "W successfully.");
+        output.println(converted.size() + " slots converted from " + fromType.getCode() + "W to " + toType.getCode() + "W successfully.");
         return true;
     }
     
@@ -120,15 +143,16 @@ public class AdminService implements IAdminService {
 
     public void setHourlyRate(VehicleType vehicleType, double rate) {
         if (vehicleType == null) {
-            System.out.println("Error: Invalid vehicle type.");
+            output.println("Error: Invalid vehicle type.");
             return;
         }
         if (rate < 0) {
-            System.out.println("Error: Rate cannot be negative.");
+            output.println("Error: Rate cannot be negative.");
             return;
         }
         parkingLot.setHourlyRate(vehicleType, rate);
-        System.out.println("Hourly rate for " + vehicleType + " set to Rs. " + rate);
+        record(JournalEvent.rateChange(vehicleType, rate));
+        output.println("Hourly rate for " + vehicleType + " set to Rs. " + rate);
     }
 
     public int getTotalCapacity() {
@@ -147,7 +171,7 @@ public class AdminService implements IAdminService {
         if (parkingLot.getFloors().isEmpty()) {
             throw new NoFloorsConfiguredException();
         }
-        System.out.println(parkingLot.getStatusSummary());
+        output.println(parkingLot.getStatusSummary());
     }
     
     /**
@@ -156,24 +180,28 @@ public class AdminService implements IAdminService {
     public void configureParkingLot(String name, String address) {
         parkingLot.setName(name);
         parkingLot.setAddress(address);
-        System.out.println("\n╔═══════════════════════════════════════╗");
-        System.out.println("║     PARKING LOT CONFIGURED            ║");
-        System.out.println("╠═══════════════════════════════════════╣");
-        System.out.printf("║  Name   : %-28s║%n", name);
-        System.out.printf("║  Address: %-28s║%n", address);
-        System.out.println("╚═══════════════════════════════════════╝");
+        output.print(out -> {
+            out.println("\n╔═══════════════════════════════════════╗");
+            out.println("║     PARKING LOT CONFIGURED            ║");
+            out.println("╠═══════════════════════════════════════╣");
+            out.printf("║  Name   : %-28s║%n", name);
+            out.printf("║  Address: %-28s║%n", address);
+            out.println("╚═══════════════════════════════════════╝");
+        });
     }
     
     /**
      * Display current hourly rates.
      */
     public void displayRates() {
-        System.out.println("\nCurrent Hourly Rates:");
-        System.out.println("─────────────────────");
-        for (VehicleType type : VehicleType.values()) {
-            System.out.printf("  %s: Rs. %.2f/hour%n", type, parkingLot.getHourlyRate(type));
-        }
-        System.out.println();
+        output.printNow(out -> {
+            out.println("\nCurrent Hourly Rates:");
+            out.println("─────────────────────");
+            for (VehicleType type : VehicleType.values()) {
+                out.printf("  %s: Rs. %.2f/hour%n", type, parkingLot.getHourlyRate(type));
+            }
+            out.println();
+        });
     }
     
     /**
@@ -183,30 +211,36 @@ public class AdminService implements IAdminService {
         Floor floor = parkingLot.getFloor(floorNumber);
         
         if (floor == null) {
-            System.out.println("Error: Floor " + floorNumber + " does not exist.");
+            output.println("Error: Floor " + floorNumber + " does not exist.");
             return false;
         }
         
         if (type == null) {
-            System.out.println("Error: Invalid vehicle type.");
+            output.println("Error: Invalid vehicle type.");
             return false;
         }
         
-        // Find the next slot number for this type
+        // Find the next free slot number for this type's ID prefix, so IDs stay
+        // unique after slots have been deleted or converted
+        String prefix = "F" + floorNumber + "-" + type.getCode() + "W-S";
         int maxSlotNum = 0;
         for (Slot s : floor.getSlotList()) {
-            if (s.getVehicleType() == type) {
-                maxSlotNum++;
+            if (s.getSlotId().startsWith(prefix)) {
+                maxSlotNum = Math.max(maxSlotNum, s.getSlotNumber());
             }
         }
         
+        List<Slot> slots = new ArrayList<>(Math.max(count, 0));
         for (int i = 1; i <= count; i++) {
-            String slotId = "F" + floorNumber + "-" + type.getCode() + "W-S" + (maxSlotNum + i);
-            Slot slot = new Slot(slotId, type, floorNumber, maxSlotNum + i);
-            floor.addSlot(slot);
+            String slotId = prefix + (maxSlotNum + i);
+            slots.add(new Slot(slotId, type, floorNumber, maxSlotNum + i));
+        }
+        floor.addSlots(slots);
+        if (!slots.isEmpty()) {
+            record(JournalEvent.slotsAdded(floorNumber, type, maxSlotNum + 1, slots.size()));
         }
         
-        System.out.println(count + " slots of type " + type.getCode() + "W added to Floor " + floorNumber + " successfully.");
+        output.println(count + " slots of type " + type.getCode() + "W added to Floor " + floorNumber + " successfully.");
         return true;
     }
     
@@ -217,35 +251,28 @@ public class AdminService implements IAdminService {
         Floor floor = parkingLot.getFloor(floorNumber);
         
         if (floor == null) {
-            System.out.println("Error: Floor " + floorNumber + " does not exist.");
+            output.println("Error: Floor " + floorNumber + " does not exist.");
             return false;
         }
         
         if (type == null) {
-            System.out.println("Error: Invalid vehicle type.");
+            output.println("Error: Invalid vehicle type.");
             return false;
         }
         
         int availableToDelete = floor.countAvailableSlotsByType(type);
         
         if (count > availableToDelete) {
-            System.out.println("Error: Only " + availableToDelete + " empty " + type.getCode() + "W slots available to delete.");
+            output.println("Error: Only " + availableToDelete + " empty " + type.getCode() + "W slots available to delete.");
             return false;
         }
         
-        int deleted = 0;
-        List<Slot> toRemove = new ArrayList<>();
-        
-        for (Slot s : floor.getSlotList()) {
-            if (s.getVehicleType() == type && !s.isOccupied() && deleted < count) {
-                toRemove.add(s);
-                deleted++;
-            }
+        List<Slot> deleted = floor.removeEmptySlots(type, count);
+        if (!deleted.isEmpty()) {
+            record(JournalEvent.slotsRemoved(floorNumber, slotIds(deleted)));
         }
         
-        floor.getSlotList().removeAll(toRemove);
-        
-        System.out.println(deleted + " slots of type " + type.getCode() + "W deleted from Floor " + floorNumber + " successfully.");
+        output.println(deleted.size() + " slots of type " + type.getCode() + "W deleted from Floor " + floorNumber + " successfully.");
         return true;
     }
     
@@ -256,14 +283,17 @@ public class AdminService implements IAdminService {
         Slot slot = parkingLot.findSlotById(slotId);
         
         if (slot == null) {
-            System.out.println("Error: Slot " + slotId + " not found.");
+            output.println("Error: Slot " + slotId + " not found.");
             return false;
         }
         
         slot.setReserved(reserved);
+        record(JournalEvent.reserve(slotId, reserved));
         
-        System.out.println("Slot " + slotId + " updated successfully.");
-        System.out.println("  Reserved: " + (reserved ? "Yes" : "No"));
+        output.print(out -> {
+            out.println("Slot " + slotId + " updated successfully.");
+            out.println("  Reserved: " + (reserved ? "Yes" : "No"));
+        });
         
         return true;
     }
@@ -279,15 +309,17 @@ public class AdminService implements IAdminService {
             throw new NoFloorsConfiguredException();
         }
         
-        System.out.println();
-        System.out.println("╔══════════════════════════════════════════════════════════════════════════════╗");
-        System.out.println("║                        ALL FLOORS - SLOT STATUS                              ║");
-        System.out.println("║                  [ ] = Available    [X] = Occupied    [R] = Reserved         ║");
-        System.out.println("╚══════════════════════════════════════════════════════════════════════════════╝");
+        output.printNow(out -> {
+            out.println();
+            out.println("╔══════════════════════════════════════════════════════════════════════════════╗");
+            out.println("║                        ALL FLOORS - SLOT STATUS                              ║");
+            out.println("║                  [ ] = Available    [X] = Occupied    [R] = Reserved         ║");
+            out.println("╚══════════════════════════════════════════════════════════════════════════════╝");
         
-        for (Floor floor : floors) {
-            displayFloorSlots(floor);
-        }
+            for (Floor floor : floors) {
+                displayFloorSlots(out, floor);
+            }
+        });
     }
     
     /**
@@ -297,20 +329,20 @@ public class AdminService implements IAdminService {
         Floor floor = parkingLot.getFloor(floorNumber);
         
         if (floor == null) {
-            System.out.println("Error: Floor " + floorNumber + " does not exist.");
+            output.println("Error: Floor " + floorNumber + " does not exist.");
             return;
         }
         
-        displayFloorSlots(floor);
+        output.printNow(out -> displayFloorSlots(out, floor));
     }
     
-    private void displayFloorSlots(Floor floor) {
-        System.out.println();
-        System.out.println("┌──────────────────────────────────────────────────────────────────────────────┐");
-        System.out.printf("│  FLOOR %d                                                                     │%n", floor.getFloorNumber());
-        System.out.printf("│  Total: %d slots | Available: %d | Occupied: %d                               │%n", 
+    private void displayFloorSlots(PrintStream out, Floor floor) {
+        out.println();
+        out.println("┌──────────────────────────────────────────────────────────────────────────────┐");
+        out.printf("│  FLOOR %d                                                                     │%n", floor.getFloorNumber());
+        out.printf("│  Total: %d slots | Available: %d | Occupied: %d                               │%n", 
             floor.getTotalSlots(), floor.getAvailableSlots(), floor.getOccupiedSlots());
-        System.out.println("├──────────────────────────────────────────────────────────────────────────────┤");
+        out.println("├──────────────────────────────────────────────────────────────────────────────┤");
         
         for (VehicleType type : VehicleType.values()) {
             List<Slot> slots = new ArrayList<>();
@@ -328,19 +360,19 @@ public class AdminService implements IAdminService {
             int total = floor.countSlotsByType(type);
             //int occupied = floor.countOccupiedSlotsByType(type);
             
-            System.out.printf("│  %s (%d/%d available)                                          │%n", 
+            out.printf("│  %s (%d/%d available)                                          │%n", 
                 type.getCode() + "W - " + type.getDescription(), available, total);
-            System.out.print("│  ");
+            out.print("│  ");
             
             int count = 0;
             for (Slot slot : slots) {
                 String symbol = getSlotSymbol(slot);
-                System.out.print(symbol + " ");
+                out.print(symbol + " ");
                 count++;
                 
                 if (count % 15 == 0 && count < slots.size()) {
-                    System.out.println("│");
-                    System.out.print("│  ");
+                    out.println("│");
+                    out.print("│  ");
                 }
             }
             
@@ -348,13 +380,13 @@ public class AdminService implements IAdminService {
             int remaining = 15 - (count % 15);
             if (count % 15 != 0) {
                 for (int i = 0; i < remaining; i++) {
-                    System.out.print("    ");
+                    out.print("    ");
                 }
             }
-            System.out.println("│");
+            out.println("│");
         }
         
-        System.out.println("└──────────────────────────────────────────────────────────────────────────────┘");
+        out.println("└──────────────────────────────────────────────────────────────────────────────┘");
     }
     
     private String getSlotSymbol(Slot slot) {
@@ -374,23 +406,25 @@ public class AdminService implements IAdminService {
         Slot slot = parkingLot.findSlotById(slotId);
         
         if (slot == null) {
-            System.out.println("Error: Slot " + slotId + " not found.");
+            output.println("Error: Slot " + slotId + " not found.");
             return;
         }
         
-        System.out.println();
-        System.out.println("┌─────────────────────────────────────┐");
-        System.out.println("│         SLOT DETAILS                │");
-        System.out.println("├─────────────────────────────────────┤");
-        System.out.printf("│  Slot ID    : %-21s │%n", slot.getSlotId());
-        System.out.printf("│  Floor      : %-21d │%n", slot.getFloorNumber());
-        System.out.printf("│  Type       : %-21s │%n", slot.getVehicleType().getCode() + "W");
-        System.out.printf("│  Status     : %-21s │%n", slot.isOccupied() ? "OCCUPIED" : "AVAILABLE");
-        System.out.printf("│  Reserved   : %-21s │%n", slot.isReserved() ? "Yes" : "No");
-        if (slot.isOccupied() && slot.getParkedVehicle() != null) {
-            System.out.printf("│  Vehicle    : %-21s │%n", slot.getParkedVehicle().getVehicleNumber());
-        }
-        System.out.println("└─────────────────────────────────────┘");
+        output.printNow(out -> {
+            out.println();
+            out.println("┌─────────────────────────────────────┐");
+            out.println("│         SLOT DETAILS                │");
+            out.println("├─────────────────────────────────────┤");
+            out.printf("│  Slot ID    : %-21s │%n", slot.getSlotId());
+            out.printf("│  Floor      : %-21d │%n", slot.getFloorNumber());
+            out.printf("│  Type       : %-21s │%n", slot.getVehicleType().getCode() + "W");
+            out.printf("│  Status     : %-21s │%n", slot.isOccupied() ? "OCCUPIED" : "AVAILABLE");
+            out.printf("│  Reserved   : %-21s │%n", slot.isReserved() ? "Yes" : "No");
+            if (slot.isOccupied() && slot.getParkedVehicle() != null) {
+                out.printf("│  Vehicle    : %-21s │%n", slot.getParkedVehicle().getVehicleNumber());
+            }
+            out.println("└─────────────────────────────────────┘");
+        });
     }
     
     /**
@@ -399,4 +433,27 @@ public class AdminService implements IAdminService {
     public List<Floor> getAllFloors() {
         return parkingLot.getFloors();
     }
+
+    /**
+     * Append an event to the journal, if one is set.
+     */
+    private void record(JournalEvent event) {
+        Journal current = journal;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.append(event);
+        } catch (JournalException e) {
+            output.println("Error: " + e.getMessage());
+        }
+    }
+    
+    private static List<String> slotIds(List<Slot> slots) {
+        List<String> ids = new ArrayList<>(slots.size());
+        for (Slot s : slots) {
+            ids.add(s.getSlotId());
+        }
+        return ids;
+    }
 }
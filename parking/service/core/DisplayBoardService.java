@@ -5,17 +5,128 @@ import com.parking.exception.NoFloorsConfiguredException;
 import com.parking.model.*;
 import com.parking.service.interfaces.IDisplayBoardService;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Display Board service for showing real-time parking availability.
  * Implements IDisplayBoardService interface for Dependency Inversion.
+ *
+ * The service listens to slot changes and keeps a rendered row per floor.
+ * A change only marks its floor's row dirty; the next refresh re-renders
+ * the dirty rows and reuses every other row, and a refresh with nothing
+ * changed hands back the previous board. Refresh cost therefore depends on
+ * how many floors changed, not on how many slots the lot has, so many
+ * physical boards can poll every second.
+ *
+ * Finished boards are held in {@link FrameCache}s keyed on the lot's state
+ * version: polls between changes write the cached bytes without formatting
+ * anything. With a maximum refresh rate set, an exit burst produces at most
+ * that many new frames per second and polls in between see the last one.
+ *
+ * Boards are made by {@link #open()}, already following the lot, and stop
+ * at {@link #close()}; a closed board re-reads every row when it renders.
+ * Gates built without a board of their own share {@link #shared()}, so they
+ * do not each add a listener to the lot.
  */
-public class DisplayBoardService implements IDisplayBoardService {
+public class DisplayBoardService implements IDisplayBoardService, SlotStateListener {
+    
+    private static final String NL = System.lineSeparator();
+    private static final VehicleType[] TYPES = VehicleType.values();
     
     private ParkingLot parkingLot;
+    private final Map<Integer, FloorRow> rows = new ConcurrentHashMap<>();
+    private final Queue<FloorRow> dirtyRows = new ConcurrentLinkedQueue<>();
+    private final Object renderLock = new Object();
+    private List<FloorRow> boardRows = new ArrayList<>();     // Rows in the cached board, guarded by renderLock
+    private String board;                                      // Guarded by renderLock
+    private final FrameCache boardFrame;
+    private final FrameCache compactFrame;
+    private volatile Summary summary;
+    private volatile boolean attached;                         // Written under this
+    
+    private static DisplayBoardService shared;                 // Guarded by DisplayBoardService.class
     
-    public DisplayBoardService() {
+    private DisplayBoardService(int maxFramesPerSecond) {
         this.parkingLot = ParkingLot.getInstance();
+        this.boardFrame = new FrameCache(parkingLot::getStateVersion, this::renderChangedRows, maxFramesPerSecond);
+        this.compactFrame = new FrameCache(parkingLot::getStateVersion, this::renderCompactView, maxFramesPerSecond);
+    }
+    
+    /**
+     * A board following the current lot, re-rendered on every change.
+     */
+    public static DisplayBoardService open() {
+        return open(0);
+    }
+    
+    /**
+     * A board following the current lot.
+     * @param maxFramesPerSecond Most times per second a changing board is re-rendered, or 0 for every change
+     */
+    public static DisplayBoardService open(int maxFramesPerSecond) {
+        DisplayBoardService board = new DisplayBoardService(maxFramesPerSecond);
+        board.attach();
+        return board;
+    }
+    
+    /**
+     * The board shared by gates that were not given one, attached to the
+     * current lot. Created on first use and again after the lot is reset.
+     */
+    public static synchronized DisplayBoardService shared() {
+        if (shared == null || shared.parkingLot != ParkingLot.getInstance()) {
+            if (shared != null) {
+                shared.close();
+            }
+            shared = open();
+        }
+        return shared;
+    }
+    
+    /**
+     * Limit how often a changing board is re-rendered; 0 re-renders on every change.
+     */
+    public void setMaxFramesPerSecond(int maxFramesPerSecond) {
+        boardFrame.setMaxFramesPerSecond(maxFramesPerSecond);
+        compactFrame.setMaxFramesPerSecond(maxFramesPerSecond);
+    }
+    
+    private synchronized void attach() {
+        parkingLot.addSlotStateListener(this);
+        attached = true;
+    }
+    
+    /**
+     * Stop listening to the lot, e.g. when a board is taken out of service.
+     * Later renders re-read every floor instead of only the changed ones.
+     */
+    public synchronized void close() {
+        if (!attached) {
+            return;
+        }
+        parkingLot.removeSlotStateListener(this);
+        attached = false;
+    }
+    
+    @Override
+    public void slotAdded(Slot slot) {
+        markDirty(slot.getFloorNumber());
+    }
+    
+    @Override
+    public void slotChanged(Slot slot, int previousState, int newState) {
+        if (Slot.typeOf(previousState) != Slot.typeOf(newState)
+                || Slot.isAvailable(previousState) != Slot.isAvailable(newState)
+                || Slot.isOccupied(previousState) != Slot.isOccupied(newState)) {
+            markDirty(slot.getFloorNumber());
+        }
+    }
+    
+    @Override
+    public void slotRemoved(Slot slot) {
+        markDirty(slot.getFloorNumber());
     }
     
     public void update(Floor floor) {
@@ -24,84 +135,194 @@ public class DisplayBoardService implements IDisplayBoardService {
             return;
         }
         
-        System.out.println("\n┌────────────────────────────────────────────────────┐");
-        System.out.printf("│           FLOOR %d AVAILABILITY                     │%n", floor.getFloorNumber());
-        System.out.println("├────────────────────────────────────────────────────┤");
-        
-        for (VehicleType type : VehicleType.values()) {
-            int available = floor.countAvailableSlotsByType(type);
-            int total = floor.countSlotsByType(type);
-            int occupied = floor.countOccupiedSlotsByType(type);
-            
-            String bar = generateProgressBar(occupied, total);
-            
-            System.out.printf("│  %s: %s %d/%d │%n", 
-                String.format("%-12s", type.getDescription()), bar, available, total);
+        String panel;
+        synchronized (renderLock) {
+            FloorRow row = rows.computeIfAbsent(floor.getFloorNumber(), FloorRow::new);
+            if (row.floor != floor || row.dirty.get() || !attached) {
+                refresh(row, floor);
+            }
+            if (row.panel == null) {
+                row.panel = renderPanel(row);
+            }
+            panel = row.panel;
         }
-        
-        System.out.println("└────────────────────────────────────────────────────┘");
+        System.out.print(panel);
     }
     
+    /**
+     * @throws NoFloorsConfiguredException if no floors are configured
+     */
     public void showAllFloorsAvailability() {
-        List<Floor> floors = parkingLot.getFloors();
-        
-        if (floors.isEmpty()) {
+        if (parkingLot.getFloors().isEmpty()) {
             throw new NoFloorsConfiguredException();
         }
-        
-        System.out.println();
-        System.out.println("╔══════════════════════════════════════════════════════════════════════╗");
-        System.out.println("║                     PARKING LOT DISPLAY BOARD                        ║");
-        System.out.println("╠══════════════════════════════════════════════════════════════════════╣");
+        boardFrame.writeTo(System.out);
+    }
+    
+    /**
+     * Render the all-floors board, re-rendering only the floors that changed
+     * since the last call.
+     * @throws NoFloorsConfiguredException if no floors are configured
+     */
+    public String renderAllFloors() {
+        if (parkingLot.getFloors().isEmpty()) {
+            throw new NoFloorsConfiguredException();
+        }
+        return boardFrame.get();
+    }
+    
+    /**
+     * Bring the board up to date with the floors that changed. Slot events
+     * that don't change the board, such as a reservation on an occupied slot,
+     * still move the lot's version on; the previous board is returned for them.
+     */
+    private String renderChangedRows() {
+        List<Floor> floors = parkingLot.getFloors();
+        synchronized (renderLock) {
+            if (!attached) {
+                // Closed boards hear no slot events
+                for (Integer floorNumber : rows.keySet()) {
+                    markDirty(floorNumber);
+                }
+            }
+            boolean changed = false;
+            FloorRow row;
+            while ((row = dirtyRows.poll()) != null) {
+                refresh(row, parkingLot.getFloor(row.floorNumber));
+                changed = true;
+            }
+            
+            // Floors added without slots, removed, reordered or closed send no slot events
+            changed |= board == null || floors.size() != boardRows.size();
+            for (int i = 0; i < floors.size() && !changed; i++) {
+                Floor floor = floors.get(i);
+                FloorRow cached = boardRows.get(i);
+                changed = cached.floor != floor || cached.operational != floor.isOperational();
+            }
+            if (changed) {
+                board = renderBoard(floors);
+            }
+            return board;
+        }
+    }
+    
+    private String renderBoard(List<Floor> floors) {
+        List<FloorRow> current = new ArrayList<>(floors.size());
+        StringBuilder sb = new StringBuilder(256 + floors.size() * 96);
+        sb.append(NL);
+        sb.append("╔══════════════════════════════════════════════════════════════════════╗").append(NL);
+        sb.append("║                     PARKING LOT DISPLAY BOARD                        ║").append(NL);
+        sb.append("╠══════════════════════════════════════════════════════════════════════╣").append(NL);
         
         // Header
-        System.out.println("║  Floor  │   2W (Bikes)   │   4W (Cars)    │   6W (Bus)     │  Total  ║");
-        System.out.println("╠═════════╪════════════════╪════════════════╪════════════════╪═════════╣");
+        sb.append("║  Floor  │   2W (Bikes)   │   4W (Cars)    │   6W (Bus)     │  Total  ║").append(NL);
+        sb.append("╠═════════╪════════════════╪════════════════╪════════════════╪═════════╣").append(NL);
         
         int totalAvailable = 0;
         int totalCapacity = 0;
         
         for (Floor floor : floors) {
-            int tw = floor.countAvailableSlotsByType(VehicleType.TWO_WHEELER);
-            int twT = floor.countSlotsByType(VehicleType.TWO_WHEELER);
-            int fw = floor.countAvailableSlotsByType(VehicleType.FOUR_WHEELER);
-            int fwT = floor.countSlotsByType(VehicleType.FOUR_WHEELER);
-            int sw = floor.countAvailableSlotsByType(VehicleType.SIX_WHEELER);
-            int swT = floor.countSlotsByType(VehicleType.SIX_WHEELER);
-            
-            int floorAvailable = tw + fw + sw;
-            int floorTotal = twT + fwT + swT;
-            
-            totalAvailable += floorAvailable;
-            totalCapacity += floorTotal;
-            
-            String status = floor.isOperational() ? "" : " [CLOSED]";
-            
-            System.out.printf("║    %d%s   │    %3d/%-3d     │    %3d/%-3d     │    %3d/%-3d     │  %3d/%-3d ║%n",
-                floor.getFloorNumber(), status, tw, twT, fw, fwT, sw, swT, floorAvailable, floorTotal);
+            FloorRow row = rows.computeIfAbsent(floor.getFloorNumber(), FloorRow::new);
+            if (row.floor != floor || row.operational != floor.isOperational() || row.line == null) {
+                refresh(row, floor);
+            }
+            current.add(row);
+            totalAvailable += row.floorAvailable;
+            totalCapacity += row.floorTotal;
+            sb.append(row.line);
         }
         
-        System.out.println("╠═════════╧════════════════╧════════════════╧════════════════╧═════════╣");
-        System.out.printf("║  TOTAL AVAILABLE: %-18d TOTAL CAPACITY: %-14d ║%n", 
-            totalAvailable, totalCapacity);
+        sb.append("╠═════════╧════════════════╧════════════════╧════════════════╧═════════╣").append(NL);
+        sb.append(String.format("║  TOTAL AVAILABLE: %-18d TOTAL CAPACITY: %-14d ║%n",
+            totalAvailable, totalCapacity));
         
         // Status indicator
         double occupancy = totalCapacity > 0 ? ((double)(totalCapacity - totalAvailable) / totalCapacity) * 100 : 0;
         String statusIndicator = getStatusIndicator(occupancy);
-        System.out.printf("║  OCCUPANCY: %.1f%% %s                                             ║%n", 
-            occupancy, statusIndicator);
+        sb.append(String.format("║  OCCUPANCY: %.1f%% %s                                             ║%n",
+            occupancy, statusIndicator));
+        
+        sb.append("╚══════════════════════════════════════════════════════════════════════╝").append(NL);
+        boardRows = current;
+        return sb.toString();
+    }
+    
+    /**
+     * Re-read a floor's counts and re-render its row. Called with renderLock held.
+     */
+    private void refresh(FloorRow row, Floor floor) {
+        // Clear the flag first: a change after this point queues the row again
+        row.dirty.set(false);
+        if (floor == null) {
+            rows.remove(row.floorNumber, row);
+            return;
+        }
+        row.floor = floor;
+        row.operational = floor.isOperational();
+        row.floorAvailable = 0;
+        row.floorTotal = 0;
+        for (VehicleType type : TYPES) {
+            int t = type.ordinal();
+            row.available[t] = floor.countAvailableSlotsByType(type);
+            row.total[t] = floor.countSlotsByType(type);
+            row.occupied[t] = floor.countOccupiedSlotsByType(type);
+            row.floorAvailable += row.available[t];
+            row.floorTotal += row.total[t];
+        }
         
-        System.out.println("╚══════════════════════════════════════════════════════════════════════╝");
+        String status = row.operational ? "" : " [CLOSED]";
+        int tw = VehicleType.TWO_WHEELER.ordinal();
+        int fw = VehicleType.FOUR_WHEELER.ordinal();
+        int sw = VehicleType.SIX_WHEELER.ordinal();
+        row.line = String.format("║    %d%s   │    %3d/%-3d     │    %3d/%-3d     │    %3d/%-3d     │  %3d/%-3d ║%n",
+            floor.getFloorNumber(), status, row.available[tw], row.total[tw], row.available[fw], row.total[fw],
+            row.available[sw], row.total[sw], row.floorAvailable, row.floorTotal);
+        row.panel = null;
     }
     
+    private String renderPanel(FloorRow row) {
+        StringBuilder sb = new StringBuilder(512);
+        sb.append(NL).append("┌────────────────────────────────────────────────────┐").append(NL);
+        sb.append(String.format("│           FLOOR %d AVAILABILITY                     │%n", row.floorNumber));
+        sb.append("├────────────────────────────────────────────────────┤").append(NL);
+        
+        for (VehicleType type : TYPES) {
+            int t = type.ordinal();
+            String bar = generateProgressBar(row.occupied[t], row.total[t]);
+            sb.append(String.format("│  %s: %s %d/%d │%n",
+                String.format("%-12s", type.getDescription()), bar, row.available[t], row.total[t]));
+        }
+        
+        sb.append("└────────────────────────────────────────────────────┘").append(NL);
+        return sb.toString();
+    }
+    
+    private void markDirty(int floorNumber) {
+        FloorRow row = rows.computeIfAbsent(floorNumber, FloorRow::new);
+        if (row.dirty.compareAndSet(false, true)) {
+            dirtyRows.add(row);
+        }
+    }
+    
+    /**
+     * Availability summary per floor number. The map is read-only and is
+     * shared by callers until the lot's state changes.
+     */
     public Map<Integer, String> getAvailabilitySummary() {
-        Map<Integer, String> summary = new LinkedHashMap<>();
+        long version = parkingLot.getStateVersion();
+        Summary cached = summary;
+        if (cached != null && cached.version == version) {
+            return cached.byFloor;
+        }
         
+        Map<Integer, String> byFloor = new LinkedHashMap<>();
         for (Floor floor : parkingLot.getFloors()) {
-            summary.put(floor.getFloorNumber(), floor.getAvailabilitySummary());
+            byFloor.put(floor.getFloorNumber(), floor.getAvailabilitySummary());
         }
         
-        return summary;
+        Map<Integer, String> result = Collections.unmodifiableMap(byFloor);
+        summary = new Summary(version, result);
+        return result;
     }
     
     /**
@@ -112,19 +333,24 @@ public class DisplayBoardService implements IDisplayBoardService {
         if (parkingLot.getFloors().isEmpty()) {
             throw new NoFloorsConfiguredException();
         }
+        compactFrame.writeTo(System.out);
+    }
+    
+    private String renderCompactView() {
+        StringBuilder sb = new StringBuilder(384);
+        sb.append(NL).append("┌─────────────────────────────────────┐").append(NL);
+        sb.append("│       PARKING AVAILABILITY          │").append(NL);
+        sb.append("├─────────────────────────────────────┤").append(NL);
         
-        System.out.println("\n┌─────────────────────────────────────┐");
-        System.out.println("│       PARKING AVAILABILITY          │");
-        System.out.println("├─────────────────────────────────────┤");
-        
-        for (VehicleType type : VehicleType.values()) {
+        for (VehicleType type : TYPES) {
             int available = parkingLot.getAvailableSlotsByType(type);
             String status = available > 0 ? "✓ AVAILABLE" : "✗ FULL     ";
-            System.out.printf("│  %s: %3d slots %-11s │%n", 
-                type.getCode() + "W", available, status);
+            sb.append(String.format("│  %s: %3d slots %-11s │%n",
+                type.getCode() + "W", available, status));
         }
         
-        System.out.println("└─────────────────────────────────────┘");
+        sb.append("└─────────────────────────────────────┘").append(NL);
+        return sb.toString();
     }
     
     /**
@@ -216,4 +442,38 @@ public class DisplayBoardService implements IDisplayBoardService {
         }
         return sb.toString();
     }
+    
+    /**
+     * The per-floor summary map as of a lot state version.
+     */
+    private static final class Summary {
+        final long version;
+        final Map<Integer, String> byFloor;
+        
+        Summary(long version, Map<Integer, String> byFloor) {
+            this.version = version;
+            this.byFloor = byFloor;
+        }
+    }
+    
+    /**
+     * One floor's counts and rendered text, as of its last refresh.
+     */
+    private static final class FloorRow {
+        final int floorNumber;
+        final AtomicBoolean dirty = new AtomicBoolean();
+        final int[] available = new int[TYPES.length];
+        final int[] total = new int[TYPES.length];
+        final int[] occupied = new int[TYPES.length];
+        Floor floor;
+        boolean operational;
+        int floorAvailable;
+        int floorTotal;
+        String line;
+        String panel;
+        
+        FloorRow(int floorNumber) {
+            this.floorNumber = floorNumber;
+        }
+    }
 }
@@ -1,9 +1,13 @@
 package com.parking.service.core;
 
+import com.parking.jfr.GateEvent;
+import com.parking.jfr.ParkingEvents;
 import com.parking.model.*;
+import com.parking.output.OutputSink;
 import com.parking.service.interfaces.IEntryGateHandler;
 import com.parking.service.interfaces.IDisplayBoardService;
 import com.parking.service.interfaces.IParkingService;
+import java.io.PrintStream;
 
 /**
  * Entry Gate Handler for processing vehicle entries.
@@ -15,11 +19,12 @@ public class EntryGateHandler implements IEntryGateHandler {
     private String gateId;
     private IParkingService parkingService;
     private IDisplayBoardService displayBoard;
+    private volatile OutputSink output = OutputSink.console();
     
     public EntryGateHandler(String gateId, IParkingService parkingService) {
         this.gateId = gateId;
         this.parkingService = parkingService;
-        this.displayBoard = new DisplayBoardService();
+        this.displayBoard = DisplayBoardService.shared();
     }
     
     /**
@@ -31,36 +36,39 @@ public class EntryGateHandler implements IEntryGateHandler {
         this.displayBoard = displayBoard;
     }
     
+    /**
+     * Set where this gate's banners are written.
+     * @param output The sink, or null to discard the output
+     */
+    public void setOutputSink(OutputSink output) {
+        this.output = output != null ? output : OutputSink.silent();
+    }
+    
     /**
      * Process vehicle entry through this gate.
      */
     public Ticket processEntry(Vehicle vehicle) {
-        System.out.println("\n╔═══════════════════════════════════════╗");
-        System.out.printf("║       ENTRY GATE %s                    ║%n", gateId);
-        System.out.println("╠═══════════════════════════════════════╣");
+        GateEvent event = new GateEvent();
+        event.begin();
         
         // Check availability first
         ParkingLot lot = ParkingLot.getInstance();
         int available = lot.getAvailableSlotsByType(vehicle.getVehicleType());
-        
-        if (available == 0) {
-            System.out.println("║  ⚠ SORRY! No slots available for      ║");
-            System.out.printf("║    %s                               ║%n", vehicle.getVehicleType());
-            System.out.println("╚═══════════════════════════════════════╝");
-            return null;
-        }
-        
-        System.out.printf("║  Vehicle: %-27s ║%n", vehicle.getVehicleNumber());
-        System.out.printf("║  Type   : %-27s ║%n", vehicle.getVehicleType());
-        System.out.println("╚═══════════════════════════════════════╝");
+        boolean full = available == 0;
+        output.print(out -> printBanner(out, gateId, vehicle, full));
         
         // Park the vehicle
-        Ticket ticket = parkingService.parkVehicle(vehicle);
+        Ticket ticket = full ? null : parkingService.parkVehicle(vehicle, gateId);
         
-        if (ticket != null) {
-            ticket.setEntryGateId(gateId);
+        event.end();
+        if (event.shouldCommit()) {
+            event.gateId = gateId;
+            event.operation = GateEvent.ENTRY;
+            event.vehicleType = ParkingEvents.typeName(vehicle.getVehicleType());
+            event.ticketId = ticket != null ? ticket.getTicketId() : null;
+            event.succeeded = ticket != null;
+            event.commit();
         }
-        
         return ticket;
     }
     
@@ -79,6 +87,21 @@ public class EntryGateHandler implements IEntryGateHandler {
         return lot.getAvailableSlotsByType(type) > 0;
     }
     
+    private static void printBanner(PrintStream out, String gateId, Vehicle vehicle, boolean full) {
+        out.println("\n╔═══════════════════════════════════════╗");
+        out.printf("║       ENTRY GATE %s                    ║%n", gateId);
+        out.println("╠═══════════════════════════════════════╣");
+        
+        if (full) {
+            out.println("║  ⚠ SORRY! No slots available for      ║");
+            out.printf("║    %s                               ║%n", vehicle.getVehicleType());
+        } else {
+            out.printf("║  Vehicle: %-27s ║%n", vehicle.getVehicleNumber());
+            out.printf("║  Type   : %-27s ║%n", vehicle.getVehicleType());
+        }
+        out.println("╚═══════════════════════════════════════╝");
+    }
+    
     public String getGateId() {
         return gateId;
     }
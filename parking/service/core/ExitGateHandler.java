@@ -2,7 +2,11 @@ package com.parking.service.core;
 
 import com.parking.exception.InvalidTicketException;
 import com.parking.exception.VehicleNotFoundException;
+import com.parking.jfr.GateEvent;
+import com.parking.jfr.ParkingEvents;
+import com.parking.metrics.MetricsRegistry;
 import com.parking.model.*;
+import com.parking.output.OutputSink;
 import com.parking.service.interfaces.IExitGateHandler;
 import com.parking.service.interfaces.IParkingService;
 
@@ -15,37 +19,61 @@ public class ExitGateHandler implements IExitGateHandler {
     
     private String gateId;
     private IParkingService parkingService;
+    private volatile OutputSink output = OutputSink.console();
+    private volatile MetricsRegistry metrics;
     
     public ExitGateHandler(String gateId, IParkingService parkingService) {
         this.gateId = gateId;
         this.parkingService = parkingService;
     }
     
+    /**
+     * Set where this gate's banners are written.
+     * @param output The sink, or null to discard the output
+     */
+    public void setOutputSink(OutputSink output) {
+        this.output = output != null ? output : OutputSink.silent();
+    }
+    
+    /**
+     * Set the registry that lost-ticket timings are recorded in.
+     * @param metrics The registry, or null to stop recording
+     */
+    public void setMetrics(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+    
     /**
      * Process vehicle exit through this gate.
      * @throws InvalidTicketException if the ticket ID is invalid
      */
     public boolean processExit(String ticketId) {
+        GateEvent event = new GateEvent();
+        event.begin();
+        
         // Validate ticket first
         Ticket ticket = parkingService.getTicket(ticketId);
         
         if (ticket == null) {
+            commit(event, GateEvent.EXIT, null, ticketId, false);
             throw new InvalidTicketException(ticketId);
         }
         
         // Show gate header only for valid tickets
-        System.out.println("\n╔═══════════════════════════════════════╗");
-        System.out.printf("║        EXIT GATE %s                    ║%n", gateId);
-        System.out.println("╚═══════════════════════════════════════╝");
+        output.print(out -> {
+            out.println("\n╔═══════════════════════════════════════╗");
+            out.printf("║        EXIT GATE %s                    ║%n", gateId);
+            out.println("╚═══════════════════════════════════════╝");
+        });
         
         // Process exit
-        boolean success = parkingService.unparkVehicle(ticketId);
+        boolean success = parkingService.unparkVehicle(ticketId, gateId);
         
         if (success) {
-            ticket.setExitGateId(gateId);
-            System.out.println("✓ Vehicle exited successfully. Have a nice day!");
+            output.println("✓ Vehicle exited successfully. Have a nice day!");
         }
         
+        commit(event, GateEvent.EXIT, ticket, ticketId, success);
         return success;
     }
     
@@ -54,37 +82,59 @@ public class ExitGateHandler implements IExitGateHandler {
      * @throws VehicleNotFoundException if the vehicle is not found in parking records
      */
     public boolean processLostTicket(String vehicleNumber) {
+        GateEvent event = new GateEvent();
+        event.begin();
+        MetricsRegistry m = metrics;
+        long start = m != null ? System.nanoTime() : 0;
+        
         // Find ticket by vehicle number first
         Ticket ticket = parkingService.findTicketByVehicle(vehicleNumber);
         
         if (ticket == null) {
+            if (m != null) {
+                m.lostTicket().record(gateId, null, start, false);
+            }
+            commit(event, GateEvent.LOST_TICKET, null, null, false);
             throw new VehicleNotFoundException(vehicleNumber);
         }
         
         // Show header only for valid vehicle
-        System.out.println("\n╔═══════════════════════════════════════╗");
-        System.out.println("║        LOST TICKET PROCESSING         ║");
-        System.out.println("╚═══════════════════════════════════════╝");
-        
-        ticket.markAsLost();
+        output.print(out -> {
+            out.println("\n╔═══════════════════════════════════════╗");
+            out.println("║        LOST TICKET PROCESSING         ║");
+            out.println("╚═══════════════════════════════════════╝");
+        });
         
-        // Apply lost ticket penalty (double the fare)
-        double fare = calculateFare(ticket) * 2;
-        System.out.println("⚠ Lost ticket penalty applied: 2x parking fee");
-        System.out.printf("Amount Due: Rs. %.2f%n", fare);
+        // The exit below charges the lost-ticket penalty on top of the fare
+        parkingService.reportLostTicket(ticket);
+        double fare = parkingService.quoteFare(ticket);
+        output.print(out -> {
+            out.printf("⚠ Lost ticket penalty applied: %.0fx parking fee%n", ParkingService.LOST_TICKET_MULTIPLIER);
+            out.printf("Amount Due: Rs. %.2f%n", fare);
+        });
         
         // Process exit
-        return parkingService.unparkVehicle(ticket.getTicketId());
+        boolean closed = parkingService.unparkVehicle(ticket.getTicketId(), gateId);
+        if (m != null) {
+            m.lostTicket().record(gateId, ticket.getVehicleType(), start, closed);
+        }
+        commit(event, GateEvent.LOST_TICKET, ticket, ticket.getTicketId(), closed);
+        return closed;
     }
     
-    public String getGateId() {
-        return gateId;
+    private void commit(GateEvent event, String operation, Ticket ticket, String ticketId, boolean succeeded) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.gateId = gateId;
+            event.operation = operation;
+            event.vehicleType = ticket != null ? ParkingEvents.typeName(ticket.getVehicleType()) : null;
+            event.ticketId = ticketId;
+            event.succeeded = succeeded;
+            event.commit();
+        }
     }
     
-    private double calculateFare(Ticket ticket) {
-        ParkingLot lot = ParkingLot.getInstance();
-        long hours = ticket.getParkingDurationHours();
-        double rate = lot.getHourlyRate(ticket.getVehicleType());
-        return hours * rate;
+    public String getGateId() {
+        return gateId;
     }
 }
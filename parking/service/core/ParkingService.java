@@ -2,11 +2,23 @@
 package com.parking.service.core;
 
 import com.parking.exception.NoFloorsConfiguredException;
+import com.parking.exception.JournalException;
+import com.parking.jfr.ParkEvent;
+import com.parking.jfr.ParkingEvents;
+import com.parking.jfr.UnparkEvent;
+import com.parking.metrics.MetricsRegistry;
 import com.parking.model.*;
+import com.parking.output.OutputSink;
+import com.parking.persistence.Journal;
+import com.parking.persistence.JournalEvent;
+import com.parking.persistence.SlotStateFile;
 import com.parking.service.interfaces.FeeCalculator;
 import com.parking.service.interfaces.IParkingService;
+import com.parking.service.interfaces.IPaymentProcessor;
+import com.parking.service.interfaces.RateProvider;
 import com.parking.service.interfaces.SlotAllocationStrategy;
 import com.parking.service.strategy.*;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -15,13 +27,24 @@ import java.util.concurrent.atomic.AtomicInteger;
  * Follows Single Responsibility Principle - only handles parking operations.
  * Follows Dependency Inversion Principle - depends on abstractions (interfaces).
  * Implements IParkingService interface.
+ * Safe to share between gate threads: slots are claimed atomically and each
+ * ticket can be closed by exactly one exit gate.
  */
 public class ParkingService implements IParkingService {
 
+    /** A lost ticket is charged this many times the fare. */
+    public static final double LOST_TICKET_MULTIPLIER = 2;
+
     private ParkingLot parkingLot;
-    private SlotAllocationStrategy parkingStrategy;  // Depends on interface
-    private FeeCalculator feeCalculator;              // Depends on interface
+    private volatile SlotAllocationStrategy parkingStrategy;  // Depends on interface
+    private volatile FeeCalculator feeCalculator;              // Depends on interface
     private AtomicInteger ticketCounter;
+    private volatile Journal journal;                          // Optional, records every entry and exit
+    private volatile SlotStateFile slotStateFile;              // Optional, mirrors active tickets in their slots
+    private volatile IPaymentProcessor paymentProcessor;       // Optional, books every collected fare
+    private volatile RateProvider rateProvider;                // Optional, locks a rate on each ticket
+    private volatile OutputSink output = OutputSink.console(); // Banners, receipts and errors for the gate
+    private volatile MetricsRegistry metrics;                  // Optional, times every park and unpark
     
     /**
      * Default constructor with default strategies.
@@ -70,48 +93,147 @@ public class ParkingService implements IParkingService {
     public void setFeeCalculator(FeeCalculator calculator) {
         this.feeCalculator = calculator;
     }
+    
+    /**
+     * Set the journal that entries, exits and lost tickets are recorded in.
+     * @param journal The journal, or null to stop recording
+     */
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+    
+    /**
+     * Set the memory-mapped file that active tickets are mirrored in.
+     * @param slotStateFile The file, or null to stop mirroring
+     */
+    public void setSlotStateFile(SlotStateFile slotStateFile) {
+        this.slotStateFile = slotStateFile;
+    }
+    
+    /**
+     * Set the payment processor that fares are booked with when a ticket closes.
+     * @param paymentProcessor The processor, or null to stop booking fares
+     */
+    public void setPaymentProcessor(IPaymentProcessor paymentProcessor) {
+        this.paymentProcessor = paymentProcessor;
+    }
+
+    /**
+     * Set the rate provider whose rate is locked on each new ticket.
+     * @param rateProvider The provider, or null to charge tickets at the rates in force when they exit
+     */
+    public void setRateProvider(RateProvider rateProvider) {
+        this.rateProvider = rateProvider;
+    }
+
+    /**
+     * Set where park and unpark banners, receipts and errors are written.
+     * @param output The sink, e.g. an {@link com.parking.output.AsyncOutputSink} so gates don't
+     *               wait on the console, or null to discard the output
+     */
+    public void setOutputSink(OutputSink output) {
+        this.output = output != null ? output : OutputSink.silent();
+    }
+
+    /**
+     * Set the registry that park, unpark, slot search and fee timings are recorded in.
+     * @param metrics The registry, or null to stop recording
+     */
+    public void setMetrics(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
 
     public Ticket parkVehicle(Vehicle vehicle) {
+        return parkVehicle(vehicle, null);
+    }
+
+    public Ticket parkVehicle(Vehicle vehicle, String entryGateId) {
+        ParkEvent event = new ParkEvent();
+        event.begin();
+        MetricsRegistry m = metrics;
+        long start = m != null ? System.nanoTime() : 0;
+        Ticket ticket = park(vehicle, entryGateId, m);
+        if (m != null) {
+            m.park().record(entryGateId, vehicle != null ? vehicle.getVehicleType() : null, start, ticket != null);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.gateId = entryGateId;
+            event.vehicleType = vehicle != null ? ParkingEvents.typeName(vehicle.getVehicleType()) : null;
+            event.succeeded = ticket != null;
+            if (ticket != null) {
+                event.ticketId = ticket.getTicketId();
+                event.floor = ticket.getFloorNumber();
+                event.slotId = ticket.getSlotId();
+            }
+            event.commit();
+        }
+        return ticket;
+    }
+
+    private Ticket park(Vehicle vehicle, String entryGateId, MetricsRegistry m) {
         if (vehicle == null) {
-            System.out.println("Error: Vehicle cannot be null.");
+            output.println("Error: Vehicle cannot be null.");
             return null;
         }
         
         // Check if vehicle is already parked
         if (isVehicleParked(vehicle.getVehicleNumber())) {
-            System.out.println("Error: Vehicle " + vehicle.getVehicleNumber() + " is already parked.");
+            output.println("Error: Vehicle " + vehicle.getVehicleNumber() + " is already parked.");
             return null;
         }
         
-        // Find available slot using strategy
-        Slot slot = parkingStrategy.findAvailableSlot(parkingLot.getFloors(), vehicle.getVehicleType());
-        
-        if (slot == null) {
-            System.out.println("Error: No available slots for " + vehicle.getVehicleType());
-            return null;
+        // Find and atomically claim a slot using strategy
+        long searchStart = m != null ? System.nanoTime() : 0;
+        Slot slot = parkingStrategy.claimSlot(parkingLot.getFloors(), vehicle);
+        if (m != null) {
+            m.findSlot().record(entryGateId, vehicle.getVehicleType(), searchStart, slot != null);
         }
         
-        // Park the vehicle
-        if (!slot.park(vehicle)) {
-            System.out.println("Error: Failed to park vehicle.");
+        if (slot == null) {
+            output.println("Error: No available slots for " + vehicle.getVehicleType());
             return null;
         }
         
         // Generate ticket
         String ticketId = generateTicketId(slot.getFloorNumber(), vehicle.getVehicleType());
         Ticket ticket = new Ticket(ticketId, vehicle.getVehicleNumber(), 
-            vehicle.getVehicleType(), slot.getSlotId(), slot.getFloorNumber());
+            vehicle.getVehicleType(), slot, parkingLot.getClock().millis());
+        RateProvider rates = rateProvider;
+        if (rates != null) {
+            VehicleType type = vehicle.getVehicleType();
+            ticket.lockHourlyRate(rates.getHourlyRate(type, feeCalculator.getBaseHourlyRate(type)));
+        }
+        if (entryGateId != null) {
+            ticket.setEntryGateId(entryGateId);
+        }
+        
+        // Another gate may have admitted the same vehicle since the check above
+        if (!parkingLot.addActiveTicket(ticket)) {
+            slot.unpark();
+            output.println("Error: Vehicle " + vehicle.getVehicleNumber() + " is already parked.");
+            return null;
+        }
         
-        parkingLot.addActiveTicket(ticket);
+        // Do not hand out a ticket that a restart would forget
+        SlotStateFile stateFile = slotStateFile;
+        if (stateFile != null && !stateFile.ticketIssued(ticket)) {
+            parkingLot.removeActiveTicket(ticket);
+            slot.unpark();
+            output.println("Error: Vehicle " + vehicle.getVehicleNumber() + " not admitted - ticket "
+                + ticketId + " could not be saved to the slot state file.");
+            return null;
+        }
+        if (!record(JournalEvent.park(ticket))) {
+            if (stateFile != null) {
+                stateFile.ticketClosed(ticket);
+            }
+            parkingLot.removeActiveTicket(ticket);
+            slot.unpark();
+            return null;
+        }
         
-        System.out.println("\n╔════════════════════════════════════════╗");
-        System.out.println("║         VEHICLE PARKED SUCCESSFULLY    ║");
-        System.out.println("╠════════════════════════════════════════╣");
-        System.out.printf("║  Ticket ID: %-27s║%n", ticketId);
-        System.out.printf("║  Vehicle  : %-27s║%n", vehicle.getVehicleNumber());
-        System.out.printf("║  Slot     : %-27s║%n", slot.getSlotId());
-        System.out.printf("║  Floor    : %-27d║%n", slot.getFloorNumber());
-        System.out.println("╚════════════════════════════════════════╝");
+        output.print(out -> printParked(out, ticket));
         
         return ticket;
     }
@@ -122,7 +244,7 @@ public class ParkingService implements IParkingService {
     public void parkVehicle(String vehicleNumber, int typeCode) {
         VehicleType type = VehicleType.fromCode(typeCode);
         if (type == null) {
-            System.out.println("Error: Invalid vehicle type.");
+            output.println("Error: Invalid vehicle type.");
             return;
         }
         
@@ -131,39 +253,140 @@ public class ParkingService implements IParkingService {
     }
 
     public boolean unparkVehicle(String ticketId) {
+        return unparkVehicle(ticketId, null);
+    }
+
+    public boolean unparkVehicle(String ticketId, String exitGateId) {
+        UnparkEvent event = new UnparkEvent();
+        event.begin();
+        MetricsRegistry m = metrics;
+        long start = m != null ? System.nanoTime() : 0;
         Ticket ticket = parkingLot.getActiveTicket(ticketId);
-        
+        boolean closed = unpark(ticketId, ticket, exitGateId, m);
+        if (m != null) {
+            m.unpark().record(exitGateId, ticket != null ? ticket.getVehicleType() : null, start, closed);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.gateId = exitGateId;
+            event.ticketId = ticketId;
+            event.succeeded = closed;
+            if (ticket != null) {
+                event.vehicleType = ParkingEvents.typeName(ticket.getVehicleType());
+                event.floor = ticket.getFloorNumber();
+                if (closed) {
+                    event.fare = ticket.getFare();
+                }
+            }
+            event.commit();
+        }
+        return closed;
+    }
+
+    private boolean unpark(String ticketId, Ticket ticket, String exitGateId, MetricsRegistry m) {
         if (ticket == null) {
-            System.out.println("Error: Invalid Ticket ID - " + ticketId);
+            output.println("Error: Invalid Ticket ID - " + ticketId);
             return false;
         }
         
         if (!ticket.isActive()) {
-            System.out.println("Error: Ticket " + ticketId + " has already been used for exit.");
+            output.println("Error: Ticket " + ticketId + " has already been used for exit.");
             return false;
         }
         
+        // Archive the ticket first so that only one exit gate can close it
+        if (!parkingLot.archiveTicket(ticketId)) {
+            output.println("Error: Ticket " + ticketId + " has already been used for exit.");
+            return false;
+        }
+        
+        if (exitGateId != null) {
+            ticket.setExitGateId(exitGateId);
+        }
+        
         // Calculate fare
-        double fare = feeCalculator.calculateFee(ticket);
+        long feeStart = m != null ? System.nanoTime() : 0;
+        double fare = fareFor(ticket);
+        if (m != null) {
+            m.calculateFee().record(exitGateId, ticket.getVehicleType(), feeStart, true);
+        }
+        
+        // Journal the exit before closing the ticket; a restart would otherwise bring it back as parked
+        long exitMillis = parkingLot.getClock().millis();
+        if (!record(JournalEvent.unpark(ticket, fare, exitMillis))) {
+            parkingLot.unarchiveTicket(ticket);
+            output.println("Error: Ticket " + ticketId + " was not closed - its exit could not be recorded.");
+            return false;
+        }
         
         // Close ticket
-        ticket.closeTicket(fare);
+        ticket.closeTicket(fare, exitMillis);
+        parkingLot.recordClosedTicket(ticket);
+        IPaymentProcessor processor = paymentProcessor;
+        if (processor != null) {
+            processor.processPayment(ticket, fare);
+        }
+        SlotStateFile stateFile = slotStateFile;
+        if (stateFile != null) {
+            stateFile.ticketClosed(ticket);
+        }
         
-        // Unpark the vehicle from slot
-        Slot slot = parkingLot.findSlotById(ticket.getSlotId());
+        // Unpark the vehicle from slot, falling back to a lookup for tickets without a slot handle
+        Slot slot = ticket.getSlot();
+        if (slot == null) {
+            slot = parkingLot.findSlotById(ticket.getSlotId());
+        }
         if (slot != null) {
             slot.unpark();
         }
         
-        // Archive the ticket
-        parkingLot.archiveTicket(ticketId);
-        
         // Print receipt
-        System.out.println(ticket.generateReceipt());
+        output.print(out -> out.println(ticket.generateReceipt()));
         
         return true;
     }
 
+    /**
+     * Entry banner for a new ticket, written on whichever thread the output sink formats on.
+     */
+    private static void printParked(PrintStream out, Ticket ticket) {
+        out.println("\n╔════════════════════════════════════════╗");
+        out.println("║         VEHICLE PARKED SUCCESSFULLY    ║");
+        out.println("╠════════════════════════════════════════╣");
+        out.printf("║  Ticket ID: %-27s║%n", ticket.getTicketId());
+        out.printf("║  Vehicle  : %-27s║%n", ticket.getVehicleNumber());
+        out.printf("║  Slot     : %-27s║%n", ticket.getSlotId());
+        out.printf("║  Floor    : %-27d║%n", ticket.getFloorNumber());
+        if (ticket.hasLockedRate()) {
+            out.printf("║  Rate     : Rs. %-23s║%n", String.format("%.2f/hour", ticket.getLockedHourlyRate()));
+        }
+        out.println("╚════════════════════════════════════════╝");
+    }
+
+    public double quoteFare(Ticket ticket) {
+        return fareFor(ticket);
+    }
+    
+    /**
+     * The fee calculator's fare, with the penalty for a lost ticket.
+     */
+    private double fareFor(Ticket ticket) {
+        double fare = feeCalculator.calculateFee(ticket);
+        return ticket.isLost() ? fare * LOST_TICKET_MULTIPLIER : fare;
+    }
+
+    /**
+     * Mark a ticket as lost so that the lost-ticket penalty applies.
+     */
+    public void reportLostTicket(Ticket ticket) {
+        ticket.markAsLost();
+        record(JournalEvent.lostTicket(ticket));
+        SlotStateFile stateFile = slotStateFile;
+        if (stateFile != null) {
+            stateFile.ticketLost(ticket);
+        }
+    }
+
     public boolean isVehicleParked(String vehicleNumber) {
         return parkingLot.isVehicleParked(vehicleNumber);
     }
@@ -226,6 +449,39 @@ public class ParkingService implements IParkingService {
         System.out.println("╚══════════════════════════════════════════════════════════╝");
     }
     
+    /**
+     * Get the number the next ticket will be issued with.
+     */
+    public int getNextTicketNumber() {
+        return ticketCounter.get();
+    }
+    
+    /**
+     * Make sure new tickets are numbered from at least {@code next}, so that
+     * IDs restored during recovery are never issued again.
+     */
+    public void advanceTicketCounter(int next) {
+        ticketCounter.accumulateAndGet(next, Math::max);
+    }
+
+    /**
+     * Append an event to the journal, if one is set.
+     * @return false if the event could not be recorded
+     */
+    private boolean record(JournalEvent event) {
+        Journal current = journal;
+        if (current == null) {
+            return true;
+        }
+        try {
+            current.append(event);
+            return true;
+        } catch (JournalException e) {
+            output.println("Error: " + e.getMessage());
+            return false;
+        }
+    }
+
     private String generateTicketId(int floorNumber, VehicleType type) {
         return String.format("F%d-%dW-T%d", floorNumber, type.getCode(), ticketCounter.getAndIncrement());
     }
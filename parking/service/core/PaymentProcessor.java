@@ -0,0 +1,240 @@
+package com.parking.service.core;
+
+import com.parking.model.ParkingClock;
+import com.parking.model.ParkingLot;
+import com.parking.model.Ticket;
+import com.parking.model.VehicleType;
+import com.parking.output.OutputSink;
+import com.parking.service.interfaces.IPaymentProcessor;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Payment processor that books every fare into running revenue buckets as
+ * the ticket is closed.
+ * Implements IPaymentProcessor interface.
+ *
+ * Revenue is rolled up per minute, hour and day, for the whole lot and per
+ * vehicle type, exit gate and floor, so a report costs one read per bucket
+ * however many tickets have been closed. Safe to share between exit gates
+ * and a dashboard polling every second.
+ */
+public class PaymentProcessor implements IPaymentProcessor {
+
+    private static final String UNKNOWN_GATE = "UNKNOWN";
+
+    private ParkingLot parkingLot;
+    private final RevenueSeries total = new RevenueSeries();
+    private final Map<VehicleType, RevenueSeries> byVehicleType = new EnumMap<>(VehicleType.class);
+    private final Map<String, RevenueSeries> byGate = new ConcurrentHashMap<>();
+    private final Map<Integer, RevenueSeries> byFloor = new ConcurrentHashMap<>();
+    private volatile OutputSink output = OutputSink.console();
+
+    public PaymentProcessor() {
+        this.parkingLot = ParkingLot.getInstance();
+        for (VehicleType type : VehicleType.values()) {
+            byVehicleType.put(type, new RevenueSeries());
+        }
+    }
+
+    /**
+     * Set where payment errors and the revenue report are written.
+     * @param output The sink, or null to discard the output
+     */
+    public void setOutputSink(OutputSink output) {
+        this.output = output != null ? output : OutputSink.silent();
+    }
+
+    /**
+     * Book a collected fare at the ticket's exit time.
+     */
+    @Override
+    public boolean processPayment(Ticket ticket, double amount) {
+        if (ticket == null || !(amount >= 0)) {
+            output.println("Error: Invalid payment amount.");
+            return false;
+        }
+        long at = ticket.hasExited() ? ticket.getExitMillis() : parkingLot.getClock().millis();
+        book(ticket, at, toPaise(amount));
+        return true;
+    }
+
+    /**
+     * Book a refund against the closed ticket's vehicle type, gate and floor.
+     */
+    @Override
+    public boolean processRefund(String ticketId, double amount) {
+        Ticket ticket = parkingLot.findArchivedTicket(ticketId);
+        if (ticket == null) {
+            output.println("Error: No closed ticket " + ticketId + " to refund.");
+            return false;
+        }
+        if (!(amount > 0) || amount > ticket.getFare()) {
+            output.println(String.format("Error: Refund must be between 0 and the fare of Rs. %.2f", ticket.getFare()));
+            return false;
+        }
+        book(ticket, parkingLot.getClock().millis(), -toPaise(amount));
+        return true;
+    }
+
+    @Override
+    public String getPaymentStatus(String ticketId) {
+        if (parkingLot.getActiveTicket(ticketId) != null) {
+            return "PENDING - vehicle is still parked";
+        }
+        Ticket ticket = parkingLot.findArchivedTicket(ticketId);
+        if (ticket == null) {
+            return "UNKNOWN - no such ticket";
+        }
+        return String.format("PAID - Rs. %.2f", ticket.getFare());
+    }
+
+    @Override
+    public String generateReceipt(String ticketId) {
+        Ticket ticket = parkingLot.getActiveTicket(ticketId);
+        if (ticket == null) {
+            ticket = parkingLot.findArchivedTicket(ticketId);
+        }
+        if (ticket == null) {
+            output.println("Error: Invalid Ticket ID - " + ticketId);
+            return null;
+        }
+        return ticket.generateReceipt();
+    }
+
+    @Override
+    public double getTotalRevenue() {
+        return total.total() / 100.0;
+    }
+
+    /**
+     * Revenue for the last {@code days} calendar days, today included.
+     */
+    @Override
+    public double getRevenueForPeriod(int days) {
+        return total.lastDays(currentMinute(), days) / 100.0;
+    }
+
+    /**
+     * Revenue for the last {@code minutes} minutes, the current one included (up to a day).
+     */
+    public double getRevenueForLastMinutes(int minutes) {
+        return total.lastMinutes(currentMinute(), minutes) / 100.0;
+    }
+
+    /**
+     * Revenue for the last {@code hours} hours, the current one included (up to five weeks).
+     */
+    public double getRevenueForLastHours(int hours) {
+        return total.lastHours(currentMinute(), hours) / 100.0;
+    }
+
+    /**
+     * Revenue per vehicle type for the last {@code days} calendar days.
+     */
+    public Map<VehicleType, Double> getRevenueByVehicleType(int days) {
+        long now = currentMinute();
+        Map<VehicleType, Double> revenue = new EnumMap<>(VehicleType.class);
+        for (Map.Entry<VehicleType, RevenueSeries> e : byVehicleType.entrySet()) {
+            revenue.put(e.getKey(), e.getValue().lastDays(now, days) / 100.0);
+        }
+        return revenue;
+    }
+
+    /**
+     * Revenue per exit gate for the last {@code days} calendar days.
+     */
+    public Map<String, Double> getRevenueByGate(int days) {
+        long now = currentMinute();
+        Map<String, Double> revenue = new TreeMap<>();
+        for (Map.Entry<String, RevenueSeries> e : byGate.entrySet()) {
+            revenue.put(e.getKey(), e.getValue().lastDays(now, days) / 100.0);
+        }
+        return revenue;
+    }
+
+    /**
+     * Revenue per floor for the last {@code days} calendar days.
+     */
+    public Map<Integer, Double> getRevenueByFloor(int days) {
+        long now = currentMinute();
+        Map<Integer, Double> revenue = new TreeMap<>();
+        for (Map.Entry<Integer, RevenueSeries> e : byFloor.entrySet()) {
+            revenue.put(e.getKey(), e.getValue().lastDays(now, days) / 100.0);
+        }
+        return revenue;
+    }
+
+    /**
+     * Book the fares of tickets archived in the last {@code days} days, e.g.
+     * after a restart.
+     * @return Number of tickets booked
+     */
+    public int replayArchive(int days) {
+        int booked = 0;
+        LocalDate today = ParkingClock.toLocalDateTime(parkingLot.getClock().millis()).toLocalDate();
+        for (int d = days - 1; d >= 0; d--) {
+            LocalDateTime from = today.minusDays(d).atStartOfDay();
+            for (Ticket ticket : parkingLot.findArchivedTickets(from, from.plusDays(1))) {
+                if (processPayment(ticket, ticket.getFare())) {
+                    booked++;
+                }
+            }
+        }
+        return booked;
+    }
+
+    /**
+     * Display today's revenue and the last 30 days by type, gate and floor.
+     */
+    public void displayRevenue() {
+        output.printNow(out -> {
+            out.println("\n╔════════════════════════════════════════╗");
+            out.println("║              REVENUE                   ║");
+            out.println("╠════════════════════════════════════════╣");
+            out.printf("║  Last hour    : Rs. %-19.2f║%n", getRevenueForLastMinutes(60));
+            out.printf("║  Today        : Rs. %-19.2f║%n", getRevenueForPeriod(1));
+            out.printf("║  Last 30 days : Rs. %-19.2f║%n", getRevenueForPeriod(30));
+            for (Map.Entry<VehicleType, Double> e : getRevenueByVehicleType(30).entrySet()) {
+                out.printf("║    %-10s : Rs. %-19.2f║%n", e.getKey().getCode() + "W", e.getValue());
+            }
+            for (Map.Entry<String, Double> e : getRevenueByGate(30).entrySet()) {
+                out.printf("║    %-10s : Rs. %-19.2f║%n", e.getKey(), e.getValue());
+            }
+            for (Map.Entry<Integer, Double> e : getRevenueByFloor(30).entrySet()) {
+                out.printf("║    %-10s : Rs. %-19.2f║%n", "Floor " + e.getKey(), e.getValue());
+            }
+            out.println("╚════════════════════════════════════════╝");
+        });
+    }
+
+    private void book(Ticket ticket, long at, long paise) {
+        long minute = minuteOf(at);
+        total.add(minute, paise);
+        if (ticket.getVehicleType() != null) {
+            byVehicleType.get(ticket.getVehicleType()).add(minute, paise);
+        }
+        String gate = ticket.getExitGateId() != null ? ticket.getExitGateId() : UNKNOWN_GATE;
+        byGate.computeIfAbsent(gate, g -> new RevenueSeries()).add(minute, paise);
+        byFloor.computeIfAbsent(ticket.getFloorNumber(), f -> new RevenueSeries()).add(minute, paise);
+    }
+
+    private long currentMinute() {
+        return minuteOf(parkingLot.getClock().millis());
+    }
+
+    /**
+     * Minutes since the epoch in local time, so that day buckets follow the calendar.
+     */
+    static long minuteOf(long epochMillis) {
+        return Math.floorDiv(ParkingClock.toLocalMillis(epochMillis), 60_000);
+    }
+
+    private static long toPaise(double amount) {
+        return Math.round(amount * 100);
+    }
+}
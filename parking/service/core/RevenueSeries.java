@@ -0,0 +1,98 @@
+package com.parking.service.core;
+
+/**
+ * Running revenue for one slice of traffic (all of it, one vehicle type, one
+ * gate or one floor), in per-minute, per-hour and per-day buckets.
+ *
+ * Each granularity is a ring of buckets stamped with the period they hold;
+ * a bucket is reset when the ring comes round to a newer period, so memory
+ * is fixed and a query only reads the buckets it covers. Amounts are kept in
+ * paise so that sums are exact.
+ */
+final class RevenueSeries {
+
+    static final int MINUTES = 24 * 60;         // The last day, by minute
+    static final int HOURS = 35 * 24;           // The last five weeks, by hour
+    static final int DAYS = 400;                // The last thirteen months, by day
+
+    private final Ring minutes = new Ring(MINUTES);
+    private final Ring hours = new Ring(HOURS);
+    private final Ring days = new Ring(DAYS);
+    private long totalPaise;
+    private long payments;
+
+    /**
+     * Add an amount to the buckets of the minute it was collected in.
+     * @param minute Minutes since the epoch, in local time
+     */
+    synchronized void add(long minute, long paise) {
+        minutes.add(minute, paise);
+        hours.add(Math.floorDiv(minute, 60), paise);
+        days.add(Math.floorDiv(minute, MINUTES), paise);
+        totalPaise += paise;
+        payments++;
+    }
+
+    /**
+     * Revenue in the {@code count} minutes up to and including {@code minute}.
+     */
+    synchronized long lastMinutes(long minute, int count) {
+        return minutes.sum(minute, count);
+    }
+
+    /**
+     * Revenue in the {@code count} hours up to and including the hour of {@code minute}.
+     */
+    synchronized long lastHours(long minute, int count) {
+        return hours.sum(Math.floorDiv(minute, 60), count);
+    }
+
+    /**
+     * Revenue in the {@code count} days up to and including the day of {@code minute}.
+     */
+    synchronized long lastDays(long minute, int count) {
+        return days.sum(Math.floorDiv(minute, MINUTES), count);
+    }
+
+    synchronized long total() {
+        return totalPaise;
+    }
+
+    synchronized long payments() {
+        return payments;
+    }
+
+    private static final class Ring {
+        private final long[] periods;   // Period + 1 held by each bucket, 0 if never used
+        private final long[] paise;
+
+        Ring(int size) {
+            this.periods = new long[size];
+            this.paise = new long[size];
+        }
+
+        void add(long period, long amount) {
+            int i = (int) Math.floorMod(period, (long) periods.length);
+            if (periods[i] != period + 1) {
+                if (periods[i] > period + 1) {
+                    return;             // Older than the ring holds
+                }
+                periods[i] = period + 1;
+                paise[i] = 0;
+            }
+            paise[i] += amount;
+        }
+
+        long sum(long latest, int count) {
+            long sum = 0;
+            int n = Math.min(count, periods.length);
+            for (long period = latest - n + 1; period <= latest; period++) {
+                int i = (int) Math.floorMod(period, (long) periods.length);
+                if (periods[i] == period + 1) {
+                    sum += paise[i];
+                }
+            }
+            return sum;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.parking.service.interfaces;
 
+import com.parking.model.ParkingLot;
 import com.parking.model.Ticket;
+import com.parking.model.VehicleType;
 
 /**
  * Interface for fee calculation strategies.
@@ -14,4 +16,15 @@ public interface FeeCalculator {
      * @return The calculated fee amount
      */
     double calculateFee(Ticket ticket);
+    
+    /**
+     * The hourly rate this calculator charges a vehicle type before any rate
+     * is locked on the ticket. A locked rate is read relative to it, so a
+     * {@link RateProvider} scales this rate to raise or lower the fee.
+     * @param type The vehicle type
+     * @return The base hourly rate in rupees; by default the lot's
+     */
+    default double getBaseHourlyRate(VehicleType type) {
+        return ParkingLot.getInstance().getHourlyRate(type);
+    }
 }
@@ -20,6 +20,12 @@ public interface IDisplayBoardService {
      */
     void showAllFloorsAvailability();
     
+    /**
+     * Render availability for all floors without printing it, e.g. for a physical board.
+     * @return The rendered board
+     */
+    String renderAllFloors();
+    
     /**
      * Get availability summary as a map.
      * @return Map of floor number to availability summary string
@@ -17,6 +17,14 @@ public interface IParkingService {
      */
     Ticket parkVehicle(Vehicle vehicle);
     
+    /**
+     * Park a vehicle arriving through a specific entry gate.
+     * @param vehicle The vehicle to park
+     * @param entryGateId The entry gate, recorded on the ticket before it is issued
+     * @return The parking ticket, or null if parking failed
+     */
+    Ticket parkVehicle(Vehicle vehicle, String entryGateId);
+    
     /**
      * Park a vehicle using vehicle number and type code (legacy support).
      * @param vehicleNumber The vehicle registration number
@@ -31,6 +39,27 @@ public interface IParkingService {
      */
     boolean unparkVehicle(String ticketId);
     
+    /**
+     * Unpark a vehicle through a specific exit gate.
+     * @param ticketId The parking ticket ID
+     * @param exitGateId The exit gate, recorded on the ticket before its fare is booked
+     * @return true if unparking was successful
+     */
+    boolean unparkVehicle(String ticketId, String exitGateId);
+    
+    /**
+     * Quote the fare a ticket would be charged if it exited now.
+     * @param ticket The active ticket
+     * @return The fare from the current fee calculator, including any lost-ticket penalty
+     */
+    double quoteFare(Ticket ticket);
+    
+    /**
+     * Mark a ticket as lost so that the lost-ticket penalty applies.
+     * @param ticket The ticket reported lost
+     */
+    void reportLostTicket(Ticket ticket);
+    
     /**
      * Check if a vehicle is currently parked.
      * @param vehicleNumber The vehicle registration number
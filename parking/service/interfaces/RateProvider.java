@@ -0,0 +1,29 @@
+package com.parking.service.interfaces;
+
+import com.parking.model.VehicleType;
+
+/**
+ * Interface for hourly rate strategies.
+ * The rate returned when a ticket is issued is locked on the ticket, so
+ * later rate changes do not affect vehicles already parked.
+ */
+public interface RateProvider {
+    
+    /**
+     * Get the hourly rate for a vehicle entering now.
+     * @param type The vehicle type
+     * @return The hourly rate in rupees
+     */
+    double getHourlyRate(VehicleType type);
+    
+    /**
+     * Get the hourly rate for a vehicle entering now, relative to the base
+     * rate of the fee calculator that will charge it.
+     * @param type The vehicle type
+     * @param baseRate The calculator's {@link FeeCalculator#getBaseHourlyRate base rate}
+     * @return The hourly rate in rupees
+     */
+    default double getHourlyRate(VehicleType type, double baseRate) {
+        return getHourlyRate(type);
+    }
+}
@@ -2,6 +2,7 @@ package com.parking.service.interfaces;
 
 import com.parking.model.Floor;
 import com.parking.model.Slot;
+import com.parking.model.Vehicle;
 import com.parking.model.VehicleType;
 import java.util.List;
 
@@ -18,4 +19,47 @@ public interface SlotAllocationStrategy {
      * @return An available slot, or null if none found
      */
     Slot findAvailableSlot(List<Floor> floors, VehicleType vehicleType);
+    
+    /**
+     * Lost claims {@link #claimSlot} retries before reporting no slot.
+     */
+    int MAX_CLAIM_ATTEMPTS = 64;
+    
+    /**
+     * Find and atomically claim a slot for a vehicle.
+     * If another gate claims the candidate first, the search is retried so
+     * that the next candidate is tried instead. A slot offered again right
+     * after a lost claim is retried too, since the gate that took it may not
+     * have updated the floor's index yet, or may already have released it.
+     * The search gives up when it offers the same slot twice in a row and
+     * that slot cannot be claimed at all (reserved, retiring or converted),
+     * or after {@link #MAX_CLAIM_ATTEMPTS} lost claims.
+     * @param floors List of floors to search
+     * @param vehicle The vehicle to park
+     * @return The claimed slot, or null if none could be claimed
+     */
+    default Slot claimSlot(List<Floor> floors, Vehicle vehicle) {
+        VehicleType type = vehicle.getVehicleType();
+        Slot previous = null;
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            Slot slot = findAvailableSlot(floors, type);
+            if (slot == null) {
+                return null;
+            }
+            int state = slot.getState();
+            if (Slot.typeOf(state) != type
+                    || (slot == previous && (Slot.isReserved(state) || Slot.isRetired(state)))) {
+                return null;
+            }
+            if (slot.tryClaim(vehicle)) {
+                return slot;
+            }
+            if (slot == previous) {
+                // The other gate is still between its claim and the index update
+                Thread.onSpinWait();
+            }
+            previous = slot;
+        }
+        return null;
+    }
 }
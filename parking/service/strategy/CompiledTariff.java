@@ -0,0 +1,108 @@
+package com.parking.service.strategy;
+
+/**
+ * A {@link Tariff} compiled into primitive lookup tables, indexed by vehicle
+ * type row and hour of the week (Monday 00:00 = 0).
+ *
+ * Every hour of a stay is charged at the rate of the hour-of-week bucket it
+ * starts in, and each 24 hours from entry are capped separately. Prefix sums
+ * and per-day and per-week charges are precomputed for every starting bucket,
+ * so a fee takes a handful of array reads however long the stay, and never
+ * allocates.
+ */
+final class CompiledTariff {
+
+    static final int WEEK_HOURS = 7 * 24;
+
+    private final int graceMinutes;
+    private final long[][] prefix;          // Paise for the hours before i, over two weeks so ranges don't wrap
+    private final long[][] dayCharge;       // Capped charge for 24 hours from bucket i
+    private final long[][] firstDayCharge;  // The same, less a free first hour
+    private final long[][] weekCharge;      // Capped charge for 168 hours from bucket i
+    private final long[] caps;
+    private final long[] baseRates;         // Paise/hour the tariff charges before bands and weekends
+    private final boolean[] firstHourFree;
+
+    CompiledTariff(int graceMinutes, int[][] paise, long[] caps, long[] baseRates, boolean[] firstHourFree) {
+        int rows = paise.length;
+        this.graceMinutes = graceMinutes;
+        this.caps = caps;
+        this.baseRates = baseRates;
+        this.firstHourFree = firstHourFree;
+        this.prefix = new long[rows][2 * WEEK_HOURS + 1];
+        this.dayCharge = new long[rows][WEEK_HOURS];
+        this.firstDayCharge = new long[rows][WEEK_HOURS];
+        this.weekCharge = new long[rows][WEEK_HOURS];
+        for (int r = 0; r < rows; r++) {
+            long[] p = prefix[r];
+            for (int i = 0; i < 2 * WEEK_HOURS; i++) {
+                p[i + 1] = p[i] + paise[r][i % WEEK_HOURS];
+            }
+            for (int b = 0; b < WEEK_HOURS; b++) {
+                dayCharge[r][b] = Math.min(caps[r], p[b + 24] - p[b]);
+                firstDayCharge[r][b] = Math.min(caps[r], p[b + 24] - p[b + 1]);
+            }
+            for (int b = 0; b < WEEK_HOURS; b++) {
+                long week = 0;
+                for (int d = 0; d < 7; d++) {
+                    week += dayCharge[r][(b + d * 24) % WEEK_HOURS];
+                }
+                weekCharge[r][b] = week;
+            }
+        }
+    }
+
+    /**
+     * Fee in paise for a stay.
+     * @param row Vehicle type row
+     * @param entry Entry time in local seconds since the epoch
+     * @param exit Exit time in local seconds since the epoch
+     */
+    long fee(int row, long entry, long exit) {
+        long minutes = Math.max(0, (exit - entry) / 60);
+        if (minutes <= graceMinutes && graceMinutes > 0) {
+            return 0;
+        }
+        // Every hour started is charged, at least one
+        long hours = Math.max(1, (minutes + 59) / 60);
+        int bucket = bucketOf(entry);
+        long cap = caps[row];
+        long[] p = prefix[row];
+        long fee = 0;
+
+        if (firstHourFree[row]) {
+            if (hours < 24) {
+                return Math.min(cap, p[bucket + (int) hours] - p[bucket + 1]);
+            }
+            fee += firstDayCharge[row][bucket];
+            bucket = (bucket + 24) % WEEK_HOURS;
+            hours -= 24;
+        }
+        // Whole weeks start and end in the same bucket
+        fee += (hours / WEEK_HOURS) * weekCharge[row][bucket];
+        hours %= WEEK_HOURS;
+        while (hours >= 24) {
+            fee += dayCharge[row][bucket];
+            bucket = (bucket + 24) % WEEK_HOURS;
+            hours -= 24;
+        }
+        if (hours > 0) {
+            fee += Math.min(cap, p[bucket + (int) hours] - p[bucket]);
+        }
+        return fee;
+    }
+
+    long baseRate(int row) {
+        return baseRates[row];
+    }
+
+    /**
+     * Hour of the week, Monday 00:00 = 0, of a local time in seconds since the epoch.
+     */
+    static int bucketOf(long localSeconds) {
+        long epochHour = Math.floorDiv(localSeconds, 3600);
+        long epochDay = Math.floorDiv(epochHour, 24);
+        int dayOfWeek = Math.floorMod(epochDay + 3, 7);   // 1970-01-01 was a Thursday
+        return dayOfWeek * 24 + Math.floorMod(epochHour, 24);
+    }
+}
@@ -1,5 +1,7 @@
 package com.parking.service.strategy;
 
+import com.parking.jfr.FeeCalculationEvent;
+import com.parking.jfr.ParkingEvents;
 import com.parking.model.ParkingLot;
 import com.parking.model.Ticket;
 import com.parking.model.VehicleType;
@@ -7,7 +9,8 @@ import com.parking.service.interfaces.FeeCalculator;
 
 /**
  * Standard hourly fee calculator.
- * Charges based on hours parked * hourly rate for vehicle type.
+ * Charges based on hours parked * hourly rate for vehicle type, or the
+ * rate locked on the ticket at entry if it has one.
  */
 public class HourlyFeeCalculator implements FeeCalculator {
     
@@ -23,15 +26,28 @@ public class HourlyFeeCalculator implements FeeCalculator {
             return 0;
         }
         
-        long hours = ticket.getParkingDurationHours();
+        FeeCalculationEvent event = new FeeCalculationEvent();
+        event.begin();
+        long hours = ticket.getParkingDurationHours(parkingLot.getClock().millis());
         VehicleType type = ticket.getVehicleType();
-        double hourlyRate = parkingLot.getHourlyRate(type);
-        
-        // If vehicle type not set in ticket, use default
-        if (type == null) {
-            hourlyRate = 20.0; // default rate
+        double fee;
+        if (ticket.hasLockedRate()) {
+            fee = hours * ticket.getLockedHourlyRate();
+        } else {
+            // If vehicle type not set in ticket, use default
+            double hourlyRate = type != null ? parkingLot.getHourlyRate(type) : 20.0;
+            fee = hours * hourlyRate;
         }
         
-        return hours * hourlyRate;
+        event.end();
+        if (event.shouldCommit()) {
+            event.calculator = HourlyFeeCalculator.class;
+            event.vehicleType = ParkingEvents.typeName(type);
+            event.ticketId = ticket.getTicketId();
+            event.lockedRate = ticket.hasLockedRate();
+            event.fee = fee;
+            event.commit();
+        }
+        return fee;
     }
 }
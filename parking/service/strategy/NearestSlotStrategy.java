@@ -1,7 +1,10 @@
 package com.parking.service.strategy;
 
+import com.parking.jfr.ParkingEvents;
+import com.parking.jfr.SlotAllocationEvent;
 import com.parking.model.Floor;
 import com.parking.model.Slot;
+import com.parking.model.Vehicle;
 import com.parking.model.VehicleType;
 import com.parking.service.interfaces.SlotAllocationStrategy;
 import java.util.List;
@@ -14,17 +17,63 @@ public class NearestSlotStrategy implements SlotAllocationStrategy {
     
     @Override
     public Slot findAvailableSlot(List<Floor> floors, VehicleType vehicleType) {
+        SlotAllocationEvent event = new SlotAllocationEvent();
+        event.begin();
+        // Probes are only counted while a recording wants them
+        int[] probes = event.isEnabled() ? new int[1] : null;
+        int floorsScanned = 0;
+        Slot found = null;
         // Start from first floor (nearest to entry)
         for (Floor floor : floors) {
             if (!floor.isOperational()) {
                 continue;
             }
             
-            Slot slot = floor.findAvailableSlot(vehicleType);
+            floorsScanned++;
+            Slot slot = floor.findAvailableSlot(vehicleType, probes);
             if (slot != null) {
-                return slot;
+                found = slot;
+                break;
             }
         }
-        return null;
+        commit(event, ParkingEvents.typeName(vehicleType), false, found, floorsScanned, probes);
+        return found;
+    }
+    
+    @Override
+    public Slot claimSlot(List<Floor> floors, Vehicle vehicle) {
+        SlotAllocationEvent event = new SlotAllocationEvent();
+        event.begin();
+        int[] probes = event.isEnabled() ? new int[1] : null;
+        int floorsScanned = 0;
+        Slot claimed = null;
+        // Same floor order as findAvailableSlot, moving on when a candidate is lost to another gate
+        for (Floor floor : floors) {
+            if (!floor.isOperational()) {
+                continue;
+            }
+            
+            floorsScanned++;
+            Slot slot = floor.claimAvailableSlot(vehicle, probes);
+            if (slot != null) {
+                claimed = slot;
+                break;
+            }
+        }
+        commit(event, ParkingEvents.typeName(vehicle.getVehicleType()), true, claimed, floorsScanned, probes);
+        return claimed;
+    }
+
+    private static void commit(SlotAllocationEvent event, String vehicleType, boolean claim,
+                               Slot slot, int floorsScanned, int[] probes) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.vehicleType = vehicleType;
+            event.claim = claim;
+            event.floor = slot != null ? slot.getFloorNumber() : -1;
+            event.floorsScanned = floorsScanned;
+            event.slotsScanned = probes != null ? probes[0] : 0;
+            event.commit();
+        }
     }
 }
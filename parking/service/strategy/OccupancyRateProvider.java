@@ -0,0 +1,81 @@
+package com.parking.service.strategy;
+
+import com.parking.model.ParkingLot;
+import com.parking.model.VehicleType;
+import com.parking.service.interfaces.RateProvider;
+import java.util.Arrays;
+
+/**
+ * Rate provider that raises each vehicle type's hourly rate as its slots fill
+ * up, following a {@link PriceCurve} per type.
+ *
+ * Occupancy comes from the lot's incrementally maintained counters, so a
+ * rate costs two counter reads and one curve lookup however large the lot.
+ * Reserved slots count as taken, since they cannot be sold.
+ */
+public class OccupancyRateProvider implements RateProvider {
+
+    private ParkingLot parkingLot;
+    private volatile PriceCurve[] curves;       // By vehicle type ordinal, replaced whole
+
+    public OccupancyRateProvider() {
+        this(PriceCurve.flat());
+    }
+
+    public OccupancyRateProvider(PriceCurve curve) {
+        this.parkingLot = ParkingLot.getInstance();
+        PriceCurve[] all = new PriceCurve[VehicleType.values().length];
+        Arrays.fill(all, curve);
+        this.curves = all;
+    }
+
+    /**
+     * Set the curve for one vehicle type. Tickets already issued keep their rate.
+     */
+    public synchronized void setCurve(VehicleType type, PriceCurve curve) {
+        PriceCurve[] next = curves.clone();
+        next[type.ordinal()] = curve;
+        curves = next;
+    }
+
+    public PriceCurve getCurve(VehicleType type) {
+        return curves[type.ordinal()];
+    }
+
+    /**
+     * The lot's hourly rate times the multiplier for the type's current
+     * occupancy, rounded to the paisa.
+     */
+    @Override
+    public double getHourlyRate(VehicleType type) {
+        return getHourlyRate(type, parkingLot.getHourlyRate(type));
+    }
+
+    /**
+     * The fee calculator's base rate times the multiplier for the type's
+     * current occupancy, rounded to the paisa. Scaling the same base the
+     * calculator charges keeps a tariff's own rates intact on a flat curve.
+     */
+    @Override
+    public double getHourlyRate(VehicleType type, double baseRate) {
+        double rate = baseRate * getMultiplier(type);
+        return Math.round(rate * 100) / 100.0;
+    }
+
+    public double getMultiplier(VehicleType type) {
+        return curves[type.ordinal()].multiplierAt(getOccupancyPercent(type));
+    }
+
+    /**
+     * Share of the type's slots that are occupied or reserved, 0 to 100; a
+     * type with no slots counts as full.
+     */
+    public int getOccupancyPercent(VehicleType type) {
+        int total = parkingLot.getTotalSlotsByType(type);
+        if (total <= 0) {
+            return 100;
+        }
+        int taken = total - parkingLot.getAvailableSlotsByType(type);
+        return (int) (taken * 100L / total);
+    }
+}
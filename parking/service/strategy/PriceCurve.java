@@ -0,0 +1,83 @@
+package com.parking.service.strategy;
+
+/**
+ * Rate multiplier as a function of occupancy, given as points such as
+ * {@code 0:1.0,70:1.0,85:1.5,95:2.5} (occupancy percent : multiplier) and
+ * interpolated linearly between them. Below the first point the first
+ * multiplier applies, above the last point the last one.
+ *
+ * The curve is evaluated once per percent when it is built, so a lookup is a
+ * single array read.
+ */
+public final class PriceCurve {
+
+    private final double[] multipliers = new double[101];
+    private final String definition;
+
+    private PriceCurve(int[] percents, double[] values, String definition) {
+        this.definition = definition;
+        for (int p = 0; p <= 100; p++) {
+            int i = 0;
+            while (i < percents.length && percents[i] < p) {
+                i++;
+            }
+            if (i == 0) {
+                multipliers[p] = values[0];
+            } else if (i == percents.length) {
+                multipliers[p] = values[values.length - 1];
+            } else {
+                double t = (double) (p - percents[i - 1]) / (percents[i] - percents[i - 1]);
+                multipliers[p] = values[i - 1] + t * (values[i] - values[i - 1]);
+            }
+        }
+    }
+
+    /**
+     * The same rate at every occupancy.
+     */
+    public static PriceCurve flat() {
+        return parse("0:1");
+    }
+
+    /**
+     * Parse a curve from comma-separated {@code percent:multiplier} points in
+     * increasing order of percent.
+     * @throws IllegalArgumentException if the curve is malformed
+     */
+    public static PriceCurve parse(String definition) {
+        String[] points = definition.trim().split("\\s*,\\s*");
+        int[] percents = new int[points.length];
+        double[] values = new double[points.length];
+        for (int i = 0; i < points.length; i++) {
+            String[] parts = points[i].split(":");
+            try {
+                if (parts.length != 2) {
+                    throw new NumberFormatException();
+                }
+                percents[i] = Integer.parseInt(parts[0].trim());
+                values[i] = Double.parseDouble(parts[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Price curve point '" + points[i] + "' is not percent:multiplier");
+            }
+            if (percents[i] < 0 || percents[i] > 100 || (i > 0 && percents[i] <= percents[i - 1])) {
+                throw new IllegalArgumentException("Price curve percents must rise from 0 to 100: " + definition);
+            }
+            if (!(values[i] >= 0) || Double.isInfinite(values[i])) {
+                throw new IllegalArgumentException("Price curve multiplier must not be negative: " + points[i]);
+            }
+        }
+        return new PriceCurve(percents, values, definition.trim());
+    }
+
+    /**
+     * Multiplier at an occupancy percentage, 0 to 100.
+     */
+    public double multiplierAt(int percent) {
+        return multipliers[Math.max(0, Math.min(100, percent))];
+    }
+
+    @Override
+    public String toString() {
+        return "PriceCurve[" + definition + "]";
+    }
+}
@@ -0,0 +1,299 @@
+package com.parking.service.strategy;
+
+import com.parking.exception.InvalidTariffException;
+import com.parking.model.ParkingLot;
+import com.parking.model.VehicleType;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Declarative tariff definition, one rule per line:
+ *
+ * <pre>
+ * # Comments start with '#'
+ * grace 10                          # Stays of up to 10 minutes are free
+ * rate 4W 25                        # Rs/hour, otherwise the lot's hourly rate
+ * weekend ALL 15                    # Rs/hour on Saturday and Sunday
+ * band 4W WEEKDAY 08-20 40          # Rs/hour in a time-of-day band
+ * band ALL MON,FRI 22-06 5          # Bands may wrap past midnight
+ * cap 4W 300                        # At most Rs. 300 per 24 hours parked
+ * first-hour-free 2W
+ * </pre>
+ *
+ * Vehicle types are {@code 2W}, {@code 4W}, {@code 6W} or {@code ALL}; days
+ * are {@code ALL}, {@code WEEKDAY}, {@code WEEKEND} or a list of
+ * {@code MON}..{@code SUN}. Each hour parked is charged at the rate in force
+ * when it starts; later bands override earlier ones.
+ *
+ * A tariff is immutable. {@link TariffFeeCalculator} compiles it into
+ * lookup tables once, so the rules cost nothing on the exit path.
+ */
+public final class Tariff {
+
+    static final int ROWS = VehicleType.values().length + 1;   // Last row: tickets without a vehicle type
+    static final double UNTYPED_RATE = 20.0;
+    private static final String[] DAY_NAMES = {"MON", "TUE", "WED", "THU", "FRI", "SAT", "SUN"};
+    private static final int WEEKDAYS = 0b0011111;
+    private static final int WEEKEND = 0b1100000;
+    private static final int ALL_DAYS = 0b1111111;
+
+    private final int graceMinutes;
+    private final double[] rates;           // Rs/hour per row, NaN for the lot's rate
+    private final double[] weekendRates;    // NaN if weekends are not special
+    private final double[] dailyCaps;       // NaN if uncapped
+    private final boolean[] firstHourFree;
+    private final List<Band> bands;
+
+    private Tariff(int graceMinutes, double[] rates, double[] weekendRates, double[] dailyCaps,
+                   boolean[] firstHourFree, List<Band> bands) {
+        this.graceMinutes = graceMinutes;
+        this.rates = rates;
+        this.weekendRates = weekendRates;
+        this.dailyCaps = dailyCaps;
+        this.firstHourFree = firstHourFree;
+        this.bands = Collections.unmodifiableList(bands);
+    }
+
+    /**
+     * The plain tariff: every hour, or part of one, at the lot's hourly rate.
+     */
+    public static Tariff standard() {
+        return parse(Collections.emptyList());
+    }
+
+    public static Tariff load(Path file) throws IOException {
+        return parse(Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws InvalidTariffException if a line is not a valid rule
+     */
+    public static Tariff parse(List<String> lines) {
+        int grace = 0;
+        double[] rates = nanRow();
+        double[] weekendRates = nanRow();
+        double[] caps = nanRow();
+        boolean[] firstHourFree = new boolean[ROWS];
+        List<Band> bands = new ArrayList<>();
+
+        int lineNumber = 0;
+        for (String raw : lines) {
+            lineNumber++;
+            int hash = raw.indexOf('#');
+            String line = (hash >= 0 ? raw.substring(0, hash) : raw).trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] words = line.split("\\s+");
+            String rule = words[0].toLowerCase(Locale.ROOT);
+            switch (rule) {
+                case "grace":
+                    expect(words, 2, lineNumber);
+                    grace = (int) number(words[1], 24 * 60, lineNumber);
+                    break;
+                case "rate":
+                    expect(words, 3, lineNumber);
+                    set(rates, types(words[1], lineNumber), number(words[2], Double.MAX_VALUE, lineNumber));
+                    break;
+                case "weekend":
+                    expect(words, 3, lineNumber);
+                    set(weekendRates, types(words[1], lineNumber), number(words[2], Double.MAX_VALUE, lineNumber));
+                    break;
+                case "cap":
+                    expect(words, 3, lineNumber);
+                    set(caps, types(words[1], lineNumber), number(words[2], Double.MAX_VALUE, lineNumber));
+                    break;
+                case "first-hour-free":
+                    expect(words, 2, lineNumber);
+                    for (int row : types(words[1], lineNumber)) {
+                        firstHourFree[row] = true;
+                    }
+                    break;
+                case "band":
+                    expect(words, 5, lineNumber);
+                    bands.add(new Band(types(words[1], lineNumber), days(words[2], lineNumber),
+                        hours(words[3], lineNumber), number(words[4], Double.MAX_VALUE, lineNumber)));
+                    break;
+                default:
+                    throw new InvalidTariffException(lineNumber, "unknown rule '" + words[0] + "'");
+            }
+        }
+        return new Tariff(grace, rates, weekendRates, caps, firstHourFree, bands);
+    }
+
+    public int getGraceMinutes() {
+        return graceMinutes;
+    }
+
+    /**
+     * Compile the rules into per-type hour-of-week tables, taking base rates
+     * that the tariff does not set from the lot.
+     */
+    CompiledTariff compile(ParkingLot lot) {
+        VehicleType[] types = VehicleType.values();
+        int[][] paise = new int[ROWS][CompiledTariff.WEEK_HOURS];
+        long[] caps = new long[ROWS];
+        long[] baseRates = new long[ROWS];
+        for (int row = 0; row < ROWS; row++) {
+            double base = !Double.isNaN(rates[row]) ? rates[row]
+                : row < types.length ? lot.getHourlyRate(types[row]) : UNTYPED_RATE;
+            baseRates[row] = Math.round(base * 100);
+            for (int day = 0; day < 7; day++) {
+                boolean weekend = (WEEKEND & (1 << day)) != 0;
+                double dayRate = weekend && !Double.isNaN(weekendRates[row]) ? weekendRates[row] : base;
+                for (int hour = 0; hour < 24; hour++) {
+                    double rate = dayRate;
+                    for (Band band : bands) {
+                        if (band.applies(row, day, hour)) {
+                            rate = band.rate;
+                        }
+                    }
+                    paise[row][day * 24 + hour] = (int) Math.round(rate * 100);
+                }
+            }
+            caps[row] = Double.isNaN(dailyCaps[row]) ? Long.MAX_VALUE : Math.round(dailyCaps[row] * 100);
+        }
+        return new CompiledTariff(graceMinutes, paise, caps, baseRates, firstHourFree.clone());
+    }
+
+    @Override
+    public String toString() {
+        return "Tariff[grace=" + graceMinutes + "m, rates=" + Arrays.toString(rates)
+            + ", weekend=" + Arrays.toString(weekendRates) + ", caps=" + Arrays.toString(dailyCaps)
+            + ", firstHourFree=" + Arrays.toString(firstHourFree) + ", bands=" + bands.size() + "]";
+    }
+
+    private static double[] nanRow() {
+        double[] row = new double[ROWS];
+        Arrays.fill(row, Double.NaN);
+        return row;
+    }
+
+    private static void set(double[] row, int[] rows, double value) {
+        for (int r : rows) {
+            row[r] = value;
+        }
+    }
+
+    private static void expect(String[] words, int count, int lineNumber) {
+        if (words.length != count) {
+            throw new InvalidTariffException(lineNumber, "'" + words[0] + "' takes " + (count - 1) + " value(s)");
+        }
+    }
+
+    private static double number(String word, double max, int lineNumber) {
+        try {
+            double value = Double.parseDouble(word);
+            if (value >= 0 && value <= max) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new InvalidTariffException(lineNumber, "'" + word + "' is not a valid amount");
+    }
+
+    /**
+     * Rows of a vehicle type: {@code 2W}, {@code 4W}, {@code 6W} or {@code ALL}.
+     */
+    private static int[] types(String word, int lineNumber) {
+        String w = word.toUpperCase(Locale.ROOT);
+        if (w.equals("ALL")) {
+            int[] all = new int[ROWS];
+            for (int r = 0; r < ROWS; r++) {
+                all[r] = r;
+            }
+            return all;
+        }
+        if (w.endsWith("W")) {
+            try {
+                VehicleType type = VehicleType.fromCode(Integer.parseInt(w.substring(0, w.length() - 1)));
+                if (type != null) {
+                    return new int[] {type.ordinal()};
+                }
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+        }
+        throw new InvalidTariffException(lineNumber, "unknown vehicle type '" + word + "'");
+    }
+
+    /**
+     * Bit mask of days, Monday = bit 0.
+     */
+    private static int days(String word, int lineNumber) {
+        String w = word.toUpperCase(Locale.ROOT);
+        switch (w) {
+            case "ALL":
+                return ALL_DAYS;
+            case "WEEKDAY":
+            case "WEEKDAYS":
+                return WEEKDAYS;
+            case "WEEKEND":
+            case "WEEKENDS":
+                return WEEKEND;
+            default:
+                int mask = 0;
+                for (String name : w.split(",")) {
+                    int day = Arrays.asList(DAY_NAMES).indexOf(name);
+                    if (day < 0) {
+                        throw new InvalidTariffException(lineNumber, "unknown day '" + name + "'");
+                    }
+                    mask |= 1 << day;
+                }
+                return mask;
+        }
+    }
+
+    /**
+     * Bit mask of hours from an {@code HH-HH} range, end exclusive; wraps past midnight if the end is earlier.
+     */
+    private static int hours(String word, int lineNumber) {
+        String[] ends = word.split("-");
+        if (ends.length == 2) {
+            try {
+                int from = Integer.parseInt(ends[0]);
+                int to = Integer.parseInt(ends[1]);
+                if (from >= 0 && from < 24 && to >= 0 && to <= 24 && from != to) {
+                    int mask = 0;
+                    for (int h = from; h != to % 24 || (mask == 0 && h == from); h = (h + 1) % 24) {
+                        mask |= 1 << h;
+                    }
+                    return mask;
+                }
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+        }
+        throw new InvalidTariffException(lineNumber, "'" + word + "' is not an hour range like 08-20");
+    }
+
+    private static final class Band {
+        private final int rowMask;
+        private final int dayMask;
+        private final int hourMask;
+        private final double rate;
+
+        Band(int[] rows, int dayMask, int hourMask, double rate) {
+            int mask = 0;
+            for (int r : rows) {
+                mask |= 1 << r;
+            }
+            this.rowMask = mask;
+            this.dayMask = dayMask;
+            this.hourMask = hourMask;
+            this.rate = rate;
+        }
+
+        boolean applies(int row, int day, int hour) {
+            return (rowMask & (1 << row)) != 0 && (dayMask & (1 << day)) != 0 && (hourMask & (1 << hour)) != 0;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.parking.service.strategy;
+
+import com.parking.jfr.FeeCalculationEvent;
+import com.parking.jfr.ParkingEvents;
+import com.parking.model.ParkingClock;
+import com.parking.model.ParkingLot;
+import com.parking.model.RateListener;
+import com.parking.model.Ticket;
+import com.parking.model.VehicleType;
+import com.parking.service.interfaces.FeeCalculator;
+
+/**
+ * Fee calculator driven by a {@link Tariff}: time-of-day bands, weekend
+ * rates, daily caps, grace periods and a free first hour. A rate locked on
+ * the ticket at entry scales the whole tariff by its ratio to the tariff's
+ * base rate, so surge pricing applies on top of the bands.
+ *
+ * The tariff is compiled into lookup tables when it is set, so calculating a
+ * fee reads a few array entries and allocates nothing. A new tariff is
+ * compiled on the caller's thread and then swapped in with a single volatile
+ * write: exits in progress finish on the tables they started with and never
+ * wait for the swap.
+ *
+ * Rates the tariff does not set come from the lot. Once {@link #attach()}ed,
+ * the calculator recompiles whenever one of the lot's hourly rates changes,
+ * including rates replayed from the journal at startup.
+ */
+public class TariffFeeCalculator implements FeeCalculator, RateListener {
+
+    private ParkingLot parkingLot;
+    private volatile Tariff tariff;
+    private volatile CompiledTariff compiled;
+
+    public TariffFeeCalculator() {
+        this(Tariff.standard());
+    }
+
+    public TariffFeeCalculator(Tariff tariff) {
+        this.parkingLot = ParkingLot.getInstance();
+        this.tariff = tariff;
+        this.compiled = tariff.compile(parkingLot);
+    }
+
+    /**
+     * Compile and switch to a new tariff. Exits keep being charged on the old
+     * one until it is ready.
+     */
+    public synchronized void setTariff(Tariff tariff) {
+        CompiledTariff tables = tariff.compile(parkingLot);
+        this.tariff = tariff;
+        this.compiled = tables;
+    }
+
+    /**
+     * Recompile the current tariff, e.g. after the lot's hourly rates change.
+     */
+    public void recompile() {
+        setTariff(tariff);
+    }
+
+    /**
+     * Start following the lot's hourly rates, recompiling on every change.
+     */
+    public void attach() {
+        parkingLot.addRateListener(this);
+        recompile();
+    }
+
+    /**
+     * Stop following the lot's hourly rates.
+     */
+    public void detach() {
+        parkingLot.removeRateListener(this);
+    }
+
+    @Override
+    public void hourlyRateChanged(VehicleType type, double rate) {
+        recompile();
+    }
+
+    public Tariff getTariff() {
+        return tariff;
+    }
+
+    /**
+     * The tariff's base rate for the type: its own {@code rate} rule, or the lot's rate.
+     */
+    @Override
+    public double getBaseHourlyRate(VehicleType type) {
+        return compiled.baseRate(type.ordinal()) / 100.0;
+    }
+
+    @Override
+    public double calculateFee(Ticket ticket) {
+        if (ticket == null) {
+            return 0;
+        }
+        FeeCalculationEvent event = new FeeCalculationEvent();
+        event.begin();
+        CompiledTariff tables = compiled;
+        int row = ticket.getVehicleType() != null ? ticket.getVehicleType().ordinal() : Tariff.ROWS - 1;
+        long entry = localSeconds(ticket.getEntryMillis());
+        long exit = localSeconds(ticket.hasExited() ? ticket.getExitMillis() : parkingLot.getClock().millis());
+        long fee = tables.fee(row, entry, exit);
+        long base = tables.baseRate(row);
+        if (ticket.hasLockedRate() && base > 0) {
+            fee = Math.round(fee * (ticket.getLockedHourlyRate() * 100) / base);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.calculator = TariffFeeCalculator.class;
+            event.vehicleType = ParkingEvents.typeName(ticket.getVehicleType());
+            event.ticketId = ticket.getTicketId();
+            event.lockedRate = ticket.hasLockedRate();
+            event.fee = fee / 100.0;
+            event.commit();
+        }
+        return fee / 100.0;
+    }
+
+    /**
+     * Wall-clock seconds in the local time zone, which the tariff's hours and days follow.
+     */
+    private static long localSeconds(long epochMillis) {
+        return Math.floorDiv(ParkingClock.toLocalMillis(epochMillis), 1000);
+    }
+}